@@ -0,0 +1,126 @@
+package com.github.tommyettinger.worldly;
+
+import jdk.jfr.*;
+
+/**
+ * A {@link WorldMapGenerator.GenerationListener} that turns each generation phase into a JDK Flight Recorder event,
+ * so a recording made with {@code -XX:StartFlightRecording} or JDK Mission Control shows regeneration, each noise pass,
+ * biome mapping, and coloring on the same timeline as GC and allocation events. Each {@link PhaseEvent} carries the
+ * phase name, the projection (the simple name of the WorldMapGenerator's class), width, height, zoom, seed, and the
+ * cell and noise call counts reported for that phase. Events are registered under the "Worldly" category, named
+ * {@code com.github.tommyettinger.worldly.GenerationPhase}.
+ * <br>
+ * This class is only built when the library is compiled on JDK 11 or newer, and it needs the {@code jdk.jfr} module at
+ * runtime. It doesn't touch any JFR class until a phase is reported, so code that may run on older JVMs should call
+ * {@link #attach(WorldMapGenerator)}, which checks {@link #isAvailable()} first and leaves the world alone if JFR is
+ * missing. When no recording is running, each phase costs one small allocation and a check that JFR makes very cheap.
+ * <br>
+ * One instance can be shared by many WorldMapGenerators, including ones running on different threads; events that
+ * have begun but not ended are tracked per thread.
+ */
+public class JfrGenerationListener implements WorldMapGenerator.GenerationListener {
+    /**
+     * The JFR event committed once for each finished phase of generation, biome mapping, or coloring.
+     */
+    @Name("com.github.tommyettinger.worldly.GenerationPhase")
+    @Label("World Generation Phase")
+    @Category("Worldly")
+    @Description("One phase of generating, biome mapping, or coloring a world map")
+    @StackTrace(false)
+    public static class PhaseEvent extends Event {
+        @Label("Phase")
+        @Description("The name of the phase, from GenerationListener.PHASE_NAMES")
+        public String phase;
+        @Label("Projection")
+        @Description("The simple class name of the WorldMapGenerator")
+        public String projection;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Zoom")
+        public int zoom;
+        @Label("Seed")
+        @Description("The 64-bit seed of the world, with seedB in the upper half and seedA in the lower")
+        public long seed;
+        @Label("Cells")
+        public int cells;
+        @Label("Noise Calls")
+        public int noiseCalls;
+    }
+
+    private static Boolean available;
+
+    /**
+     * A shared instance; since this holds no per-world state, there's usually no need to make another.
+     */
+    public static final JfrGenerationListener instance = new JfrGenerationListener();
+
+    private final ThreadLocal<PhaseEvent[]> open = new ThreadLocal<PhaseEvent[]>() {
+        @Override
+        protected PhaseEvent[] initialValue() {
+            return new PhaseEvent[PHASE_NAMES.length];
+        }
+    };
+
+    /**
+     * Checks whether the running JVM has JDK Flight Recorder and supports it; the result is cached after the first
+     * call. This is safe to call on any JVM, even one without the {@code jdk.jfr} module.
+     * @return true if JFR events can be recorded on this JVM
+     */
+    public static boolean isAvailable() {
+        if (available == null) {
+            boolean result;
+            try {
+                Class.forName("jdk.jfr.FlightRecorder");
+                result = FlightRecorder.isAvailable();
+            } catch (Throwable t) {
+                result = false;
+            }
+            available = result;
+        }
+        return available;
+    }
+
+    /**
+     * Sets {@link #instance} as the listener of {@code world} if {@link #isAvailable() JFR is available}, replacing
+     * any current listener; otherwise does nothing. Since {@link WorldMapView} reports to its world's listener, this
+     * also covers coloring done by a WorldMapView that uses {@code world}.
+     * @param world a WorldMapGenerator that should emit JFR events
+     * @return true if the listener was attached, or false if JFR isn't available
+     */
+    public static boolean attach(WorldMapGenerator world) {
+        if (world == null || !isAvailable())
+            return false;
+        world.setListener(instance);
+        return true;
+    }
+
+    @Override
+    public void phaseStarted(WorldMapGenerator world, int phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        open.get()[phase] = event;
+    }
+
+    @Override
+    public void phaseFinished(WorldMapGenerator world, int phase, long nanos, int cells, int noiseCalls) {
+        final PhaseEvent[] events = open.get();
+        final PhaseEvent event = events[phase];
+        if (event == null)
+            return;
+        events[phase] = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = PHASE_NAMES[phase];
+            event.projection = world.getClass().getSimpleName();
+            event.width = world.width;
+            event.height = world.height;
+            event.zoom = world.zoom;
+            event.seed = (long) world.seedB << 32 | (world.seedA & 0xFFFFFFFFL);
+            event.cells = cells;
+            event.noiseCalls = noiseCalls;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.tommyettinger.worldly;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Generates and zooms one world on an {@link Executor} instead of blocking the calling thread, giving back a
+ * {@link Future} for each request. Cancelling a Future stops its generation at the end of the current block of
+ * {@link WorldMapGenerator#progressRows} rows, using a {@link WorldMapGenerator.ProgressMonitor}, so it stops using CPU
+ * almost right away instead of finishing the whole map. By default each request cancels the one before it, so when a
+ * user zooms three times quickly, only the last zoom is finished. A cancelled request may not have started at all, or
+ * may have already moved the view before it was stopped, so a UI that changes the view quickly should ask for the
+ * view it wants to end up with, as {@link #zoomTo(int, int, int, WorldMapGenerator.ProgressMonitor)} does, rather than
+ * for each step on the way there. Each request can also be given its own ProgressMonitor to hear how far along it is,
+ * such as to draw a progress bar.
+ * <br>
+ * Requests run one at a time on {@link #world}, so while a request is running, nothing else should read or change the
+ * world (or the biome mapper and colors of a {@link WorldMapView} showing it). Wait for the Future, or use
+ * {@link WorldPublisher} from inside a request with {@link #submit(Callable, WorldMapGenerator.ProgressMonitor)} so
+ * other threads can read finished snapshots. A request that is cancelled while it runs leaves the world partly
+ * regenerated, as described in {@link WorldMapGenerator.GenerationCancelledException}; a later request regenerates it.
+ * Requests start in the order they were given on a single-threaded executor; with more threads and {@link #supersede}
+ * turned off, they still run one at a time, but can start in any order.
+ */
+public class AsyncWorldGenerator {
+    /**
+     * The world that every request generates or zooms.
+     */
+    public final WorldMapGenerator world;
+    /**
+     * Runs each request.
+     */
+    public final Executor executor;
+    /**
+     * If true (the default), giving a new request cancels the last one if it hasn't finished.
+     */
+    public boolean supersede = true;
+    private final Object lock = new Object();
+    private FutureTask<?> latest;
+
+    /**
+     * Runs requests for {@code world} on {@code executor}.
+     * @param world the WorldMapGenerator to generate with
+     * @param executor an Executor, such as a single-threaded ExecutorService
+     */
+    public AsyncWorldGenerator(WorldMapGenerator world, Executor executor) {
+        this.world = world;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs {@code work} on {@link #executor} as a request, while {@code progress} (if not null) hears about every
+     * block of rows the world finishes. Cancelling the returned Future, or progress returning false, stops any
+     * generation work is doing at the end of the current block; the Future then throws a CancellationException from
+     * get(), or an ExecutionException wrapping a {@link WorldMapGenerator.GenerationCancelledException}, respectively.
+     * The world's own ProgressMonitor is replaced while work runs.
+     * @param work what to do with {@link #world}, such as calling {@link WorldMapView#generateAndShow()} on a view of it
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @param <T> the type work returns
+     * @return a Future for the result of work
+     */
+    public <T> Future<T> submit(Callable<T> work, WorldMapGenerator.ProgressMonitor progress) {
+        final Request<T> request = new Request<>(work, progress);
+        synchronized (this) {
+            if(supersede && latest != null)
+                latest.cancel(false);
+            latest = request.future;
+        }
+        executor.execute(request.future);
+        return request.future;
+    }
+
+    /**
+     * Cancels the most recent request if it hasn't finished; with {@link #supersede} on, that is the only one that
+     * could still be running.
+     */
+    public synchronized void cancel() {
+        if(latest != null)
+            latest.cancel(false);
+    }
+
+    /**
+     * Generates a world in the background; see {@link WorldMapGenerator#generate(long)}.
+     * @param state the state to give the generator's RNG
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives {@link #world} once it has been generated
+     */
+    public Future<WorldMapGenerator> generate(final long state, WorldMapGenerator.ProgressMonitor progress) {
+        return generate(-1.0, -1.0, state, progress);
+    }
+
+    /**
+     * Generates a world in the background; see {@link WorldMapGenerator#generate(double, double, long)}.
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; random if negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; random if negative
+     * @param state the state to give the generator's RNG
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives {@link #world} once it has been generated
+     */
+    public Future<WorldMapGenerator> generate(final double landMod, final double heatMod, final long state,
+                                              WorldMapGenerator.ProgressMonitor progress) {
+        return submit(new Callable<WorldMapGenerator>() {
+            @Override
+            public WorldMapGenerator call() {
+                world.generate(landMod, heatMod, state);
+                return world;
+            }
+        }, progress);
+    }
+
+    /**
+     * Zooms in, in the background; see {@link WorldMapGenerator#zoomIn(int, int, int)}.
+     * @param zoomAmount how many times to double the resolution
+     * @param zoomCenterX the center X position to zoom in to
+     * @param zoomCenterY the center Y position to zoom in to
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives {@link #world} once it has been zoomed
+     */
+    public Future<WorldMapGenerator> zoomIn(final int zoomAmount, final int zoomCenterX, final int zoomCenterY,
+                                            WorldMapGenerator.ProgressMonitor progress) {
+        return submit(new Callable<WorldMapGenerator>() {
+            @Override
+            public WorldMapGenerator call() {
+                world.zoomIn(zoomAmount, zoomCenterX, zoomCenterY);
+                return world;
+            }
+        }, progress);
+    }
+
+    /**
+     * Zooms out, in the background; see {@link WorldMapGenerator#zoomOut(int, int, int)}.
+     * @param zoomAmount how many times to halve the resolution
+     * @param zoomCenterX the center X position to zoom out from
+     * @param zoomCenterY the center Y position to zoom out from
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives {@link #world} once it has been zoomed
+     */
+    public Future<WorldMapGenerator> zoomOut(final int zoomAmount, final int zoomCenterX, final int zoomCenterY,
+                                             WorldMapGenerator.ProgressMonitor progress) {
+        return submit(new Callable<WorldMapGenerator>() {
+            @Override
+            public WorldMapGenerator call() {
+                world.zoomOut(zoomAmount, zoomCenterX, zoomCenterY);
+                return world;
+            }
+        }, progress);
+    }
+
+    /**
+     * Shows an exact area at a zoom level, in the background; see {@link WorldMapGenerator#zoomTo(int, int, int)}.
+     * @param zoomLevel how many times the resolution should be doubled, 0 or more
+     * @param areaX the x-coordinate of the left edge of the area, in cells of the unzoomed map
+     * @param areaY the y-coordinate of the top edge of the area, in cells of the unzoomed map
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives {@link #world} once it has been zoomed
+     */
+    public Future<WorldMapGenerator> zoomTo(final int zoomLevel, final int areaX, final int areaY,
+                                            WorldMapGenerator.ProgressMonitor progress) {
+        return submit(new Callable<WorldMapGenerator>() {
+            @Override
+            public WorldMapGenerator call() {
+                world.zoomTo(zoomLevel, areaX, areaY);
+                return world;
+            }
+        }, progress);
+    }
+
+    /**
+     * Generates a world and colors it in the background; see
+     * {@link WorldMapView#generateAndShow(int, int, double, double, boolean)}. The view's color map and biome codes
+     * shouldn't be read until the Future is done.
+     * @param view a WorldMapView that shows {@link #world}
+     * @param seedA the first part of the seed to generate with
+     * @param seedB the second part of the seed to generate with
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; random if negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; random if negative
+     * @param progress a ProgressMonitor to hear how far generation has gotten, or null
+     * @return a Future that gives the view's color map once it has been filled
+     */
+    public Future<float[][]> generateAndShow(final WorldMapView view, final int seedA, final int seedB,
+                                             final double landMod, final double heatMod,
+                                             WorldMapGenerator.ProgressMonitor progress) {
+        if(view.getWorld() != world)
+            throw new IllegalArgumentException("The WorldMapView must show this AsyncWorldGenerator's world");
+        return submit(new Callable<float[][]>() {
+            @Override
+            public float[][] call() {
+                return view.generateAndShow(seedA, seedB, landMod, heatMod, true);
+            }
+        }, progress);
+    }
+
+    /**
+     * One request: runs its work with the world's monitor set to itself, so it can stop the work once its Future is
+     * cancelled, and passes progress on to the monitor it was given.
+     */
+    private final class Request<T> implements Callable<T>, WorldMapGenerator.ProgressMonitor {
+        final Callable<T> work;
+        final WorldMapGenerator.ProgressMonitor progress;
+        final FutureTask<T> future;
+
+        Request(Callable<T> work, WorldMapGenerator.ProgressMonitor progress) {
+            this.work = work;
+            this.progress = progress;
+            future = new FutureTask<>(this);
+        }
+
+        @Override
+        public T call() throws Exception {
+            synchronized (lock) {
+                // this may have been superseded while it waited for the last request to finish
+                if(future.isCancelled())
+                    return null;
+                final WorldMapGenerator.ProgressMonitor previous = world.getProgressMonitor();
+                world.setProgressMonitor(this);
+                try {
+                    return work.call();
+                } finally {
+                    world.setProgressMonitor(previous);
+                }
+            }
+        }
+
+        @Override
+        public boolean rowsFinished(WorldMapGenerator world, int phase, int rowsDone, int rows) {
+            return !future.isCancelled() && (progress == null || progress.rowsFinished(world, phase, rowsDone, rows));
+        }
+    }
+}
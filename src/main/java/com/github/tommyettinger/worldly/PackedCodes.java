@@ -0,0 +1,321 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.Serializable;
+
+/**
+ * A compact copy of the code layers of a world: its {@link WorldMapGenerator#heightCodeData} and the heat, moisture,
+ * and biome codes of a {@link WorldMapGenerator.BiomeMapper}, for keeping many worlds in memory at once. Height, heat,
+ * and moisture codes are small enough to pack two to a byte, and biome codes from 0 to 255 take one byte each, so a
+ * world's code layers use about a sixth of the memory of the {@code int[][]} arrays they come from (and avoid the
+ * per-column overhead of 2D arrays). Height code 1000, for cells outside a projection's shape, is kept too, and so is
+ * the 10000 that marks those cells in a world paused partway through generation, which is stored as 1000.
+ * <br>
+ * Biome codes are the ones {@link WorldMapGenerator.BiomeMapper#getBiomeCode(int, int)} returns, so for a
+ * {@link WorldMapGenerator.DetailedBiomeMapper} they are the most influential biome in each cell (from 0 to 60), not the
+ * full blended code in its biomeCodeData. If a mapper returns a biome code outside 0 to 255, biome codes are stored as
+ * ints instead, which still uses less memory than a 2D array.
+ * <br>
+ * Use {@link #pack(WorldMapGenerator, WorldMapGenerator.BiomeMapper)} to refresh a PackedCodes from a world of the same
+ * size without allocating, the getters to read single cells, and the unpack methods to get full int arrays back.
+ */
+public class PackedCodes implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * The nibble that stands for height code 1000.
+     */
+    private static final int SPACE = 15;
+
+    public final int width, height;
+    /**
+     * Two height codes per byte, with cell (x, y) at index {@code x * height + y} and the lower-indexed cell in the
+     * low four bits; 15 stands for 1000.
+     */
+    protected final byte[] heightCodes;
+    /**
+     * Heat and moisture codes, packed two per byte like {@link #heightCodes}; null if no biome mapper was given.
+     */
+    protected byte[] heatCodes, moistureCodes;
+    /**
+     * Biome codes, one per byte at index {@code x * height + y}; null if no biome mapper was given or if biome codes
+     * didn't fit in a byte, in which case {@link #wideBiomeCodes} is used.
+     */
+    protected byte[] biomeCodes;
+    /**
+     * Biome codes at index {@code x * height + y}, only used when some code was outside 0 to 255.
+     */
+    protected int[] wideBiomeCodes;
+    /**
+     * The biome name table of the mapper these codes came from, or null if there was none.
+     */
+    protected String[] biomeNameTable;
+
+    /**
+     * Makes an empty PackedCodes for worlds of the given size; every height code is 0 until something is packed.
+     * @param width the width of the worlds this will hold
+     * @param height the height of the worlds this will hold
+     */
+    public PackedCodes(int width, int height) {
+        this.width = width;
+        this.height = height;
+        heightCodes = new byte[width * height + 1 >> 1];
+    }
+
+    /**
+     * Packs the height codes of {@code world}, and the codes of {@code mapper} if it isn't null.
+     * @param world a WorldMapGenerator that has generated a map
+     * @param mapper a BiomeMapper that has mapped world's current map, or null to only pack height codes
+     */
+    public PackedCodes(WorldMapGenerator world, WorldMapGenerator.BiomeMapper mapper) {
+        this(world.width, world.height);
+        pack(world, mapper);
+    }
+
+    /**
+     * Copies {@code other}; nothing is shared but the biome name table.
+     * @param other a PackedCodes to copy
+     */
+    public PackedCodes(PackedCodes other) {
+        width = other.width;
+        height = other.height;
+        heightCodes = other.heightCodes.clone();
+        heatCodes = other.heatCodes == null ? null : other.heatCodes.clone();
+        moistureCodes = other.moistureCodes == null ? null : other.moistureCodes.clone();
+        biomeCodes = other.biomeCodes == null ? null : other.biomeCodes.clone();
+        wideBiomeCodes = other.wideBiomeCodes == null ? null : other.wideBiomeCodes.clone();
+        biomeNameTable = other.biomeNameTable;
+    }
+
+    /**
+     * Replaces the stored codes with the height codes of {@code world} and, if {@code mapper} isn't null, its heat,
+     * moisture, and biome codes. Storage is reused when it is already the right kind, so packing world after world of
+     * the same size doesn't allocate. A world paused between generation steps may still mark cells outside its shape
+     * with height code 10000; those are stored as 1000, like the finished world will have.
+     * @param world a WorldMapGenerator with the same width and height as this
+     * @param mapper a BiomeMapper that has mapped world's current map, or null to drop any stored biome codes
+     * @return this, for chaining
+     */
+    public PackedCodes pack(WorldMapGenerator world, WorldMapGenerator.BiomeMapper mapper) {
+        if(world.width != width || world.height != height)
+            throw new IllegalArgumentException("PackedCodes is " + width + "x" + height
+                    + ", but the WorldMapGenerator is " + world.width + "x" + world.height);
+        final int[][] data = world.heightCodeData;
+        int i = 0;
+        for (int x = 0; x < width; x++) {
+            final int[] column = data[x];
+            for (int y = 0; y < height; y++, i++) {
+                final int code = column[y];
+                putNibble(heightCodes, i, code == 1000 || code == 10000
+                        ? SPACE : checkNibble(code == SPACE ? -1 : code, "height"));
+            }
+        }
+        if(mapper == null) {
+            heatCodes = moistureCodes = biomeCodes = null;
+            wideBiomeCodes = null;
+            biomeNameTable = null;
+            return this;
+        }
+        if(heatCodes == null) {
+            heatCodes = new byte[heightCodes.length];
+            moistureCodes = new byte[heightCodes.length];
+        }
+        final int size = width * height;
+        if(biomeCodes == null && wideBiomeCodes == null)
+            biomeCodes = new byte[size];
+        i = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++, i++) {
+                putNibble(heatCodes, i, checkNibble(mapper.getHeatCode(x, y), "heat"));
+                putNibble(moistureCodes, i, checkNibble(mapper.getMoistureCode(x, y), "moisture"));
+                final int biome = mapper.getBiomeCode(x, y);
+                if(biomeCodes != null) {
+                    if((biome & 0xFFFFFF00) == 0) {
+                        biomeCodes[i] = (byte) biome;
+                        continue;
+                    }
+                    // this code doesn't fit in a byte, so switch to ints for this world
+                    wideBiomeCodes = new int[size];
+                    for (int j = 0; j < i; j++) {
+                        wideBiomeCodes[j] = biomeCodes[j] & 255;
+                    }
+                    biomeCodes = null;
+                }
+                wideBiomeCodes[i] = biome;
+            }
+        }
+        if(wideBiomeCodes != null && biomeCodes == null) {
+            // go back to bytes next time if every code this time fit
+            boolean narrow = true;
+            for (int j = 0; j < size && narrow; j++) {
+                narrow = (wideBiomeCodes[j] & 0xFFFFFF00) == 0;
+            }
+            if(narrow) {
+                biomeCodes = new byte[size];
+                for (int j = 0; j < size; j++) {
+                    biomeCodes[j] = (byte) wideBiomeCodes[j];
+                }
+                wideBiomeCodes = null;
+            }
+        }
+        biomeNameTable = mapper.getBiomeNameTable();
+        return this;
+    }
+
+    private static int checkNibble(int code, String layer) {
+        if((code & 0xFFFFFFF0) != 0)
+            throw new IllegalArgumentException("A " + layer + " code is too large to be packed");
+        return code;
+    }
+
+    private static void putNibble(byte[] bytes, int i, int value) {
+        final int shift = (i & 1) << 2;
+        bytes[i >> 1] = (byte) (bytes[i >> 1] & ~(15 << shift) | value << shift);
+    }
+
+    private static int getNibble(byte[] bytes, int i) {
+        return bytes[i >> 1] >>> ((i & 1) << 2) & 15;
+    }
+
+    /**
+     * @return true if heat, moisture, and biome codes are stored, or false if only height codes are
+     */
+    public boolean hasBiomes() {
+        return heatCodes != null;
+    }
+
+    /**
+     * Gets the height code at x, y, from 0 to 8, or 1000 for a cell outside the projection's shape.
+     * @param x the x-coordinate on the map
+     * @param y the y-coordinate on the map
+     * @return the height code, as in {@link WorldMapGenerator#heightCodeData}
+     */
+    public int getHeightCode(int x, int y) {
+        final int code = getNibble(heightCodes, x * height + y);
+        return code == SPACE ? 1000 : code;
+    }
+
+    /**
+     * Gets the heat code at x, y; {@link #hasBiomes()} must be true.
+     * @param x the x-coordinate on the map
+     * @param y the y-coordinate on the map
+     * @return the heat code, as from {@link WorldMapGenerator.BiomeMapper#getHeatCode(int, int)}
+     */
+    public int getHeatCode(int x, int y) {
+        return getNibble(heatCodes, x * height + y);
+    }
+
+    /**
+     * Gets the moisture code at x, y; {@link #hasBiomes()} must be true.
+     * @param x the x-coordinate on the map
+     * @param y the y-coordinate on the map
+     * @return the moisture code, as from {@link WorldMapGenerator.BiomeMapper#getMoistureCode(int, int)}
+     */
+    public int getMoistureCode(int x, int y) {
+        return getNibble(moistureCodes, x * height + y);
+    }
+
+    /**
+     * Gets the biome code at x, y; {@link #hasBiomes()} must be true.
+     * @param x the x-coordinate on the map
+     * @param y the y-coordinate on the map
+     * @return the biome code, as from {@link WorldMapGenerator.BiomeMapper#getBiomeCode(int, int)}
+     */
+    public int getBiomeCode(int x, int y) {
+        final int i = x * height + y;
+        return biomeCodes != null ? biomeCodes[i] & 255 : wideBiomeCodes[i];
+    }
+
+    /**
+     * Gets the biome name table of the mapper the codes came from, so {@code getBiomeNameTable()[getBiomeCode(x, y)]}
+     * names a biome.
+     * @return a direct reference to the mapper's biome name table, or null if no biome mapper was given
+     */
+    public String[] getBiomeNameTable() {
+        return biomeNameTable;
+    }
+
+    /**
+     * Gets how many bytes the packed codes take up, not counting object headers or the biome name table.
+     * @return the total length of the arrays holding codes, in bytes
+     */
+    public long packedBytes() {
+        long total = heightCodes.length;
+        if(heatCodes != null)
+            total += heatCodes.length + moistureCodes.length;
+        if(biomeCodes != null)
+            total += biomeCodes.length;
+        if(wideBiomeCodes != null)
+            total += (long) wideBiomeCodes.length << 2;
+        return total;
+    }
+
+    private int[][] prepare(int[][] into) {
+        if(into == null || into.length != width || into[0].length != height)
+            return new int[width][height];
+        return into;
+    }
+
+    /**
+     * Writes every height code into {@code into}, such as {@link WorldMapGenerator#heightCodeData} of a world that
+     * doesn't have its own.
+     * @param into a width by height array to fill, or null to make a new one
+     * @return into, or a new array if into was null or the wrong size
+     */
+    public int[][] unpackHeightCodes(int[][] into) {
+        into = prepare(into);
+        int i = 0, code;
+        for (int x = 0; x < width; x++) {
+            final int[] column = into[x];
+            for (int y = 0; y < height; y++, i++) {
+                code = getNibble(heightCodes, i);
+                column[y] = code == SPACE ? 1000 : code;
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Writes every heat code into {@code into}; {@link #hasBiomes()} must be true.
+     * @param into a width by height array to fill, or null to make a new one
+     * @return into, or a new array if into was null or the wrong size
+     */
+    public int[][] unpackHeatCodes(int[][] into) {
+        return unpackNibbles(heatCodes, prepare(into));
+    }
+
+    /**
+     * Writes every moisture code into {@code into}; {@link #hasBiomes()} must be true.
+     * @param into a width by height array to fill, or null to make a new one
+     * @return into, or a new array if into was null or the wrong size
+     */
+    public int[][] unpackMoistureCodes(int[][] into) {
+        return unpackNibbles(moistureCodes, prepare(into));
+    }
+
+    private int[][] unpackNibbles(byte[] bytes, int[][] into) {
+        int i = 0;
+        for (int x = 0; x < width; x++) {
+            final int[] column = into[x];
+            for (int y = 0; y < height; y++, i++) {
+                column[y] = getNibble(bytes, i);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Writes every biome code into {@code into}; {@link #hasBiomes()} must be true.
+     * @param into a width by height array to fill, or null to make a new one
+     * @return into, or a new array if into was null or the wrong size
+     */
+    public int[][] unpackBiomeCodes(int[][] into) {
+        into = prepare(into);
+        int i = 0;
+        for (int x = 0; x < width; x++) {
+            final int[] column = into[x];
+            for (int y = 0; y < height; y++, i++) {
+                column[y] = biomeCodes != null ? biomeCodes[i] & 255 : wideBiomeCodes[i];
+            }
+        }
+        return into;
+    }
+}
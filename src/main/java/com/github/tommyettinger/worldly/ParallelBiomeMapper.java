@@ -0,0 +1,200 @@
+package com.github.tommyettinger.worldly;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the biome mapping of a {@link WorldMapGenerator.RegionBiomeMapper}, such as
+ * {@link WorldMapGenerator.DetailedBiomeMapper} or {@link WorldMapGenerator.SimpleBiomeMapper}, on several threads
+ * using a {@link ForkJoinPool}. The area to map is split into blocks of whole lines, which are handed out to the pool
+ * until each block has at least {@link #minimumCellsPerTask} cells. When mapping into the mapper's own 2D arrays, the
+ * blocks are ranges of x, since each {@code int[]} in those arrays holds one x position; when mapping into flat,
+ * row-major arrays, the blocks are ranges of rows (y). Either way each task writes to contiguous memory that no other
+ * task touches. A sub-rectangle can be given to only remap the part of a world that changed.
+ * <br>
+ * The results are identical to calling {@link WorldMapGenerator.BiomeMapper#makeBiomes(WorldMapGenerator)} on one
+ * thread. The {@link WorldMapGenerator.GenerationListener#BIOMES} phase is reported once per call, from the calling
+ * thread. This class uses threads, so it isn't available on GWT.
+ */
+public class ParallelBiomeMapper {
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * Blocks of lines won't be split further if that would give a block fewer than this many cells; defaults to 8192.
+     * Smaller values spread work more evenly but spend more time on scheduling.
+     */
+    public int minimumCellsPerTask = 8192;
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    /**
+     * Gets a ForkJoinPool shared by every object in this library that was not given a pool, created the first time
+     * this is called with as many threads as there are available processors.
+     * @return a shared ForkJoinPool
+     */
+    public static ForkJoinPool sharedPool() {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * Uses {@link #sharedPool()}.
+     */
+    public ParallelBiomeMapper() {
+        this(sharedPool());
+    }
+
+    /**
+     * @param pool the ForkJoinPool to run on; if null, {@link #sharedPool()} will be used
+     */
+    public ParallelBiomeMapper(ForkJoinPool pool) {
+        this.pool = pool == null ? sharedPool() : pool;
+    }
+
+    /**
+     * Maps all of {@code world} into the 2D code arrays of {@code mapper}, the same as
+     * {@code mapper.makeBiomes(world)} but on several threads.
+     * @param mapper a RegionBiomeMapper, such as a {@link WorldMapGenerator.DetailedBiomeMapper}
+     * @param world a WorldMapGenerator that should have generated at least one map; it may be at any zoom
+     */
+    public void makeBiomes(WorldMapGenerator.RegionBiomeMapper mapper, WorldMapGenerator world) {
+        if(world == null)
+            return;
+        makeBiomes(mapper, world, 0, 0, world.width, world.height);
+    }
+
+    /**
+     * Maps the part of {@code world} with x from {@code startX} (inclusive) to {@code endX} (exclusive) and y from
+     * {@code startY} (inclusive) to {@code endY} (exclusive) into the 2D code arrays of {@code mapper}, on several
+     * threads. Cells outside that area keep their previous codes. The bounds are clamped to the world's size.
+     * @param mapper a RegionBiomeMapper, such as a {@link WorldMapGenerator.DetailedBiomeMapper}
+     * @param world a WorldMapGenerator that should have generated at least one map; it may be at any zoom
+     * @param startX the lowest x to map, inclusive
+     * @param startY the lowest y to map, inclusive
+     * @param endX the highest x to map, exclusive
+     * @param endY the highest y to map, exclusive
+     */
+    public void makeBiomes(WorldMapGenerator.RegionBiomeMapper mapper, WorldMapGenerator world,
+                           int startX, int startY, int endX, int endY) {
+        if(mapper == null || world == null || world.width <= 0 || world.height <= 0)
+            return;
+        startX = Math.max(startX, 0);
+        startY = Math.max(startY, 0);
+        endX = Math.min(endX, world.width);
+        endY = Math.min(endY, world.height);
+        if(startX >= endX || startY >= endY)
+            return;
+        mapper.prepareBiomes(world, true);
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.BIOMES);
+        pool.invoke(new ColumnTask(mapper, world, startX, startY, endX, endY,
+                Math.max(1, minimumCellsPerTask / (endY - startY))));
+        world.finishPhase(WorldMapGenerator.GenerationListener.BIOMES, phaseStart, (endX - startX) * (endY - startY), 0);
+    }
+
+    /**
+     * Maps the part of {@code world} with x from {@code startX} (inclusive) to {@code endX} (exclusive) and y from
+     * {@code startY} (inclusive) to {@code endY} (exclusive) into flat, row-major arrays, on several threads. The cell
+     * at x,y goes to index {@code y * world.width + x}. The mapper's own 2D code arrays are not touched, or even
+     * allocated. The bounds are clamped to the world's size.
+     * @param mapper a RegionBiomeMapper, such as a {@link WorldMapGenerator.DetailedBiomeMapper}
+     * @param world a WorldMapGenerator that should have generated at least one map; it may be at any zoom
+     * @param startX the lowest x to map, inclusive
+     * @param startY the lowest y to map, inclusive
+     * @param endX the highest x to map, exclusive
+     * @param endY the highest y to map, exclusive
+     * @param heatCodes receives heat codes; may be null to skip them
+     * @param moistureCodes receives moisture codes; may be null to skip them
+     * @param biomeCodes receives biome codes; must not be null
+     */
+    public void makeBiomes(WorldMapGenerator.RegionBiomeMapper mapper, WorldMapGenerator world,
+                           int startX, int startY, int endX, int endY,
+                           int[] heatCodes, int[] moistureCodes, int[] biomeCodes) {
+        if(mapper == null || world == null || world.width <= 0 || world.height <= 0)
+            return;
+        final int size = world.width * world.height;
+        if(biomeCodes == null || biomeCodes.length < size
+                || (heatCodes != null && heatCodes.length < size)
+                || (moistureCodes != null && moistureCodes.length < size))
+            throw new IllegalArgumentException("biomeCodes must be non-null, and each array given must have at least "
+                    + size + " elements");
+        startX = Math.max(startX, 0);
+        startY = Math.max(startY, 0);
+        endX = Math.min(endX, world.width);
+        endY = Math.min(endY, world.height);
+        if(startX >= endX || startY >= endY)
+            return;
+        mapper.prepareBiomes(world, false);
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.BIOMES);
+        pool.invoke(new RowTask(mapper, world, startX, startY, endX, endY,
+                Math.max(1, minimumCellsPerTask / (endX - startX)), heatCodes, moistureCodes, biomeCodes));
+        world.finishPhase(WorldMapGenerator.GenerationListener.BIOMES, phaseStart, (endX - startX) * (endY - startY), 0);
+    }
+
+    private static final class ColumnTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final WorldMapGenerator.RegionBiomeMapper mapper;
+        private final WorldMapGenerator world;
+        private final int startX, startY, endX, endY, lines;
+
+        ColumnTask(WorldMapGenerator.RegionBiomeMapper mapper, WorldMapGenerator world,
+                   int startX, int startY, int endX, int endY, int lines) {
+            this.mapper = mapper;
+            this.world = world;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.lines = lines;
+        }
+
+        @Override
+        protected void compute() {
+            if(endX - startX <= lines) {
+                mapper.mapRegion(world, startX, startY, endX, endY);
+                return;
+            }
+            final int mid = startX + endX >>> 1;
+            invokeAll(new ColumnTask(mapper, world, startX, startY, mid, endY, lines),
+                    new ColumnTask(mapper, world, mid, startY, endX, endY, lines));
+        }
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final WorldMapGenerator.RegionBiomeMapper mapper;
+        private final WorldMapGenerator world;
+        private final int startX, startY, endX, endY, lines;
+        private final int[] heatCodes, moistureCodes, biomeCodes;
+
+        RowTask(WorldMapGenerator.RegionBiomeMapper mapper, WorldMapGenerator world,
+                int startX, int startY, int endX, int endY, int lines,
+                int[] heatCodes, int[] moistureCodes, int[] biomeCodes) {
+            this.mapper = mapper;
+            this.world = world;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.lines = lines;
+            this.heatCodes = heatCodes;
+            this.moistureCodes = moistureCodes;
+            this.biomeCodes = biomeCodes;
+        }
+
+        @Override
+        protected void compute() {
+            if(endY - startY <= lines) {
+                mapper.mapRegion(world, startX, startY, endX, endY, heatCodes, moistureCodes, biomeCodes);
+                return;
+            }
+            final int mid = startY + endY >>> 1;
+            invokeAll(new RowTask(mapper, world, startX, startY, endX, mid, lines, heatCodes, moistureCodes, biomeCodes),
+                    new RowTask(mapper, world, startX, mid, endX, endY, lines, heatCodes, moistureCodes, biomeCodes));
+        }
+    }
+}
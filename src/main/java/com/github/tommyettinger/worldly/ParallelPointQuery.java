@@ -0,0 +1,142 @@
+package com.github.tommyettinger.worldly;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers batches of point queries about a {@link WorldMapGenerator.SphereMap} on several threads using a
+ * {@link ForkJoinPool}, for cases like finding the biome under each of hundreds of thousands of agents every tick. The
+ * range of points is split in halves until each piece has at most {@link #minimumPointsPerTask} points, and each piece
+ * is answered by {@link WorldMapGenerator.SphereMap.PointSampler#query(double[], double[], double[], int, int,
+ * WorldMapGenerator.PointBatch)} (or the latitude/longitude version) on a PointSampler that only that thread is using
+ * at the time. PointSamplers are copied from the one this was given as threads need them, and kept for later batches.
+ * <br>
+ * The results are identical to a single PointSampler's. Like a PointSampler, this answers for the world as it was when
+ * the first sampler was made; make a new ParallelPointQuery after generating another seed. This class uses threads,
+ * so it isn't available on GWT.
+ */
+public class ParallelPointQuery {
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * The PointSampler all the others are copied from; it answers batches too small to split on the thread that
+     * calls query(), so only one thread should call query() at a time.
+     */
+    public final WorldMapGenerator.SphereMap.PointSampler sampler;
+    /**
+     * Ranges of points won't be split further if that would give a range fewer than this many points; defaults to
+     * 1024. Smaller values spread work more evenly but spend more time on scheduling.
+     */
+    public int minimumPointsPerTask = 1024;
+    /**
+     * PointSamplers that no task is using right now.
+     */
+    private final ConcurrentLinkedQueue<WorldMapGenerator.SphereMap.PointSampler> idle =
+            new ConcurrentLinkedQueue<WorldMapGenerator.SphereMap.PointSampler>();
+
+    /**
+     * Uses {@link ParallelBiomeMapper#sharedPool()} and a new sampler for {@code world} as it is now.
+     * @param world a SphereMap; if it hasn't generated a map for its seed yet, it will generate one
+     */
+    public ParallelPointQuery(WorldMapGenerator.SphereMap world) {
+        this(world.sampler(), null);
+    }
+
+    /**
+     * @param sampler the PointSampler to copy for each thread
+     * @param pool the ForkJoinPool to run on; if null, {@link ParallelBiomeMapper#sharedPool()} will be used
+     */
+    public ParallelPointQuery(WorldMapGenerator.SphereMap.PointSampler sampler, ForkJoinPool pool) {
+        this.sampler = sampler;
+        this.pool = pool == null ? ParallelBiomeMapper.sharedPool() : pool;
+    }
+
+    /**
+     * Finds every point from index {@code start} (inclusive) to {@code end} (exclusive) of the given latitudes and
+     * longitudes, storing results at the same indices of {@code out}; see
+     * {@link WorldMapGenerator.SphereMap.PointSampler#query(double[], double[], int, int, WorldMapGenerator.PointBatch)}.
+     * @param latitudes latitudes in radians
+     * @param longitudes longitudes in radians, east of the map's left edge
+     * @param start the first index to query
+     * @param end the index after the last one to query
+     * @param out where results go; must have a capacity of at least end
+     */
+    public void query(double[] latitudes, double[] longitudes, int start, int end, WorldMapGenerator.PointBatch out) {
+        run(new QueryTask(this, latitudes, longitudes, null, start, end, out));
+    }
+
+    /**
+     * Finds every point from index {@code start} (inclusive) to {@code end} (exclusive) of the given unit-sphere
+     * coordinates, storing results at the same indices of {@code out}; see
+     * {@link WorldMapGenerator.SphereMap.PointSampler#query(double[], double[], double[], int, int,
+     * WorldMapGenerator.PointBatch)}.
+     * @param xs x-coordinates of points on the unit sphere
+     * @param ys y-coordinates of points on the unit sphere
+     * @param zs z-coordinates of points on the unit sphere, -1 at the top edge of the map
+     * @param start the first index to query
+     * @param end the index after the last one to query
+     * @param out where results go; must have a capacity of at least end
+     */
+    public void query(double[] xs, double[] ys, double[] zs, int start, int end, WorldMapGenerator.PointBatch out) {
+        run(new QueryTask(this, xs, ys, zs, start, end, out));
+    }
+
+    private void run(QueryTask task) {
+        if(task.end - task.start <= minimumPointsPerTask)
+            task.answer(sampler);
+        else
+            pool.invoke(task);
+    }
+
+    /**
+     * Answers a range of points, splitting it in halves while it is larger than minimumPointsPerTask. If {@code c} is
+     * null, {@code a} and {@code b} are latitudes and longitudes; otherwise, a, b, and c are unit-sphere coordinates.
+     */
+    private static final class QueryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelPointQuery query;
+        private final double[] a, b, c;
+        private final int start, end;
+        private final WorldMapGenerator.PointBatch out;
+
+        QueryTask(ParallelPointQuery query, double[] a, double[] b, double[] c, int start, int end,
+                  WorldMapGenerator.PointBatch out) {
+            this.query = query;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.start = start;
+            this.end = end;
+            this.out = out;
+        }
+
+        void answer(WorldMapGenerator.SphereMap.PointSampler sampler) {
+            if(c == null)
+                sampler.query(a, b, start, end, out);
+            else
+                sampler.query(a, b, c, start, end, out);
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start <= query.minimumPointsPerTask) {
+                WorldMapGenerator.SphereMap.PointSampler sampler = query.idle.poll();
+                if(sampler == null)
+                    sampler = new WorldMapGenerator.SphereMap.PointSampler(query.sampler);
+                try {
+                    answer(sampler);
+                } finally {
+                    query.idle.offer(sampler);
+                }
+                return;
+            }
+            final int mid = start + end >>> 1;
+            invokeAll(new QueryTask(query, a, b, c, start, mid, out),
+                    new QueryTask(query, a, b, c, mid, end, out));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.tommyettinger.worldly;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link WorldMapView} that maps biomes and colors on several threads using a {@link ForkJoinPool}. Biome mapping in
+ * {@link #generate(int, int, double, double)} goes through a {@link ParallelBiomeMapper}, and {@link #show()},
+ * {@link #show(ByteBuffer)}, {@link #show(IntBuffer)}, and {@link #showIndexed(byte[], boolean)} split the map into
+ * blocks of lines that are handed out to the pool until each block has at least {@link #minimumCellsPerTask} cells.
+ * The float color map is split into ranges of x, since each {@code float[]} in it holds one x position, while buffers
+ * and index arrays are split into ranges of rows, so each task writes to memory no other task touches.
+ * <br>
+ * The results are identical to a WorldMapView's, and listeners are told about the same phases, from the calling
+ * thread. This class uses threads, so it isn't available on GWT.
+ */
+public class ParallelWorldMapView extends WorldMapView {
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * Maps biomes for {@link #generate(int, int, double, double)} using the same pool.
+     */
+    public final ParallelBiomeMapper parallelBiomeMapper;
+    /**
+     * Blocks of lines won't be split further if that would give a block fewer than this many cells; defaults to 8192.
+     * Smaller values spread work more evenly but spend more time on scheduling.
+     */
+    public int minimumCellsPerTask = 8192;
+
+    /**
+     * Uses {@link ParallelBiomeMapper#sharedPool()}.
+     * @param worldMapGenerator the world to show; if null, a default {@link WorldMapGenerator.LocalMap} will be used
+     */
+    public ParallelWorldMapView(WorldMapGenerator worldMapGenerator) {
+        this(worldMapGenerator, null);
+    }
+
+    /**
+     * @param worldMapGenerator the world to show; if null, a default {@link WorldMapGenerator.LocalMap} will be used
+     * @param pool the ForkJoinPool to run on; if null, {@link ParallelBiomeMapper#sharedPool()} will be used
+     */
+    public ParallelWorldMapView(WorldMapGenerator worldMapGenerator, ForkJoinPool pool) {
+        super(worldMapGenerator);
+        this.pool = pool == null ? ParallelBiomeMapper.sharedPool() : pool;
+        parallelBiomeMapper = new ParallelBiomeMapper(this.pool);
+    }
+
+    /**
+     * Shows a {@link WorldMapGenerator.LocalMap} with the given seed and size, using
+     * {@link ParallelBiomeMapper#sharedPool()}.
+     * @param seed the seed for the LocalMap
+     * @param width the width of the map, in cells
+     * @param height the height of the map, in cells
+     */
+    public ParallelWorldMapView(long seed, int width, int height) {
+        this(new WorldMapGenerator.LocalMap(seed, width, height), null);
+    }
+
+    /**
+     * Copies {@code other} as {@link WorldMapView#WorldMapView(WorldMapView)} does, sharing its pool.
+     * @param other a ParallelWorldMapView to copy; its world must support {@link WorldMapGenerator#copy()}
+     */
+    public ParallelWorldMapView(ParallelWorldMapView other) {
+        super(other);
+        pool = other.pool;
+        parallelBiomeMapper = new ParallelBiomeMapper(pool);
+        minimumCellsPerTask = other.minimumCellsPerTask;
+    }
+
+    @Override
+    public ParallelWorldMapView copy() {
+        return new ParallelWorldMapView(this);
+    }
+
+    @Override
+    public void generate(int seedA, int seedB, double landMod, double heatMod) {
+        long seed = (long) seedB << 32 | (seedA & 0xFFFFFFFFL);
+        world.generate(landMod, heatMod, seed);
+        parallelBiomeMapper.minimumCellsPerTask = minimumCellsPerTask;
+        parallelBiomeMapper.makeBiomes(biomeMapper, world);
+    }
+
+    @Override
+    protected void fillColors() {
+        pool.invoke(new ShowTask(this, 0, width, Math.max(1, minimumCellsPerTask / Math.max(1, height)),
+                null, null, null, 0, false));
+    }
+
+    @Override
+    protected void fillPixels(ByteBuffer pixels, int start, boolean swap) {
+        pool.invoke(new ShowTask(this, 0, height, Math.max(1, minimumCellsPerTask / Math.max(1, width)),
+                pixels, null, null, start, swap));
+    }
+
+    @Override
+    protected void fillPixels(IntBuffer pixels, int start, boolean swap) {
+        pool.invoke(new ShowTask(this, 0, height, Math.max(1, minimumCellsPerTask / Math.max(1, width)),
+                null, pixels, null, start, swap));
+    }
+
+    @Override
+    protected void fillIndices(byte[] indices, boolean dither) {
+        pool.invoke(new ShowTask(this, 0, height, Math.max(1, minimumCellsPerTask / Math.max(1, width)),
+                null, null, indices, 0, dither));
+    }
+
+    /**
+     * Colors a range of lines: ranges of x into the color map if no buffer or index array is given, or ranges of rows
+     * into whichever one is non-null. For index arrays, {@code swap} holds whether to dither.
+     */
+    private static final class ShowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelWorldMapView view;
+        private final int startLine, endLine, lines, start;
+        private final ByteBuffer bytes;
+        private final IntBuffer ints;
+        private final byte[] indices;
+        private final boolean swap;
+
+        ShowTask(ParallelWorldMapView view, int startLine, int endLine, int lines,
+                 ByteBuffer bytes, IntBuffer ints, byte[] indices, int start, boolean swap) {
+            this.view = view;
+            this.startLine = startLine;
+            this.endLine = endLine;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.ints = ints;
+            this.indices = indices;
+            this.start = start;
+            this.swap = swap;
+        }
+
+        @Override
+        protected void compute() {
+            if(endLine - startLine <= lines) {
+                if(bytes != null)
+                    view.showRows(bytes, start, swap, startLine, endLine);
+                else if(ints != null)
+                    view.showRows(ints, start, swap, startLine, endLine);
+                else if(indices != null)
+                    view.showIndexedRows(indices, swap, startLine, endLine);
+                else
+                    view.showRegion(startLine, 0, endLine, view.height);
+                return;
+            }
+            final int mid = startLine + endLine >>> 1;
+            invokeAll(new ShowTask(view, startLine, mid, lines, bytes, ints, indices, start, swap),
+                    new ShowTask(view, mid, endLine, lines, bytes, ints, indices, start, swap));
+        }
+    }
+}
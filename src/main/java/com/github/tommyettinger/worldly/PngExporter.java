@@ -0,0 +1,387 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes what a {@link WorldMapView} shows straight to a PNG file, without needing a window, a GL context, a
+ * {@link com.badlogic.gdx.graphics.Pixmap}, or even a running libGDX application, so it works in batch jobs on servers
+ * with no GPU. Maps can be written as full RGBA (with transparent empty space), or as indexed color using the palette
+ * from {@link WorldMapView#getPalette()}, which is usually much smaller.
+ * <br>
+ * The image is split into chunks of whole rows, and each chunk is colored, filtered, and compressed on its own task in
+ * a {@link ForkJoinPool}, the same way pigz splits up gzip: every chunk becomes its own run of deflate blocks, primed
+ * with the last 32KB of the chunk before it so compression barely suffers, and the pieces are joined into one valid
+ * zlib stream, with the Adler-32 checksums of the chunks combined at the end. The map's biomes must already be mapped,
+ * as they would be for {@link WorldMapView#show()}; the view's float color map isn't used or changed.
+ * <br>
+ * This class uses threads and {@link java.util.zip}, so it isn't available on GWT.
+ */
+public class PngExporter {
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * How many bytes of filtered image data go into each chunk that is compressed on its own, rounded to whole rows;
+     * defaults to 131072, the same block size pigz uses. Smaller chunks spread work more evenly but compress slightly
+     * worse.
+     */
+    public int chunkBytes = 131072;
+    /**
+     * The deflate compression level, from 0 (none) to 9 (best); defaults to 6.
+     */
+    public int compression = 6;
+
+    static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    static final int IHDR = 0x49484452, PLTE = 0x504C5445, TRNS = 0x74524E53, IDAT = 0x49444154,
+            IEND = 0x49454E44;
+    private static final int WINDOW = 32768;
+
+    /**
+     * Uses {@link ParallelBiomeMapper#sharedPool()}.
+     */
+    public PngExporter() {
+        this(null);
+    }
+
+    /**
+     * @param pool the ForkJoinPool to run on; if null, {@link ParallelBiomeMapper#sharedPool()} will be used
+     */
+    public PngExporter(ForkJoinPool pool) {
+        this.pool = pool == null ? ParallelBiomeMapper.sharedPool() : pool;
+    }
+
+    /**
+     * Writes the map {@code view} shows to {@code file} as an 8-bit RGBA PNG.
+     * @param view a WorldMapView whose biomes have been mapped
+     * @param file the file to write; will be overwritten
+     * @throws IOException if the file can't be written
+     */
+    public void write(WorldMapView view, File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+        try {
+            write(view, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the map {@code view} shows to {@code output} as an 8-bit RGBA PNG, with each pixel the same as
+     * {@link WorldMapView#show(ByteBuffer)} would give. The stream is flushed but not closed.
+     * @param view a WorldMapView whose biomes have been mapped
+     * @param output the stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void write(WorldMapView view, OutputStream output) throws IOException {
+        writeImage(view, output, null);
+    }
+
+    /**
+     * Writes the map {@code view} shows to {@code file} as an indexed-color PNG.
+     * @param view a WorldMapView whose biomes have been mapped
+     * @param file the file to write; will be overwritten
+     * @param dither true to use the ordered dithering from {@link WorldMapView#showIndexed(byte[], boolean)}
+     * @throws IOException if the file can't be written
+     */
+    public void writeIndexed(WorldMapView view, File file, boolean dither) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+        try {
+            writeIndexed(view, out, dither);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the map {@code view} shows to {@code output} as an indexed-color PNG, using the palette from
+     * {@link WorldMapView#getPalette()} and the indices from {@link WorldMapView#showIndexed(byte[], boolean)}. Empty
+     * space is stored as fully transparent if {@link WorldMapView#emptyColor} is. The stream is flushed but not
+     * closed.
+     * @param view a WorldMapView whose biomes have been mapped
+     * @param output the stream to write to
+     * @param dither true to use ordered dithering
+     * @throws IOException if the stream can't be written to
+     */
+    public void writeIndexed(WorldMapView view, OutputStream output, boolean dither) throws IOException {
+        writeImage(view, output, view.showIndexed(null, dither));
+    }
+
+    private void writeImage(WorldMapView view, OutputStream output, byte[] indices) throws IOException {
+        final int width = view.getWidth(), height = view.getHeight();
+        final int rowBytes = (indices == null ? width << 2 : width) + 1;
+        final int rowsPerChunk = Math.max(1, chunkBytes / rowBytes);
+        final List<ChunkTask> tasks = new ArrayList<ChunkTask>(height / rowsPerChunk + 1);
+        for (int y = 0; y < height; y += rowsPerChunk) {
+            tasks.add(new ChunkTask(view, indices, y, Math.min(y + rowsPerChunk, height), compression));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+
+        final DataOutputStream out = new DataOutputStream(output);
+        final CRC32 crc = new CRC32();
+        out.write(SIGNATURE);
+
+        final byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = (byte) (indices == null ? 6 : 3);
+        writeChunk(out, crc, IHDR, header, 0, 13);
+
+        if(indices != null) {
+            final int[] palette = view.getPalette();
+            final byte[] rgb = new byte[palette.length * 3], alpha = new byte[palette.length];
+            int lastTranslucent = -1;
+            for (int i = 0; i < palette.length; i++) {
+                rgb[i * 3] = (byte) (palette[i] >>> 24);
+                rgb[i * 3 + 1] = (byte) (palette[i] >>> 16);
+                rgb[i * 3 + 2] = (byte) (palette[i] >>> 8);
+                alpha[i] = (byte) palette[i];
+                if(alpha[i] != -1)
+                    lastTranslucent = i;
+            }
+            writeChunk(out, crc, PLTE, rgb, 0, rgb.length);
+            if(lastTranslucent >= 0)
+                writeChunk(out, crc, TRNS, alpha, 0, lastTranslucent + 1);
+        }
+
+        // zlib header: deflate with a 32K window, default compression, no preset dictionary
+        writeChunk(out, crc, IDAT, new byte[]{0x78, (byte) 0x9C}, 0, 2);
+        long adler = 1L;
+        for (int i = 0, n = tasks.size(); i < n; i++) {
+            final ChunkTask task = tasks.get(i);
+            final byte[] data = task.getRawResult();
+            writeChunk(out, crc, IDAT, data, 0, task.compressedLength);
+            adler = combineAdler32(adler, task.adler, task.uncompressedLength);
+        }
+        final byte[] trailer = new byte[4];
+        putInt(trailer, 0, (int) adler);
+        writeChunk(out, crc, IDAT, trailer, 0, 4);
+        writeChunk(out, crc, IEND, trailer, 0, 0);
+        out.flush();
+    }
+
+    static void putInt(byte[] bytes, int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    static void writeChunk(DataOutputStream out, CRC32 crc, int type, byte[] data, int offset, int length)
+            throws IOException {
+        out.writeInt(length);
+        out.writeInt(type);
+        out.write(data, offset, length);
+        crc.reset();
+        crc.update(type >>> 24);
+        crc.update(type >>> 16);
+        crc.update(type >>> 8);
+        crc.update(type);
+        crc.update(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Encodes a small RGBA8888 image, such as a tile, as a whole 8-bit RGBA PNG on the current thread. The image is
+     * {@code width} by {@code height} pixels, starting at {@code offset} in {@code pixels}, with the start of each row
+     * {@code stride} bytes after the one above it.
+     */
+    static byte[] encode(byte[] pixels, int offset, int stride, int width, int height, int level) {
+        final int length = width << 2;
+        final byte[] filtered = new byte[height * (length + 1)];
+        for (int y = 0, i = offset, o = 0; y < height; y++, i += stride, o += length + 1) {
+            paeth(pixels, i, y == 0 ? null : pixels, i - stride, filtered, o, length, 4);
+        }
+        final Deflater deflater = new Deflater(level);
+        byte[] compressed = new byte[filtered.length / 4 + 64];
+        int size = 0;
+        try {
+            deflater.setInput(filtered);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if(size == compressed.length) {
+                    final byte[] bigger = new byte[compressed.length << 1];
+                    System.arraycopy(compressed, 0, bigger, 0, size);
+                    compressed = bigger;
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+        } finally {
+            deflater.end();
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(size + 57);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final CRC32 crc = new CRC32();
+        final byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = 6;
+        try {
+            out.write(SIGNATURE);
+            writeChunk(out, crc, IHDR, header, 0, 13);
+            writeChunk(out, crc, IDAT, compressed, 0, size);
+            writeChunk(out, crc, IEND, header, 0, 0);
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Gets the Adler-32 checksum of two pieces of data joined together, given the checksum of each piece and the
+     * length of the second; this is the same math as zlib's {@code adler32_combine()}.
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        final long base = 65521L;
+        final long rem = length2 % base;
+        long sum1 = adler1 & 0xFFFFL;
+        long sum2 = rem * sum1 % base;
+        sum1 += (adler2 & 0xFFFFL) + base - 1L;
+        sum2 += (adler1 >>> 16 & 0xFFFFL) + (adler2 >>> 16 & 0xFFFFL) + base - rem;
+        if(sum1 >= base) sum1 -= base;
+        if(sum1 >= base) sum1 -= base;
+        if(sum2 >= base << 1) sum2 -= base << 1;
+        if(sum2 >= base) sum2 -= base;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Applies PNG filter type 4 (Paeth) to one row of {@code length} bytes starting at {@code currentIndex}, filtering
+     * it against the row at {@code previousIndex} (or against zeros if previous is null), and writes the filter type
+     * byte followed by the filtered row into {@code out} at {@code outIndex}.
+     */
+    static void paeth(byte[] current, int currentIndex, byte[] previous, int previousIndex,
+                              byte[] out, int outIndex, int length, int bpp) {
+        out[outIndex++] = 4;
+        int a, b, c, p, pa, pb, pc;
+        for (int i = 0; i < length; i++) {
+            a = i >= bpp ? current[currentIndex + i - bpp] & 0xFF : 0;
+            b = previous != null ? previous[previousIndex + i] & 0xFF : 0;
+            c = i >= bpp && previous != null ? previous[previousIndex + i - bpp] & 0xFF : 0;
+            p = a + b - c;
+            pa = Math.abs(p - a);
+            pb = Math.abs(p - b);
+            pc = Math.abs(p - c);
+            if(pa <= pb && pa <= pc)
+                p = a;
+            else if(pb <= pc)
+                p = b;
+            else
+                p = c;
+            out[outIndex + i] = (byte) (current[currentIndex + i] - p);
+        }
+    }
+
+    /**
+     * Colors, filters, and compresses the rows from startY to endY. The result is the compressed bytes (only the
+     * first {@link #compressedLength} are used), ending with a sync flush, or a final block for the last chunk.
+     */
+    private static final class ChunkTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final WorldMapView view;
+        private final byte[] indices;
+        private final int startY, endY, level;
+        int compressedLength, uncompressedLength;
+        long adler;
+
+        ChunkTask(WorldMapView view, byte[] indices, int startY, int endY, int level) {
+            this.view = view;
+            this.indices = indices;
+            this.startY = startY;
+            this.endY = endY;
+            this.level = level;
+        }
+
+        /**
+         * Produces the filtered bytes for rows from startY to endY, without compressing them.
+         */
+        private byte[] filterRows(int startY, int endY) {
+            final int width = view.getWidth();
+            final int firstY = Math.max(startY - 1, 0);
+            if(indices == null) {
+                final int length = width << 2;
+                // the row above startY is also needed, to filter startY against
+                final byte[] pixels = new byte[(endY - firstY) * length];
+                view.showRows(ByteBuffer.wrap(pixels), -firstY * length, true, firstY, endY);
+                final byte[] filtered = new byte[(endY - startY) * (length + 1)];
+                for (int y = startY, o = 0; y < endY; y++, o += length + 1) {
+                    paeth(pixels, (y - firstY) * length, y == 0 ? null : pixels, (y - 1 - firstY) * length,
+                            filtered, o, length, 4);
+                }
+                return filtered;
+            }
+            // palette indices compress best without filtering
+            final byte[] filtered = new byte[(endY - startY) * (width + 1)];
+            for (int y = startY, o = 0; y < endY; y++, o += width + 1) {
+                System.arraycopy(indices, y * width, filtered, o + 1, width);
+            }
+            return filtered;
+        }
+
+        @Override
+        protected byte[] compute() {
+            final byte[] filtered = filterRows(startY, endY);
+            uncompressedLength = filtered.length;
+            final Adler32 checksum = new Adler32();
+            checksum.update(filtered, 0, filtered.length);
+            adler = checksum.getValue();
+
+            final Deflater deflater = new Deflater(level, true);
+            try {
+                if(startY > 0) {
+                    // prime the window with the end of the previous chunk, like pigz does
+                    final int rowBytes = filtered.length / (endY - startY);
+                    final int rows = Math.min(startY, (WINDOW + rowBytes - 1) / rowBytes);
+                    final byte[] before = filterRows(startY - rows, startY);
+                    final int dictionaryLength = Math.min(WINDOW, before.length);
+                    deflater.setDictionary(before, before.length - dictionaryLength, dictionaryLength);
+                }
+                deflater.setInput(filtered);
+                final boolean last = endY == view.getHeight();
+                if(last)
+                    deflater.finish();
+                byte[] out = new byte[filtered.length / 2 + 64];
+                int length = 0;
+                while (true) {
+                    if(length == out.length) {
+                        final byte[] bigger = new byte[out.length << 1];
+                        System.arraycopy(out, 0, bigger, 0, length);
+                        out = bigger;
+                    }
+                    length += deflater.deflate(out, length, out.length - length,
+                            last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                    if(last ? deflater.finished() : length < out.length)
+                        break;
+                }
+                compressedLength = length;
+                return out;
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.tommyettinger.worldly;
+
+/**
+ * Generates a world coarse-to-fine, so a usable preview is ready almost right away. {@link #start(long)} evaluates
+ * noise only on every {@link #coarsestStride}th cell across and down (every 8th by default, so about 1 cell in 64),
+ * fills the other cells from the nearest of those, and runs the rest of generation on that, which takes a few percent
+ * of the time generating the whole map does. Each call to {@link #refine()} then halves the stride, evaluating noise
+ * only for the cells that no earlier level filled, and makes a sharper preview; at stride 1 the world is finished, and
+ * is exactly the same as if {@link WorldMapGenerator#generate(double, double, long)} had been called instead.
+ * <br>
+ * After start and after each refine, the world's layers hold a complete (if blocky) map, so a
+ * {@link WorldMapView#show()} or {@link WorldPublisher#publish()} can show it; heat and moisture ranges are only found
+ * from the cells filled so far until the last level. Refining one level per frame keeps a UI responsive, and doesn't
+ * use threads, so this works on GWT. Generating or zooming {@link #world} before this is done finishes the world all
+ * at once, and the refine after that returns true. Cells outside the shape of a projection (such as the corners of an
+ * {@link WorldMapGenerator.EllipticalMap}) are left out at every level, but cells at the edge of the shape may show
+ * nonsense in previews. A {@link WorldMapGenerator.ProgressMonitor} can cancel any level, which leaves nothing to
+ * refine, and makes the world forget the seed it was generating.
+ * <br>
+ * The projections in {@link WorldMapGenerator} can all be generated this way. Other subclasses work too, but unless
+ * their noise pass skips cells as {@link WorldMapGenerator#skipSample(int, int)} says, every level fills every cell.
+ */
+public class ProgressiveWorldGenerator {
+    /**
+     * The world being generated.
+     */
+    public final WorldMapGenerator world;
+    /**
+     * How far apart, in cells, the noise is evaluated for the first preview; should be a power of two, and is rounded
+     * down to one if not. 1 turns off previews. Defaults to 8.
+     */
+    public int coarsestStride = 8;
+    /**
+     * The generator whose noise pass is sampled; this is {@link #world}, or its stored map for a
+     * {@link WorldMapGenerator.RotatingSpaceMap}.
+     */
+    protected final WorldMapGenerator target;
+    /**
+     * The heat and moisture noise of every cell filled so far, before later passes change them; other cells hold what
+     * the target had before generation started.
+     */
+    protected final double[][] rawHeat, rawMoisture;
+    protected int stride;
+
+    /**
+     * Generates coarse-to-fine with {@code world}.
+     * @param world a WorldMapGenerator, usually one of the projections it contains
+     */
+    public ProgressiveWorldGenerator(WorldMapGenerator world) {
+        this.world = world;
+        // a RotatingSpaceMap gets all its noise from its stored map, and resamples that after each level
+        target = world instanceof WorldMapGenerator.RotatingSpaceMap
+                ? ((WorldMapGenerator.RotatingSpaceMap) world).storedMap : world;
+        rawHeat = new double[target.width][target.height];
+        rawMoisture = new double[target.width][target.height];
+    }
+
+    /**
+     * Starts generating a world with the given RNG state and random modifiers, and makes the first preview; see
+     * {@link #start(double, double, long)}.
+     * @param state the state to give the world's RNG
+     * @return true if the world is already finished, or false if {@link #refine()} should be called
+     */
+    public boolean start(long state) {
+        return start(-1.0, -1.0, state);
+    }
+
+    /**
+     * Starts generating a world like {@link WorldMapGenerator#generate(double, double, long)} and makes the first,
+     * coarsest preview. If there is no noise to sample, such as when a {@link WorldMapGenerator.RotatingSpaceMap} is
+     * given the seed it already has, or when {@link #coarsestStride} is 1, the world is finished right away instead.
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; random if negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; random if negative
+     * @param state the state to give the world's RNG
+     * @return true if the world is already finished, or false if {@link #refine()} should be called
+     */
+    public boolean start(double landMod, double heatMod, long state) {
+        stride = 0;
+        world.startGenerate(landMod, heatMod, state);
+        final int first = Integer.highestOneBit(Math.max(coarsestStride, 1));
+        if(world.stepPhase != WorldMapGenerator.GenerationListener.NOISE || first == 1) {
+            world.finishSteps();
+            stride = 1;
+            return true;
+        }
+        copyInto(target.heatData, rawHeat);
+        copyInto(target.moistureData, rawMoisture);
+        stride = first;
+        preview(0);
+        return false;
+    }
+
+    /**
+     * Halves the stride and fills the cells that are new to it, making a sharper preview, or at stride 1, finishing
+     * the world. Does nothing if the world is already finished.
+     * @return true if the world is finished, or false if more refinement is left
+     */
+    public boolean refine() {
+        if(stride <= 1)
+            return true;
+        if(world.isDone()) {
+            // something else generated or zoomed the world, which finished it
+            stride = 1;
+            return true;
+        }
+        final int coarser = stride;
+        stride >>= 1;
+        if(stride > 1) {
+            preview(coarser);
+            return false;
+        }
+        // the last level puts back the noise from earlier levels and runs the usual passes, filling only the cells
+        // left, so it matches generating all at once
+        final WorldMapGenerator.PassState pass = target.passState();
+        try {
+            world.ownLayers();
+            copyInto(rawHeat, target.heatData);
+            copyInto(rawMoisture, target.moistureData);
+            pass.sampleStride = 1;
+            pass.sampledStride = coarser;
+            world.finishSteps();
+        } catch (RuntimeException e) {
+            forget();
+            throw e;
+        } finally {
+            pass.sampleStride = pass.sampledStride = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Refines until the world is finished.
+     */
+    public void finish() {
+        while (!refine()) {
+        }
+    }
+
+    /**
+     * @return true if the world is finished or nothing was started, or false if {@link #refine()} has more to do
+     */
+    public boolean isDone() {
+        return stride <= 1;
+    }
+
+    /**
+     * Gets how far apart, in cells, the noise of the current preview was evaluated.
+     * @return the stride of the current preview, 1 if the world is finished, or 0 if nothing was started
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Fills the cells on the grid of {@link #stride} that no coarser level filled, fills every other cell from the
+     * nearest cell on that grid, and runs the rest of generation on the result.
+     * @param coarser the stride of the last level, or 0 if this is the first
+     */
+    protected void preview(int coarser) {
+        final int w = target.width, h = target.height, s = stride, mask = s - 1;
+        final double[][] heightData = target.heightData, heatData = target.heatData, moistureData = target.moistureData;
+        final int[][] heightCodeData = target.heightCodeData;
+        final WorldMapGenerator.PassState pass = target.passState();
+        try {
+            world.ownLayers();
+            // the last level's passes changed heat and moisture, so start from the noise again
+            copyInto(rawHeat, heatData);
+            copyInto(rawMoisture, moistureData);
+            pass.sampleStride = s;
+            pass.sampledStride = coarser;
+            world.passRows(WorldMapGenerator.GenerationListener.NOISE, 0, world.height);
+            pass.sampleStride = pass.sampledStride = 0;
+            copyInto(heatData, rawHeat);
+            copyInto(moistureData, rawMoisture);
+            for (int x = 0; x < w; x++) {
+                final int lx = x & -s;
+                for (int y = 0; y < h; y++) {
+                    // cells outside the projection were marked by the noise pass, and cells on the grid are filled
+                    if(((x | y) & mask) == 0 || heightCodeData[x][y] == 10000)
+                        continue;
+                    final int ly = y & -s;
+                    heightData[x][y] = heightData[lx][ly];
+                    heatData[x][y] = rawHeat[lx][ly];
+                    moistureData[x][y] = rawMoisture[lx][ly];
+                }
+            }
+            int phase = world.nextPass(WorldMapGenerator.GenerationListener.NOISE);
+            while (phase != WorldMapGenerator.GenerationListener.REGENERATE) {
+                world.passRows(phase, 0, world.height);
+                phase = world.nextPass(phase);
+            }
+            // cells outside the projection keep whatever heat and moisture they had, which the passes still change;
+            // putting those back means anything that finishes the world early sees them as if no preview happened
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    if(heightCodeData[x][y] == 1000) {
+                        heatData[x][y] = rawHeat[x][y];
+                        moistureData[x][y] = rawMoisture[x][y];
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            forget();
+            throw e;
+        } finally {
+            pass.sampleStride = pass.sampledStride = 0;
+        }
+    }
+
+    /**
+     * Stops after a level failed or was cancelled; the ranges found so far only cover some cells, so the next
+     * generation with this seed has to start over.
+     */
+    protected void forget() {
+        world.forgetState();
+        world.stepPhase = WorldMapGenerator.GenerationListener.REGENERATE;
+        stride = 0;
+    }
+
+    private static void copyInto(double[][] source, double[][] into) {
+        for (int x = 0; x < source.length; x++) {
+            System.arraycopy(source[x], 0, into[x], 0, source[x].length);
+        }
+    }
+}
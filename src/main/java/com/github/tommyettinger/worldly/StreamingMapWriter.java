@@ -0,0 +1,261 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a map far bigger than any WorldMapGenerator could hold at once, such as a 32768x16384 poster, as a PNG or as
+ * raw RGBA8888 rows, while only keeping one band of rows in memory. The map is made from tiles: the world of the given
+ * {@link WorldMapView} is generated (or zoomed) as usual to set its heat and moisture ranges, and then each tile is
+ * regenerated with {@link WorldMapGenerator#zoomTo(int, int, int)} at a higher zoom level, biome mapped, and colored
+ * into the current band. A zoom level of {@code z} makes an image {@code 1 << z} times as wide and tall as the world,
+ * out of {@code 1 << z} tiles across and down, each the size of the world. Each finished band is filtered and
+ * compressed (or written raw) row by row straight to the output, so memory use only depends on the world's size and
+ * the image width, never on the image height. For example, a 1024x512 world at zoom level 5 needs a band of 64MB to
+ * write a 32768x16384 image that would take 2GB as RGBA.
+ * <br>
+ * Progress can be followed by setting a {@link ProgressListener}, which is told after each band how many rows have
+ * been written and how many rows per second have been written so far. After writing, the world is left showing its
+ * whole area at zoom level 0. {@link WorldMapGenerator.RotatingSpaceMap} always shows a whole globe, so it can only
+ * be written at zoom level 0.
+ * <br>
+ * This class uses {@link java.util.zip} and {@link java.nio.channels}, so it isn't available on GWT.
+ */
+public class StreamingMapWriter {
+    /**
+     * Is told how far along a write is.
+     */
+    public interface ProgressListener {
+        /**
+         * Called each time a band of rows has been written.
+         * @param rowsWritten how many rows of the image have been written so far
+         * @param totalRows the height of the image
+         * @param rowsPerSecond how many rows per second have been written since the write began
+         */
+        void progress(int rowsWritten, int totalRows, double rowsPerSecond);
+    }
+
+    /**
+     * The WorldMapView whose world, biome mapper, and colors are used.
+     */
+    public final WorldMapView view;
+    /**
+     * The deflate compression level for PNG output, from 0 (none) to 9 (best); defaults to 6.
+     */
+    public int compression = 6;
+    /**
+     * Is told after each band has been written, if non-null.
+     */
+    public ProgressListener progressListener;
+
+    /**
+     * @param view a WorldMapView whose world has been generated; its world's size is the size of each tile
+     */
+    public StreamingMapWriter(WorldMapView view) {
+        this.view = view;
+    }
+
+    /**
+     * Writes the map as a PNG file {@code view.getWidth() << zoomLevel} pixels wide and
+     * {@code view.getHeight() << zoomLevel} pixels tall.
+     * @param zoomLevel how many times to double the size of the world's map
+     * @param file the file to write; will be overwritten
+     * @throws IOException if the file can't be written
+     */
+    public void writePng(int zoomLevel, File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+        try {
+            writePng(zoomLevel, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the map as an 8-bit RGBA PNG {@code view.getWidth() << zoomLevel} pixels wide and
+     * {@code view.getHeight() << zoomLevel} pixels tall. The stream is flushed but not closed.
+     * @param zoomLevel how many times to double the size of the world's map
+     * @param output the stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void writePng(int zoomLevel, OutputStream output) throws IOException {
+        check(zoomLevel);
+        final DataOutputStream out = new DataOutputStream(output);
+        final CRC32 crc = new CRC32();
+        final int width = view.getWidth() << zoomLevel, height = view.getHeight() << zoomLevel;
+        out.write(PngExporter.SIGNATURE);
+        final byte[] header = new byte[13];
+        PngExporter.putInt(header, 0, width);
+        PngExporter.putInt(header, 4, height);
+        header[8] = 8;
+        header[9] = 6;
+        PngExporter.writeChunk(out, crc, PngExporter.IHDR, header, 0, 13);
+
+        final IdatStream idat = new IdatStream(out, crc);
+        final Deflater deflater = new Deflater(compression);
+        try {
+            final DeflaterOutputStream deflating = new DeflaterOutputStream(idat, deflater, 65536);
+            final int length = width << 2;
+            final byte[] previous = new byte[length], filtered = new byte[length + 1];
+            stream(zoomLevel, new RowSink() {
+                @Override
+                void row(byte[] data, int offset, int rowIndex) throws IOException {
+                    PngExporter.paeth(data, offset, rowIndex == 0 ? null : previous, 0, filtered, 0, length, 4);
+                    System.arraycopy(data, offset, previous, 0, length);
+                    deflating.write(filtered, 0, length + 1);
+                }
+            });
+            deflating.finish();
+        } finally {
+            deflater.end();
+        }
+        idat.flushChunk();
+        PngExporter.writeChunk(out, crc, PngExporter.IEND, header, 0, 0);
+        out.flush();
+    }
+
+    /**
+     * Writes the map as raw RGBA8888 pixels, with no header: {@code view.getHeight() << zoomLevel} rows from top to
+     * bottom, each with {@code view.getWidth() << zoomLevel} pixels from left to right, each pixel 4 bytes in the
+     * order red, green, blue, alpha. This is useful for handing the map to other tools, or for writing into a
+     * {@link java.nio.channels.FileChannel}.
+     * @param zoomLevel how many times to double the size of the world's map
+     * @param channel the channel to write to; it isn't closed
+     * @throws IOException if the channel can't be written to
+     */
+    public void writeRaw(int zoomLevel, final WritableByteChannel channel) throws IOException {
+        check(zoomLevel);
+        final int length = view.getWidth() << zoomLevel << 2;
+        stream(zoomLevel, new RowSink() {
+            @Override
+            void row(byte[] data, int offset, int rowIndex) throws IOException {
+                final ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Writes the map as raw RGBA8888 pixels to a stream, the same as {@link #writeRaw(int, WritableByteChannel)}.
+     * The stream is flushed but not closed.
+     * @param zoomLevel how many times to double the size of the world's map
+     * @param output the stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void writeRaw(int zoomLevel, OutputStream output) throws IOException {
+        writeRaw(zoomLevel, Channels.newChannel(output));
+        output.flush();
+    }
+
+    private void check(int zoomLevel) {
+        final WorldMapGenerator world = view.getWorld();
+        final int width = world.width, height = world.height;
+        if(zoomLevel < 0 || zoomLevel > 30 || (width & (1 << zoomLevel) - 1) != 0 || (height & (1 << zoomLevel) - 1) != 0)
+            throw new IllegalArgumentException("The world's width and height must be divisible by 1 << zoomLevel");
+        if(zoomLevel > 0 && world instanceof WorldMapGenerator.RotatingSpaceMap)
+            throw new IllegalArgumentException("RotatingSpaceMap can only be written at zoom level 0");
+        if(((long) width << zoomLevel) * height * 4L > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("A band of " + (width << zoomLevel) + "x" + height
+                    + " pixels is too big; use a world with a smaller height");
+        if(view.getWidth() != width || view.getHeight() != height)
+            throw new IllegalArgumentException("The view must be the same size as its world");
+    }
+
+    /**
+     * Generates, biome maps, and colors the image one band of tiles at a time, passing each finished row to sink.
+     */
+    private void stream(int zoomLevel, RowSink sink) throws IOException {
+        final WorldMapGenerator world = view.getWorld();
+        final int width = world.width, height = world.height, tiles = 1 << zoomLevel,
+                areaWidth = width >> zoomLevel, areaHeight = height >> zoomLevel,
+                tileRow = width << 2, length = tileRow << zoomLevel, totalRows = height << zoomLevel;
+        final byte[] band = new byte[height * length], tile = new byte[height * tileRow];
+        final ByteBuffer tileBuffer = ByteBuffer.wrap(tile);
+        final long startTime = System.nanoTime();
+        try {
+            for (int j = 0; j < tiles; j++) {
+                for (int i = 0; i < tiles; i++) {
+                    world.zoomTo(zoomLevel, i * areaWidth, j * areaHeight);
+                    view.biomeMapper.makeBiomes(world);
+                    view.showRows(tileBuffer, 0, true, 0, height);
+                    for (int y = 0; y < height; y++) {
+                        System.arraycopy(tile, y * tileRow, band, y * length + i * tileRow, tileRow);
+                    }
+                }
+                for (int y = 0; y < height; y++) {
+                    sink.row(band, y * length, j * height + y);
+                }
+                if(progressListener != null) {
+                    final int rows = (j + 1) * height;
+                    progressListener.progress(rows, totalRows, rows * 1E9 / Math.max(1L, System.nanoTime() - startTime));
+                }
+            }
+        } finally {
+            world.zoomTo(0, 0, 0);
+        }
+    }
+
+    /**
+     * Receives each finished row of the image, in order.
+     */
+    private abstract static class RowSink {
+        /**
+         * @param data holds the row, as RGBA8888 bytes
+         * @param offset where the row starts in data
+         * @param rowIndex which row of the image this is, from 0 at the top
+         */
+        abstract void row(byte[] data, int offset, int rowIndex) throws IOException;
+    }
+
+    /**
+     * Collects compressed bytes into IDAT chunks of up to 64KB each.
+     */
+    private static final class IdatStream extends OutputStream {
+        private final DataOutputStream out;
+        private final CRC32 crc;
+        private final byte[] buffer = new byte[65536];
+        private int size;
+
+        IdatStream(DataOutputStream out, CRC32 crc) {
+            this.out = out;
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if(size == buffer.length)
+                flushChunk();
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if(size == buffer.length)
+                    flushChunk();
+                final int n = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        void flushChunk() throws IOException {
+            if(size > 0)
+                PngExporter.writeChunk(out, crc, PngExporter.IDAT, buffer, 0, size);
+            size = 0;
+        }
+    }
+}
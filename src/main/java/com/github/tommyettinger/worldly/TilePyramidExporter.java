@@ -0,0 +1,340 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every tile of a zoomable map, from the whole world down to a maximum zoom level, as the PNG tiles a slippy-map
+ * viewer such as Leaflet or OpenLayers loads, named {@code z/x/y.png} the way XYZ tile servers name them. Tiles can go
+ * into a directory tree or into one ZIP archive (stored, not compressed again, since PNGs already are), which is much
+ * easier to copy around than hundreds of thousands of small files. This works best with
+ * {@link WorldMapGenerator.SphereMap}, whose equirectangular projection has no empty space and wraps east to west, and
+ * with {@link WorldMapGenerator.LocalMap}; other projections work too, with transparent space around the world.
+ * <br>
+ * The world of the given {@link WorldMapView} is the top of the pyramid, and must already be generated. Its width and
+ * height must be multiples of {@link #tileSize}, so zoom level 0 is {@code width / tileSize} tiles across and
+ * {@code height / tileSize} tiles down (2 by 1 for a 512x256 SphereMap with 256-pixel tiles), and each zoom level has
+ * twice as many tiles across and down as the one above it. Work is split with a {@link ForkJoinPool}: each task covers
+ * one area the size of the world at some zoom level and forks the four areas inside it at the next level, so idle
+ * threads steal whole subtrees. Each thread borrows its own copy of the view, its biome mapper, and its world (see
+ * {@link WorldMapView#copy()}), which keeps the heat and moisture ranges of the whole world, so tiles line up with
+ * their neighbors and with the levels above and below them, and are drawn the same way the view draws.
+ * <br>
+ * If {@link #downsample} is true (the default), only the deepest zoom level is generated, and each tile above it is
+ * made by averaging 2x2 blocks of pixels from the four tiles below it, which is much faster and keeps every level
+ * consistent. If it is false, every level is generated at its own resolution, which is slower but keeps small details
+ * like rivers crisp at every level. The view's own world is never changed.
+ * <br>
+ * This class uses threads and {@link java.util.zip}, so it isn't available on GWT.
+ */
+public class TilePyramidExporter {
+    /**
+     * The WorldMapView whose world, colors, and size are used; it is copied for each thread, not changed.
+     */
+    public final WorldMapView view;
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * The width and height of each tile, in pixels; defaults to 256. The world's width and height must be multiples
+     * of this.
+     */
+    public int tileSize = 256;
+    /**
+     * The deflate compression level for each tile, from 0 (none) to 9 (best); defaults to 6.
+     */
+    public int compression = 6;
+    /**
+     * If true (the default), only the deepest zoom level is generated and the levels above it are made by shrinking
+     * it; if false, every level is generated.
+     */
+    public boolean downsample = true;
+
+    /**
+     * Uses {@link ParallelBiomeMapper#sharedPool()}.
+     * @param view a WorldMapView whose world has been generated
+     */
+    public TilePyramidExporter(WorldMapView view) {
+        this(view, null);
+    }
+
+    /**
+     * @param view a WorldMapView whose world has been generated
+     * @param pool the ForkJoinPool to run on; if null, {@link ParallelBiomeMapper#sharedPool()} will be used
+     */
+    public TilePyramidExporter(WorldMapView view, ForkJoinPool pool) {
+        this.view = view;
+        this.pool = pool == null ? ParallelBiomeMapper.sharedPool() : pool;
+    }
+
+    /**
+     * Gets how many tiles across a zoom level is.
+     * @param zoomLevel a zoom level, 0 or more
+     * @return the number of columns of tiles at that zoom level
+     */
+    public int tilesAcross(int zoomLevel) {
+        return view.getWidth() / tileSize << zoomLevel;
+    }
+
+    /**
+     * Gets how many tiles down a zoom level is.
+     * @param zoomLevel a zoom level, 0 or more
+     * @return the number of rows of tiles at that zoom level
+     */
+    public int tilesDown(int zoomLevel) {
+        return view.getHeight() / tileSize << zoomLevel;
+    }
+
+    /**
+     * Writes all tiles from zoom level 0 to maxZoom into {@code directory}, as {@code directory/z/x/y.png}, creating
+     * directories as needed.
+     * @param maxZoom the deepest zoom level to write; the world's width and height must be divisible by both
+     *                tileSize and {@code 1 << maxZoom}
+     * @param directory the directory to write into; existing tiles will be overwritten
+     * @throws IOException if a tile or directory can't be written
+     */
+    public void exportDirectory(int maxZoom, final File directory) throws IOException {
+        export(maxZoom, new TileSink() {
+            @Override
+            void tile(int z, int x, int y, byte[] png) throws IOException {
+                final File column = new File(directory, z + File.separator + x);
+                if(!column.mkdirs() && !column.isDirectory())
+                    throw new IOException("Could not create directory " + column);
+                final OutputStream out = new FileOutputStream(new File(column, y + ".png"));
+                try {
+                    out.write(png);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes all tiles from zoom level 0 to maxZoom into a ZIP archive at {@code file}, with entries named
+     * {@code z/x/y.png}.
+     * @param maxZoom the deepest zoom level to write; the world's width and height must be divisible by both
+     *                tileSize and {@code 1 << maxZoom}
+     * @param file the file to write; will be overwritten
+     * @throws IOException if the file can't be written
+     */
+    public void exportArchive(int maxZoom, File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+        try {
+            exportArchive(maxZoom, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes all tiles from zoom level 0 to maxZoom to {@code output} as a ZIP archive, with entries named
+     * {@code z/x/y.png} in the order they finish, which isn't any particular order. The archive is finished and the
+     * stream is flushed, but not closed.
+     * @param maxZoom the deepest zoom level to write; the world's width and height must be divisible by both
+     *                tileSize and {@code 1 << maxZoom}
+     * @param output the stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void exportArchive(int maxZoom, OutputStream output) throws IOException {
+        final ZipOutputStream zip = new ZipOutputStream(output);
+        final CRC32 crc = new CRC32();
+        export(maxZoom, new TileSink() {
+            @Override
+            synchronized void tile(int z, int x, int y, byte[] png) throws IOException {
+                final ZipEntry entry = new ZipEntry(z + "/" + x + "/" + y + ".png");
+                crc.reset();
+                crc.update(png, 0, png.length);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(png.length);
+                entry.setCompressedSize(png.length);
+                entry.setCrc(crc.getValue());
+                zip.putNextEntry(entry);
+                zip.write(png);
+                zip.closeEntry();
+            }
+        });
+        zip.finish();
+        output.flush();
+    }
+
+    private void export(int maxZoom, TileSink sink) throws IOException {
+        final WorldMapGenerator world = view.getWorld();
+        final int width = world.width, height = world.height;
+        if(tileSize <= 0 || width % tileSize != 0 || height % tileSize != 0)
+            throw new IllegalArgumentException("The world's width and height must be multiples of tileSize");
+        if(maxZoom < 0 || maxZoom > 30 || (width & (1 << maxZoom) - 1) != 0 || (height & (1 << maxZoom) - 1) != 0)
+            throw new IllegalArgumentException("The world's width and height must be divisible by 1 << maxZoom");
+        if(maxZoom > 0 && world instanceof WorldMapGenerator.RotatingSpaceMap)
+            throw new IllegalArgumentException("RotatingSpaceMap can only be exported at zoom level 0");
+        if(view.getWidth() != width || view.getHeight() != height)
+            throw new IllegalArgumentException("The view must be the same size as its world");
+        final Job job = new Job(view, sink, maxZoom, tileSize, compression, downsample);
+        try {
+            pool.invoke(new AreaTask(job, 0, 0, 0));
+        } catch (RuntimeException e) {
+            // the pool may wrap the exception a task threw, so look through the causes for an IOException
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if(t instanceof IOException)
+                    throw (IOException) t;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Averages each 2x2 block of pixels in the four areas below one area into that area's pixels. Colors are
+     * weighted by their alpha, so empty space around a world doesn't darken its edges.
+     */
+    private static void shrink(byte[][] children, byte[] area, int width, int height) {
+        final int halfWidth = width >> 1, halfHeight = height >> 1, stride = width << 2;
+        int i, a0, a1, a2, a3, sum;
+        for (int py = 0, o = 0; py < height; py++) {
+            for (int px = 0; px < width; px++, o += 4) {
+                final byte[] child = children[(py >= halfHeight ? 2 : 0) + (px >= halfWidth ? 1 : 0)];
+                i = ((py % halfHeight << 1) * width + (px % halfWidth << 1)) << 2;
+                a0 = child[i + 3] & 0xFF;
+                a1 = child[i + 7] & 0xFF;
+                a2 = child[i + stride + 3] & 0xFF;
+                a3 = child[i + stride + 7] & 0xFF;
+                sum = a0 + a1 + a2 + a3;
+                if(sum == 0) {
+                    area[o] = area[o + 1] = area[o + 2] = area[o + 3] = 0;
+                    continue;
+                }
+                for (int c = 0; c < 3; c++) {
+                    area[o + c] = (byte) (((child[i + c] & 0xFF) * a0 + (child[i + 4 + c] & 0xFF) * a1
+                            + (child[i + stride + c] & 0xFF) * a2 + (child[i + stride + 4 + c] & 0xFF) * a3
+                            + (sum >> 1)) / sum);
+                }
+                area[o + 3] = (byte) (sum + 2 >> 2);
+            }
+        }
+    }
+
+    /**
+     * Receives each finished tile, possibly from several threads at once.
+     */
+    private abstract static class TileSink {
+        abstract void tile(int z, int x, int y, byte[] png) throws IOException;
+    }
+
+    /**
+     * Everything the tasks of one export share, including the copies of the view that threads take turns using.
+     */
+    private static final class Job {
+        final WorldMapView view;
+        final TileSink sink;
+        final int maxZoom, tileSize, compression;
+        final boolean downsample;
+        final ConcurrentLinkedQueue<WorldMapView> copies = new ConcurrentLinkedQueue<WorldMapView>();
+
+        Job(WorldMapView view, TileSink sink, int maxZoom, int tileSize, int compression, boolean downsample) {
+            this.view = view;
+            this.sink = sink;
+            this.maxZoom = maxZoom;
+            this.tileSize = tileSize;
+            this.compression = compression;
+            this.downsample = downsample;
+        }
+
+        WorldMapView borrow() {
+            WorldMapView copy = copies.poll();
+            if(copy == null) {
+                copy = view.copy();
+                copy.getWorld().setListener(null);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Makes the pixels of one area the size of the world at one zoom level, writes the tiles inside it, and forks the
+     * areas inside it at the next zoom level. Returns the area's RGBA8888 pixels if they are needed to shrink into
+     * the area above it, or null otherwise.
+     */
+    private static final class AreaTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Job job;
+        private final int zoom, areaX, areaY;
+
+        AreaTask(Job job, int zoom, int areaX, int areaY) {
+            this.job = job;
+            this.zoom = zoom;
+            this.areaX = areaX;
+            this.areaY = areaY;
+        }
+
+        @Override
+        protected byte[] compute() {
+            final int width = job.view.getWidth(), height = job.view.getHeight();
+            final boolean leaf = zoom == job.maxZoom;
+            byte[] area = null;
+            if(leaf || !job.downsample)
+                area = generate(width, height);
+            if(!leaf) {
+                final AreaTask[] children = new AreaTask[4];
+                for (int i = 0; i < 4; i++) {
+                    children[i] = new AreaTask(job, zoom + 1, areaX << 1 | (i & 1), areaY << 1 | i >>> 1);
+                }
+                if(area != null)
+                    writeTiles(area, width, height);
+                invokeAll(children);
+                if(area == null) {
+                    final byte[][] pixels = new byte[4][];
+                    for (int i = 0; i < 4; i++) {
+                        pixels[i] = children[i].getRawResult();
+                    }
+                    area = new byte[width * height << 2];
+                    shrink(pixels, area, width, height);
+                    writeTiles(area, width, height);
+                    return zoom > 0 ? area : null;
+                }
+                return null;
+            }
+            writeTiles(area, width, height);
+            return job.downsample ? area : null;
+        }
+
+        private byte[] generate(int width, int height) {
+            final WorldMapView copy = job.borrow();
+            try {
+                final WorldMapGenerator world = copy.getWorld();
+                world.zoomTo(zoom, areaX * (width >> zoom), areaY * (height >> zoom));
+                copy.getBiomeMapper().makeBiomes(world);
+                final byte[] area = new byte[width * height << 2];
+                copy.showRows(ByteBuffer.wrap(area), 0, true, 0, height);
+                return area;
+            } finally {
+                job.copies.offer(copy);
+            }
+        }
+
+        private void writeTiles(byte[] area, int width, int height) {
+            final int size = job.tileSize, across = width / size, down = height / size, stride = width << 2;
+            try {
+                for (int v = 0; v < down; v++) {
+                    for (int u = 0; u < across; u++) {
+                        job.sink.tile(zoom, areaX * across + u, areaY * down + v,
+                                PngExporter.encode(area, (v * size * width + u * size) << 2, stride, size, size,
+                                        job.compression));
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Packs a generated world into a compact stream of bytes for sending over a network, and unpacks it on the other
+ * side, much more compactly than Java serialization of a WorldMapGenerator, which sends every {@code double[][]} in
+ * full. Height, heat, and moisture are quantized to 16-bit fixed point over the range each layer actually covers, and
+ * height codes, heat codes, moisture codes, and biome codes (from a {@link WorldMapGenerator.DetailedBiomeMapper}) are
+ * kept exactly. Each row of each layer is delta-filtered (each value is stored as its difference from a prediction
+ * made from its neighbors to the left and above, or just to the left for codes) and split into byte planes, so the
+ * many small differences in smooth layers leave long runs of zeros in the high bytes, and then blocks of
+ * {@link #rowsPerBlock} rows are deflated separately. Blocks are compressed and decompressed
+ * on a {@link ForkJoinPool}, so both directions use every core.
+ * <br>
+ * The accuracy contract is: codes come back exactly the same, and each height, heat, or moisture value comes back
+ * within half a quantization step of the original, where a step is the layer's range divided by 65535, as given by
+ * {@link #maxError(double, double)}. Since heat is normalized from 0 to {@link WorldMapGenerator#heatModifier} and
+ * moisture from 0 to about 1, that is an error of less than 0.00001 for both. NaN values come back as the low end of
+ * their layer's range. The world's heat, moisture, and height ranges and its modifiers are restored too, so a
+ * {@link WorldMapView} can show a decoded world as it is, but its seeds and internal noise ranges are not sent, so
+ * zooming or regenerating a decoded world starts over from its own seed.
+ * <br>
+ * The stream starts with a small header giving the size, the layers present, and the ranges; then each block follows
+ * as a length and its deflated bytes. This class uses threads and {@link java.util.zip}, so it isn't available on GWT.
+ */
+public class WorldCodec {
+    public static final int HEIGHT = 1, HEAT = 2, MOISTURE = 4, HEIGHT_CODE = 8, HEAT_CODE = 16, MOISTURE_CODE = 32,
+            BIOME_CODE = 64,
+    /**
+     * All layers: the height, heat, and moisture of the world, its height codes, and the heat, moisture, and biome
+     * codes of a DetailedBiomeMapper, if one is given.
+     */
+    ALL = 127;
+    private static final int MAGIC = 0x574C4451, VERSION = 1;
+
+    /**
+     * The pool that does the work; can be shared with other code.
+     */
+    public final ForkJoinPool pool;
+    /**
+     * Which layers {@link #encode(WorldMapGenerator, WorldMapGenerator.DetailedBiomeMapper, OutputStream)} writes,
+     * as a combination of {@link #HEIGHT}, {@link #HEAT}, and the other layer constants; defaults to {@link #ALL}.
+     * Heat, moisture, and biome codes are skipped when no biome mapper is given.
+     */
+    public int layers = ALL;
+    /**
+     * How many rows go in each block that is compressed on its own; defaults to 32. Smaller blocks spread work more
+     * evenly but compress slightly worse.
+     */
+    public int rowsPerBlock = 32;
+    /**
+     * The deflate compression level, from 0 (none) to 9 (best); defaults to 6.
+     */
+    public int compression = 6;
+
+    /**
+     * Uses {@link ParallelBiomeMapper#sharedPool()}.
+     */
+    public WorldCodec() {
+        this(null);
+    }
+
+    /**
+     * @param pool the ForkJoinPool to run on; if null, {@link ParallelBiomeMapper#sharedPool()} will be used
+     */
+    public WorldCodec(ForkJoinPool pool) {
+        this.pool = pool == null ? ParallelBiomeMapper.sharedPool() : pool;
+    }
+
+    /**
+     * Gets the most a quantized value can be off by, for a layer whose values go from {@code min} to {@code max}.
+     * @param min the lowest value in a layer
+     * @param max the highest value in a layer
+     * @return half of one quantization step
+     */
+    public static double maxError(double min, double max) {
+        return (max - min) / 131070.0;
+    }
+
+    /**
+     * Encodes {@code world} (and the codes in {@code mapper}, if it isn't null) to a new byte array.
+     * @param world a WorldMapGenerator that has generated a map
+     * @param mapper a DetailedBiomeMapper that has mapped world's current map, or null to leave out its codes
+     * @return the encoded world
+     */
+    public byte[] encode(WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            encode(world, mapper, bytes);
+        } catch (IOException e) {
+            // a ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes {@code world} (and the codes in {@code mapper}, if it isn't null) to {@code output}. The stream is
+     * flushed but not closed.
+     * @param world a WorldMapGenerator that has generated a map
+     * @param mapper a DetailedBiomeMapper that has mapped world's current map, or null to leave out its codes
+     * @param output the stream to write to
+     * @throws IOException if the stream can't be written to
+     */
+    public void encode(WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper, OutputStream output)
+            throws IOException {
+        int present = layers & ALL;
+        if(mapper == null || mapper.biomeCodeData == null)
+            present &= ~(HEAT_CODE | MOISTURE_CODE | BIOME_CODE);
+        final Layout layout = new Layout(world, mapper, present, Math.max(1, rowsPerBlock));
+        if((present & HEIGHT) != 0)
+            layout.range(0, world.heightData);
+        if((present & HEAT) != 0)
+            layout.range(1, world.heatData);
+        if((present & MOISTURE) != 0)
+            layout.range(2, world.moistureData);
+
+        final DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(world.width);
+        out.writeInt(world.height);
+        out.writeInt(present);
+        out.writeInt(layout.rowsPerBlock);
+        out.writeDouble(world.landModifier);
+        out.writeDouble(world.heatModifier);
+        out.writeDouble(world.minHeight);
+        out.writeDouble(world.maxHeight);
+        out.writeDouble(world.minHeightActual);
+        out.writeDouble(world.maxHeightActual);
+        out.writeDouble(world.minHeat);
+        out.writeDouble(world.maxHeat);
+        out.writeDouble(world.minWet);
+        out.writeDouble(world.maxWet);
+        for (int i = 0; i < 3; i++) {
+            if((present & 1 << i) != 0) {
+                out.writeDouble(layout.low[i]);
+                out.writeDouble(layout.high[i]);
+            }
+        }
+
+        final int blocks = (world.height + layout.rowsPerBlock - 1) / layout.rowsPerBlock;
+        final List<EncodeTask> tasks = new ArrayList<EncodeTask>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            tasks.add(new EncodeTask(layout, b, compression));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        for (int b = 0; b < blocks; b++) {
+            final EncodeTask task = tasks.get(b);
+            out.writeInt(task.length);
+            out.write(task.getRawResult(), 0, task.length);
+        }
+        out.flush();
+    }
+
+    /**
+     * Decodes a world from {@code data} into {@code world} and {@code mapper}; see
+     * {@link #decode(InputStream, WorldMapGenerator, WorldMapGenerator.DetailedBiomeMapper)}.
+     * @param data bytes made by {@link #encode(WorldMapGenerator, WorldMapGenerator.DetailedBiomeMapper)}
+     * @param world a WorldMapGenerator the same size as the encoded one, which will be overwritten
+     * @param mapper a DetailedBiomeMapper to fill with codes, or null to skip them
+     * @return which layers were decoded, as a combination of the layer constants
+     * @throws IOException if the data isn't a valid encoded world
+     */
+    public int decode(byte[] data, WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper)
+            throws IOException {
+        return decode(new ByteArrayInputStream(data), world, mapper);
+    }
+
+    /**
+     * Reads an encoded world from {@code input} into {@code world}, which must be the same size as the world that was
+     * encoded, and into {@code mapper}, whose code arrays are made or resized as needed. Layers that weren't encoded
+     * are left as they were. The stream is read up to the end of the encoded world and not closed.
+     * @param input a stream holding a world written by
+     *              {@link #encode(WorldMapGenerator, WorldMapGenerator.DetailedBiomeMapper, OutputStream)}
+     * @param world a WorldMapGenerator the same size as the encoded one, which will be overwritten
+     * @param mapper a DetailedBiomeMapper to fill with codes, or null to skip them
+     * @return which layers were decoded, as a combination of the layer constants
+     * @throws IOException if the stream can't be read or doesn't hold a valid encoded world
+     */
+    public int decode(InputStream input, WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper)
+            throws IOException {
+        final DataInputStream in = new DataInputStream(input);
+        if(in.readInt() != MAGIC)
+            throw new IOException("Not an encoded world");
+        final int version = in.readUnsignedByte();
+        if(version != VERSION)
+            throw new IOException("Unknown encoded world version " + version);
+        final int width = in.readInt(), height = in.readInt();
+        if(width != world.width || height != world.height)
+            throw new IllegalArgumentException("The encoded world is " + width + "x" + height
+                    + ", but the WorldMapGenerator is " + world.width + "x" + world.height);
+        int present = in.readInt();
+        final int rows = in.readInt();
+        if(rows <= 0 || (present & ~ALL) != 0)
+            throw new IOException("Invalid encoded world header");
+        world.ownLayers();
+        world.landModifier = in.readDouble();
+        world.heatModifier = in.readDouble();
+        world.minHeight = in.readDouble();
+        world.maxHeight = in.readDouble();
+        world.minHeightActual = in.readDouble();
+        world.maxHeightActual = in.readDouble();
+        world.minHeat = in.readDouble();
+        world.maxHeat = in.readDouble();
+        world.minWet = in.readDouble();
+        world.maxWet = in.readDouble();
+        final int stored = present;
+        if(mapper == null)
+            present &= ~(HEAT_CODE | MOISTURE_CODE | BIOME_CODE);
+        else if((present & (HEAT_CODE | MOISTURE_CODE | BIOME_CODE)) != 0)
+            mapper.prepareBiomes(world, true);
+        final Layout layout = new Layout(world, mapper, stored, rows);
+        for (int i = 0; i < 3; i++) {
+            if((stored & 1 << i) != 0) {
+                layout.low[i] = in.readDouble();
+                layout.high[i] = in.readDouble();
+            }
+        }
+        layout.skip = stored & ~present;
+
+        final int blocks = (height + rows - 1) / rows;
+        final List<DecodeTask> tasks = new ArrayList<DecodeTask>(blocks);
+        for (int b = 0; b < blocks; b++) {
+            final int length = in.readInt();
+            if(length < 0)
+                throw new IOException("Invalid block length " + length);
+            final byte[] compressed = new byte[length];
+            in.readFully(compressed);
+            tasks.add(new DecodeTask(layout, b, compressed));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        for (int b = 0; b < blocks; b++) {
+            if(tasks.get(b).error != null)
+                throw new IOException("Corrupt block " + b + " in encoded world", tasks.get(b).error);
+        }
+        return present;
+    }
+
+    /**
+     * Where each layer is and how it is stored; shared by the tasks for one encode or decode.
+     */
+    private static final class Layout {
+        final WorldMapGenerator world;
+        final WorldMapGenerator.DetailedBiomeMapper mapper;
+        final int present, rowsPerBlock, rowBytes;
+        final double[] low = new double[3], high = new double[3];
+        /**
+         * Layers that are in the stream but aren't wanted by the decoder.
+         */
+        int skip;
+
+        Layout(WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper, int present, int rowsPerBlock) {
+            this.world = world;
+            this.mapper = mapper;
+            this.present = present;
+            this.rowsPerBlock = rowsPerBlock;
+            int bytes = 0;
+            for (int i = 0; i < 3; i++) {
+                if((present & 1 << i) != 0)
+                    bytes += 2;
+            }
+            for (int i = 3; i < 6; i++) {
+                if((present & 1 << i) != 0)
+                    bytes++;
+            }
+            if((present & BIOME_CODE) != 0)
+                bytes += 6;
+            rowBytes = bytes * world.width;
+        }
+
+        void range(int layer, double[][] data) {
+            double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY, v;
+            for (int x = 0; x < data.length; x++) {
+                final double[] column = data[x];
+                for (int y = 0; y < column.length; y++) {
+                    v = column[y];
+                    if(v < lo) lo = v;
+                    if(v > hi) hi = v;
+                }
+            }
+            if(lo > hi) {
+                lo = 0.0;
+                hi = 0.0;
+            }
+            low[layer] = lo;
+            high[layer] = hi;
+        }
+
+        double[][] doubles(int layer) {
+            return layer == 0 ? world.heightData : layer == 1 ? world.heatData : world.moistureData;
+        }
+
+        int[][] codes(int layer) {
+            return layer == 3 ? world.heightCodeData : layer == 4 ? mapper.heatCodeData : mapper.moistureCodeData;
+        }
+
+        /**
+         * Predicts a quantized value from its neighbors to the left (a), above (b), and above-left (c), using the
+         * median edge detector from LOCO-I; this follows edges in either direction and stays in range.
+         */
+        static int predict(int a, int b, int c) {
+            if(c >= Math.max(a, b))
+                return Math.min(a, b);
+            if(c <= Math.min(a, b))
+                return Math.max(a, b);
+            return a + b - c;
+        }
+
+        /**
+         * Writes the delta-filtered planes of row y into raw, starting at offset. The quantized height, heat, and
+         * moisture values of the previous row in the block are in above, which is updated to hold row y; if first is
+         * true, row y is the first in its block and only values to the left are used for prediction.
+         */
+        void pack(int y, byte[] raw, int offset, int[][] above, boolean first) {
+            final int width = world.width;
+            int prev, q, d, up, upLeft;
+            for (int layer = 0; layer < 3; layer++) {
+                if((present & 1 << layer) == 0)
+                    continue;
+                final double[][] data = doubles(layer);
+                final int[] row = above[layer];
+                final double lo = low[layer], scale = high[layer] > lo ? 65535.0 / (high[layer] - lo) : 0.0;
+                prev = 0;
+                upLeft = 0;
+                for (int x = 0; x < width; x++) {
+                    q = (int) ((data[x][y] - lo) * scale + 0.5);
+                    q = q < 0 ? 0 : Math.min(q, 65535);
+                    up = row[x];
+                    d = q - (first ? prev : x == 0 ? up : predict(prev, up, upLeft));
+                    row[x] = prev = q;
+                    upLeft = up;
+                    raw[offset + x] = (byte) (d >>> 8);
+                    raw[offset + width + x] = (byte) d;
+                }
+                offset += width << 1;
+            }
+            for (int layer = 3; layer < 6; layer++) {
+                if((present & 1 << layer) == 0)
+                    continue;
+                final int[][] data = codes(layer);
+                prev = 0;
+                for (int x = 0; x < width; x++) {
+                    // heightCode uses 1000 for space, which becomes 255
+                    q = data[x][y];
+                    q = q == 1000 ? 255 : q & 255;
+                    raw[offset + x] = (byte) (q - prev);
+                    prev = q;
+                }
+                offset += width;
+            }
+            if((present & BIOME_CODE) != 0) {
+                final int[][] data = mapper.biomeCodeData;
+                for (int shift = 0; shift < 30; shift += 10) {
+                    prev = 0;
+                    final int mask = shift == 20 ? 4095 : 1023;
+                    for (int x = 0; x < width; x++) {
+                        q = data[x][y] >>> shift & mask;
+                        d = q - prev;
+                        prev = q;
+                        raw[offset + x] = (byte) (d >>> 8);
+                        raw[offset + width + x] = (byte) d;
+                    }
+                    offset += width << 1;
+                }
+            }
+        }
+
+        /**
+         * Reads the delta-filtered planes of row y from raw, starting at offset, into the wanted layers. The above and
+         * first parameters work as in {@link #pack(int, byte[], int, int[][], boolean)}; layers that aren't wanted are
+         * still followed in above, but aren't stored.
+         */
+        void unpack(int y, byte[] raw, int offset, int[][] above, boolean first) {
+            final int width = world.width;
+            int q, up, upLeft;
+            for (int layer = 0; layer < 3; layer++) {
+                if((present & 1 << layer) == 0)
+                    continue;
+                final boolean store = (skip & 1 << layer) == 0;
+                final double[][] data = doubles(layer);
+                final int[] row = above[layer];
+                final double lo = low[layer], step = (high[layer] - lo) / 65535.0;
+                q = 0;
+                upLeft = 0;
+                for (int x = 0; x < width; x++) {
+                    up = row[x];
+                    q = (first ? q : x == 0 ? up : predict(q, up, upLeft))
+                            + ((raw[offset + x] & 255) << 8 | raw[offset + width + x] & 255) & 0xFFFF;
+                    row[x] = q;
+                    upLeft = up;
+                    if(store)
+                        data[x][y] = lo + q * step;
+                }
+                offset += width << 1;
+            }
+            for (int layer = 3; layer < 6; layer++) {
+                if((present & 1 << layer) == 0)
+                    continue;
+                if((skip & 1 << layer) == 0) {
+                    final int[][] data = codes(layer);
+                    q = 0;
+                    for (int x = 0; x < width; x++) {
+                        q = q + raw[offset + x] & 255;
+                        data[x][y] = layer == 3 && q == 255 ? 1000 : q;
+                    }
+                }
+                offset += width;
+            }
+            if((present & BIOME_CODE) != 0 && (skip & BIOME_CODE) == 0) {
+                final int[][] data = mapper.biomeCodeData;
+                for (int x = 0; x < width; x++) {
+                    data[x][y] = 0;
+                }
+                for (int shift = 0; shift < 30; shift += 10) {
+                    q = 0;
+                    for (int x = 0; x < width; x++) {
+                        q = q + ((raw[offset + x] & 255) << 8 | raw[offset + width + x] & 255) & 0xFFFF;
+                        data[x][y] |= q << shift;
+                    }
+                    offset += width << 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs and deflates one block of rows; the result is the compressed bytes, of which the first {@link #length}
+     * are used.
+     */
+    private static final class EncodeTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Layout layout;
+        private final int block, level;
+        int length;
+
+        EncodeTask(Layout layout, int block, int level) {
+            this.layout = layout;
+            this.block = block;
+            this.level = level;
+        }
+
+        @Override
+        protected byte[] compute() {
+            final int startY = block * layout.rowsPerBlock,
+                    endY = Math.min(startY + layout.rowsPerBlock, layout.world.height);
+            final byte[] raw = new byte[(endY - startY) * layout.rowBytes];
+            final int[][] above = new int[3][layout.world.width];
+            for (int y = startY, o = 0; y < endY; y++, o += layout.rowBytes) {
+                layout.pack(y, raw, o, above, y == startY);
+            }
+            final Deflater deflater = new Deflater(level);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                byte[] out = new byte[raw.length / 4 + 64];
+                int size = 0;
+                while (!deflater.finished()) {
+                    if(size == out.length) {
+                        final byte[] bigger = new byte[out.length << 1];
+                        System.arraycopy(out, 0, bigger, 0, size);
+                        out = bigger;
+                    }
+                    size += deflater.deflate(out, size, out.length - size);
+                }
+                length = size;
+                return out;
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Inflates and unpacks one block of rows; any problem with the data is kept in {@link #error}.
+     */
+    private static final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Layout layout;
+        private final int block;
+        private final byte[] compressed;
+        Exception error;
+
+        DecodeTask(Layout layout, int block, byte[] compressed) {
+            this.layout = layout;
+            this.block = block;
+            this.compressed = compressed;
+        }
+
+        @Override
+        protected void compute() {
+            final int startY = block * layout.rowsPerBlock,
+                    endY = Math.min(startY + layout.rowsPerBlock, layout.world.height);
+            final byte[] raw = new byte[(endY - startY) * layout.rowBytes];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int size = 0;
+                while (!inflater.finished()) {
+                    if(size == raw.length) {
+                        // only the checksum should be left, so nothing more can come out
+                        if(inflater.inflate(new byte[1]) != 0)
+                            throw new DataFormatException("Block is too long");
+                    }
+                    else
+                        size += inflater.inflate(raw, size, raw.length - size);
+                    if(!inflater.finished() && (inflater.needsInput() || inflater.needsDictionary()))
+                        throw new DataFormatException("Block ended early");
+                }
+                if(size != raw.length)
+                    throw new DataFormatException("Block is too short");
+            } catch (DataFormatException e) {
+                error = e;
+                return;
+            } finally {
+                inflater.end();
+            }
+            final int[][] above = new int[3][layout.world.width];
+            for (int y = startY, o = 0; y < endY; y++, o += layout.rowBytes) {
+                layout.unpack(y, raw, o, above, y == startY);
+            }
+        }
+    }
+}
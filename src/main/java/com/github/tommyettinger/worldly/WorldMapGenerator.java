@@ -42,8 +42,59 @@ public abstract class WorldMapGenerator implements Serializable {
     protected double centerLongitude = 0.0;
 
     public int zoom = 0, startX = 0, startY = 0, usedWidth, usedHeight;
-    protected IntArray startCacheX = new IntArray(8), startCacheY = new IntArray(8);
+    // 32 entries covers every zoom level an int coordinate can reach, so zooming never has to grow these
+    protected IntArray startCacheX = new IntArray(32), startCacheY = new IntArray(32);
     protected int zoomStartX = 0, zoomStartY = 0;
+    /**
+     * Receives timing information for each phase of generation, or is null (the default) to skip measuring entirely.
+     * Not serialized.
+     */
+    protected transient GenerationListener listener;
+    /**
+     * True when the columns of this generator's layers may also belong to a copy of it or to the generator it was
+     * copied from, so they must be copied before anything writes to them; see {@link #ownLayers()}. Not serialized,
+     * since a deserialized generator always has its own layers.
+     */
+    protected transient boolean sharingLayers;
+    /**
+     * Counts noise calls made since the current {@link GenerationListener#REGENERATE} phase started; only updated while
+     * {@link #listener} is non-null.
+     */
+    protected transient int noiseCallCount;
+    /**
+     * Receives each row of the map as soon as the last generation pass finishes it, or is null (the default) to skip
+     * that. Not serialized.
+     */
+    protected transient RowVisitor rowVisitor;
+    /**
+     * Hears how far each generation pass has gotten and can cancel generation, or is null (the default) to skip that.
+     * Not serialized.
+     */
+    protected transient ProgressMonitor progressMonitor;
+    /**
+     * How many rows a generation pass finishes between reports to {@link #progressMonitor}; smaller blocks let
+     * cancellation take effect sooner, at the cost of more calls to the monitor. Defaults to 16.
+     */
+    public int progressRows = 16;
+    /**
+     * The phase constant in {@link GenerationListener} for the pass that {@link #step(long)} will continue, or
+     * {@link GenerationListener#REGENERATE} when no generation is waiting to be stepped through. Not serialized.
+     */
+    protected transient int stepPhase;
+    /**
+     * The next row {@link #step(long)} will run in the pass given by {@link #stepPhase}. Not serialized.
+     */
+    protected transient int stepRow;
+    /**
+     * What generation passes carry from one call to {@link #passRows(int, int, int)} to the next; see
+     * {@link PassState}. Made when first needed, by {@link #passState()}. Not serialized.
+     */
+    protected transient PassState passState;
+    /**
+     * How many calls to a Noise method the first pass of generation makes per cell it fills; used to report noise call
+     * counts to a {@link GenerationListener} without counting each call.
+     */
+    protected static final int NOISE_CALLS_PER_CELL = 6;
     protected static final double terrainFreq = 1.375, terrainRidgedFreq = 3.1 * 0.5, heatFreq = 2.1, moistureFreq = 2.125, otherFreq = 3.375;
 
     /**
@@ -52,14 +103,19 @@ public abstract class WorldMapGenerator implements Serializable {
      * <br>
      * Even though this is a Noise and so technically can be edited, that seems to have issues when there's more
      * than one WorldMapGenerator that uses this field. So you can feel free to use this as a Noise or Noise when
-     * generators need one, but don't change it too much, if at all.
+     * generators need one, but don't change it too much, if at all. The projections here build their own Noise
+     * objects from a {@link NoiseConfiguration} instead of reading this, so to share noise settings between generators
+     * (especially ones on different threads), share an immutable NoiseConfiguration rather than a Noise.
      */
     public static final Noise DEFAULT_NOISE = new Noise(0x1337CAFE, 1f, Noise.SIMPLEX_FRACTAL, 1);
 
     /**
      * Used to implement most of the copy constructor for subclasses; this cannot copy Noise implementations and leaves
-     * that up to the subclass, but will copy all non-static fields defined in WorldMapGenerator from other.
-     * @param other a WorldMapGenerator (subclass) to copy fields from
+     * that up to the subclass, but will copy all non-static fields defined in WorldMapGenerator from other. The layers
+     * share their columns with other's until one of the two writes to them, so this calls {@link #shareLayers()} on
+     * other as well as this; other's next generation pays for one copy of its layers even if this copy is gone by then.
+     * See {@link #ownLayers()}.
+     * @param other a WorldMapGenerator (subclass) to copy fields from; marked as sharing its layers
      */
     protected WorldMapGenerator(WorldMapGenerator other) {
         width = other.width;
@@ -89,10 +145,298 @@ public abstract class WorldMapGenerator implements Serializable {
         cacheA = other.cacheA;
         cacheB = other.cacheB;
         rng = other.rng.copy();
-        heightData = copy(other.heightData);
-        heatData = copy(other.heatData);
-        moistureData = copy(other.moistureData);
-        heightCodeData = copy(other.heightCodeData);
+        // the columns of each layer are shared until this or other writes to them; see ownLayers()
+        heightData = other.heightData.clone();
+        heatData = other.heatData.clone();
+        moistureData = other.moistureData.clone();
+        heightCodeData = other.heightCodeData.clone();
+        other.shareLayers();
+        sharingLayers = true;
+        listener = other.listener;
+    }
+
+    /**
+     * Makes a new WorldMapGenerator of the same class that is exactly the same as this one, using the copy constructor
+     * of that class. The copy has its own Noise objects and shares the columns of this one's layers only until either
+     * generator writes to them, so it is cheap to make and can be zoomed or regenerated on another thread without
+     * affecting this one; since it also keeps the heat and moisture ranges of this world, the areas it zooms to will
+     * match what this world would show. This generator's next generation copies its layers once because of that; see
+     * {@link #ownLayers()}. All the generators in this class support this; other subclasses
+     * throw an UnsupportedOperationException unless they override it.
+     * @return a copy of this WorldMapGenerator
+     */
+    public WorldMapGenerator copy()
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support copy()");
+    }
+
+    /**
+     * Makes sure no other generator shares the arrays that hold this one's layers, copying any that might be shared.
+     * A copy made by a copy constructor shares every column of every layer with the generator it came from, so forking
+     * a generator only costs an array of references per layer, and each of the two copies the columns it writes to
+     * the first time it generates. Generating calls this already, but code that writes into layers such as
+     * {@link #heightData} directly should call this first, or the write could show up in copies too.
+     * <br>
+     * That copy is the cost of sharing: after {@link #copy()}, a copy constructor, a {@link WorldSnapshot}, or a
+     * {@link TilePyramidExporter} run borrows this generator's layers, its next generation or zoom allocates a whole new
+     * set of layers (plus position arrays, for projections that keep them), even if whatever shared them is gone by
+     * then, since nothing tells this generator when that happens. Only that one call allocates; the ones after it
+     * reuse the new layers, as usual.
+     */
+    public void ownLayers()
+    {
+        if(sharingLayers)
+        {
+            unshareLayers();
+            sharingLayers = false;
+        }
+    }
+
+    /**
+     * Marks this generator's layers as shared, so it copies them before it writes to them again; something that keeps
+     * references to the columns of this generator's layers, such as a copy or a {@link WorldSnapshot}, calls this.
+     */
+    public void shareLayers()
+    {
+        sharingLayers = true;
+    }
+
+    /**
+     * Gives this generator its own copy of each column of every layer that generation writes to. Subclasses with more
+     * layers, such as position arrays, should override this to also {@link #unshare(double[][])} those.
+     */
+    protected void unshareLayers()
+    {
+        unshare(heightData);
+        unshare(heatData);
+        unshare(moistureData);
+        unshare(heightCodeData);
+    }
+
+    /**
+     * Replaces each column of data with a copy of itself, so data no longer shares columns with anything.
+     * @param data a 2D double array that may share columns with another array
+     */
+    protected static void unshare(double[][] data)
+    {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = data[i].clone();
+        }
+    }
+
+    /**
+     * Replaces each column of data with a copy of itself, so data no longer shares columns with anything.
+     * @param data a 2D int array that may share columns with another array
+     */
+    protected static void unshare(int[][] data)
+    {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = data[i].clone();
+        }
+    }
+
+    /**
+     * Gets the {@link GenerationListener} that receives timing information for each generation phase, if one is set.
+     * @return the current GenerationListener, or null if none is set
+     */
+    public GenerationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the {@link GenerationListener} that will receive timing information for each generation phase, or removes
+     * any current listener if given null. When no listener is set, the only cost of this feature is one null check per
+     * phase, not per cell. Biome mapping done by a {@link BiomeMapper} and coloring done by a {@link WorldMapView}
+     * report to the listener of the WorldMapGenerator they use.
+     * @param listener a GenerationListener, or null to stop reporting
+     */
+    public void setListener(GenerationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * If a {@link #listener} is present, tells it that {@code phase} is starting and gets the current time in
+     * nanoseconds; otherwise does nothing and returns 0.
+     * @param phase one of the phase constants in {@link GenerationListener}
+     * @return a start time to pass to {@link #finishPhase(int, long, int, int)}
+     */
+    protected final long startPhase(final int phase) {
+        if(listener == null)
+            return 0L;
+        if(phase == GenerationListener.REGENERATE)
+            noiseCallCount = 0;
+        listener.phaseStarted(this, phase);
+        return System.nanoTime();
+    }
+
+    /**
+     * If a {@link #listener} is present, tells it that {@code phase} has finished, how long it took since
+     * {@code startNanos}, how many cells it processed, and how many noise calls it made; otherwise does nothing.
+     * @param phase one of the phase constants in {@link GenerationListener}
+     * @param startNanos the value returned by {@link #startPhase(int)} for this phase
+     * @param cells how many cells this phase processed
+     * @param noiseCalls how many calls to Noise methods this phase made; ignored for the REGENERATE phase, which
+     *                   reports the total of its nested phases instead
+     */
+    protected final void finishPhase(final int phase, final long startNanos, final int cells, final int noiseCalls) {
+        if(progressMonitor != null && phase != GenerationListener.REGENERATE)
+            reportRows(phase, height);
+        if(listener == null)
+            return;
+        final long elapsed = System.nanoTime() - startNanos;
+        if(phase == GenerationListener.REGENERATE)
+            listener.phaseFinished(this, phase, elapsed, cells, noiseCallCount);
+        else {
+            noiseCallCount += noiseCalls;
+            listener.phaseFinished(this, phase, elapsed, cells, noiseCalls);
+        }
+    }
+
+    /**
+     * Gets the {@link RowVisitor} that receives each row of the map as soon as it is finished, if one is set.
+     * @return the current RowVisitor, or null if none is set
+     */
+    public RowVisitor getRowVisitor() {
+        return rowVisitor;
+    }
+
+    /**
+     * Sets the {@link RowVisitor} that will receive each row of the map as soon as the last generation pass finishes
+     * it, or removes any current visitor if given null. This lets work that reads the finished map, like biome mapping
+     * and coloring, happen while each row is still in cache, instead of in separate sweeps over the whole map later.
+     * @param rowVisitor a RowVisitor, or null to stop visiting rows
+     */
+    public void setRowVisitor(RowVisitor rowVisitor) {
+        this.rowVisitor = rowVisitor;
+    }
+
+    /**
+     * Gets the {@link ProgressMonitor} that hears how far generation has gotten, if one is set.
+     * @return the current ProgressMonitor, or null if none is set
+     */
+    public ProgressMonitor getProgressMonitor() {
+        return progressMonitor;
+    }
+
+    /**
+     * Sets the {@link ProgressMonitor} that will be told each time a generation pass finishes another
+     * {@link #progressRows} rows, and that can cancel generation between those blocks of rows, or removes any current
+     * monitor if given null. When no monitor is set, the only cost of this feature is one null check per row.
+     * @param progressMonitor a ProgressMonitor, or null to stop reporting progress
+     */
+    public void setProgressMonitor(ProgressMonitor progressMonitor) {
+        this.progressMonitor = progressMonitor;
+    }
+
+    /**
+     * Checks whether the noise pass should skip the cell at x, y because of {@link PassState#sampleStride} and
+     * {@link PassState#sampledStride}; only meaningful during a noise pass where one of those is more than 1.
+     * @param x the x-coordinate of a cell
+     * @param y the y-coordinate of a cell
+     * @return true if the cell isn't on the current stride's grid or was already filled by a coarser one
+     */
+    protected final boolean skipSample(int x, int y)
+    {
+        final int sampleStride = passState.sampleStride, sampledStride = passState.sampledStride;
+        return ((x | y) & sampleStride - 1) != 0 || (sampledStride > 1 && ((x | y) & sampledStride - 1) == 0);
+    }
+
+    /**
+     * Called by {@link #regenerate} at the start of each row of each pass; if a {@link #progressMonitor} is present
+     * and a block of {@link #progressRows} rows has just been finished, reports that to the monitor, which may cancel.
+     * @param phase the phase constant in {@link GenerationListener} for the pass this row belongs to
+     * @param y the row about to be started; all rows before it in this pass are finished
+     * @throws GenerationCancelledException if the monitor cancels generation
+     */
+    protected final void checkRow(final int phase, final int y) {
+        if(progressMonitor != null && y != 0 && y % progressRows == 0)
+            reportRows(phase, y);
+    }
+
+    /**
+     * Tells the {@link #progressMonitor} that {@code rowsDone} rows of {@code phase} are finished, and stops generation
+     * if it answers false. If the generation being stopped was going to find new heat and moisture ranges (because the
+     * seed or modifiers changed), the ranges it leaves behind are incomplete, so the seed this was generating is
+     * forgotten with {@link #forgetState()} and generating it again starts over.
+     * @param phase the phase constant in {@link GenerationListener} for the pass that is reporting
+     * @param rowsDone how many rows of that pass are finished
+     * @throws GenerationCancelledException if the monitor cancels generation
+     */
+    protected final void reportRows(final int phase, final int rowsDone) {
+        if(progressMonitor.rowsFinished(this, phase, rowsDone, height))
+            return;
+        if(passState().rangesIncomplete)
+            forgetState();
+        throw new GenerationCancelledException(phase, rowsDone);
+    }
+
+    /**
+     * Gets the {@link PassState} that generation passes keep their progress in, making it the first time this is
+     * called (or the first time after this generator was deserialized).
+     * @return this generator's PassState
+     */
+    protected final PassState passState() {
+        if(passState == null)
+            passState = new PassState();
+        return passState;
+    }
+
+    /**
+     * Forgets the RNG state this generator last generated with, as if nothing had been generated yet: the next
+     * generation starts over and finds new heat and moisture ranges even if it is given the same state, and zooming
+     * generates a new world first. Used when generation stops partway through finding new ranges, since the ranges
+     * it leaves behind only cover part of the map.
+     */
+    protected void forgetState() {
+        passState().rangesIncomplete = false;
+        cacheA = ~seedA;
+        cacheB = ~seedB;
+    }
+
+    /**
+     * Called by {@link #regenerate} just before its last pass, with the heat range that pass is expected to produce.
+     * If a {@link #rowVisitor} is present, this sets {@link #minHeat} and {@link #maxHeat} to the expected values so
+     * the visitor can use them, and tells the visitor rows are about to start.
+     * @param expectedMinHeat the value minHeat is expected to have after the last pass
+     * @param expectedMaxHeat the value maxHeat is expected to have after the last pass
+     * @return true if rows should be passed to {@link #visitRow(int)} as they are finished
+     */
+    protected final boolean startRows(final double expectedMinHeat, final double expectedMaxHeat) {
+        if(rowVisitor == null)
+            return false;
+        minHeat = expectedMinHeat;
+        maxHeat = expectedMaxHeat;
+        rowVisitor.startRows(this);
+        return true;
+    }
+
+    /**
+     * Passes the finished row {@code y} to the {@link #rowVisitor}.
+     * @param y the row that was just finished
+     */
+    protected final void visitRow(final int y) {
+        rowVisitor.visitRow(this, y);
+    }
+
+    /**
+     * Called by {@link #regenerate} after its last pass, once {@link #minHeat} and {@link #maxHeat} have their final
+     * values. If those don't exactly match what was given to {@link #startRows(double, double)}, the rows visited
+     * so far were based on the wrong range, so every row is visited again; this keeps results identical to doing the
+     * same work after generation, whether or not the expected range was right.
+     * @param visiting the value {@link #startRows(double, double)} returned
+     * @param expectedMinHeat the same value given to startRows
+     * @param expectedMaxHeat the same value given to startRows
+     */
+    protected final void finishRows(final boolean visiting, final double expectedMinHeat, final double expectedMaxHeat) {
+        if(!visiting || rowVisitor == null)
+            return;
+        if(Double.doubleToLongBits(minHeat) != Double.doubleToLongBits(expectedMinHeat)
+                || Double.doubleToLongBits(maxHeat) != Double.doubleToLongBits(expectedMaxHeat)) {
+            rowVisitor.startRows(this);
+            for (int y = 0; y < height; y++) {
+                rowVisitor.visitRow(this, y);
+            }
+        }
     }
 
     /**
@@ -222,6 +566,7 @@ public abstract class WorldMapGenerator implements Serializable {
      */
     public void generate(double landMod, double heatMod, long state)
     {
+        finishSteps();
         if(cacheA != (int) (state & 0xFFFFFFFFL) || cacheB != (int) (state >>> 32) ||
                 landMod != landModifier || heatMod != heatModifier)
         {
@@ -238,7 +583,7 @@ public abstract class WorldMapGenerator implements Serializable {
         }
         //System.out.printf("generate, zoomStartX: %d, zoomStartY: %d\n", zoomStartX, zoomStartY);
 
-        regenerate(startX = (zoomStartX >> zoom) - (width >> 1 + zoom), startY = (zoomStartY >> zoom) - (height >> 1 + zoom),
+        regenerateArea(startX = (zoomStartX >> zoom) - (width >> 1 + zoom), startY = (zoomStartY >> zoom) - (height >> 1 + zoom),
                 //startCacheX.peek(), startCacheY.peek(),
                 usedWidth = (width >> zoom), usedHeight = (height >> zoom), landMod, heatMod, seedA, seedB);
     }
@@ -265,6 +610,7 @@ public abstract class WorldMapGenerator implements Serializable {
      */
     public void zoomOut(int zoomAmount, int zoomCenterX, int zoomCenterY)
     {
+        finishSteps();
         zoomAmount = Math.min(zoom, zoomAmount);
         if(zoomAmount == 0) return;
         if(zoomAmount < 0) {
@@ -275,7 +621,9 @@ public abstract class WorldMapGenerator implements Serializable {
         {
             if(cacheA != seedA || cacheB != seedB)
             {
+                // a new world isn't zoomed in, so there's nothing left to zoom out of
                 generate(rng.nextLong());
+                return;
             }
             zoomStartX = Math.min(Math.max(
                     (zoomStartX + (zoomCenterX - (width >> 1))) >> zoomAmount,
@@ -295,7 +643,7 @@ public abstract class WorldMapGenerator implements Serializable {
 //                    0), width - (width >> zoom));
 //            zoomStartY = Math.min(Math.max((zoomStartY >> 1) + (zoomCenterY >> zoom + 1) - (height >> zoom + 2),
 //                    0), height - (height >> zoom));
-            regenerate(startX = (zoomStartX >> zoom) - (width >> zoom + 1), startY = (zoomStartY >> zoom) - (height >> zoom + 1),
+            regenerateArea(startX = (zoomStartX >> zoom) - (width >> zoom + 1), startY = (zoomStartY >> zoom) - (height >> zoom + 1),
                     //startCacheX.peek(), startCacheY.peek(),
                     usedWidth = width >> zoom,  usedHeight = height >> zoom,
                     landModifier, heatModifier, cacheA, cacheB);
@@ -329,6 +677,7 @@ public abstract class WorldMapGenerator implements Serializable {
      */
     public void zoomIn(int zoomAmount, int zoomCenterX, int zoomCenterY)
     {
+        finishSteps();
         if(zoomAmount == 0) return;
         if(zoomAmount < 0)
         {
@@ -360,16 +709,318 @@ public abstract class WorldMapGenerator implements Serializable {
             startCacheY.add(Math.min(Math.max(startCacheY.peek() + (zoomCenterY >> zoom - 1) - (height >> zoom + 1),
                     0), height - (height >> zoom)));
         }
-        regenerate(startX = (zoomStartX >> zoom) - (width >> 1 + zoom), startY = (zoomStartY >> zoom) - (height >> 1 + zoom),
+        regenerateArea(startX = (zoomStartX >> zoom) - (width >> 1 + zoom), startY = (zoomStartY >> zoom) - (height >> 1 + zoom),
                 //startCacheX.peek(), startCacheY.peek(),
                 usedWidth = width >> zoom, usedHeight = height >> zoom,
                 landModifier, heatModifier, cacheA, cacheB);
         rng.setState(cacheA, cacheB);
     }
 
+    /**
+     * Regenerates the map so it shows exactly the area of the unzoomed map that starts at {@code areaX},{@code areaY}
+     * and is {@code width >> zoomLevel} by {@code height >> zoomLevel} cells big, at {@code zoomLevel} doublings of
+     * resolution; the 2D arrays this uses keep their sizes. Unlike {@link #zoomIn(int, int, int)}, which centers on a
+     * point relative to the current view and stops at edges, this places the area exactly, so it can be used to make a
+     * huge image out of tiles: at a given zoomLevel, areas starting at multiples of {@code width >> zoomLevel} and
+     * {@code height >> zoomLevel} cover the whole world without gaps, and because the heat and moisture ranges of the
+     * whole world are kept (as they are when zooming), neighboring tiles line up. For that to work, width and height
+     * should be divisible by {@code 1 << zoomLevel}.
+     * <br>
+     * {@link #zoomIn(int, int, int)} and {@link #zoomOut(int, int, int)} continue from the area this shows. Some
+     * generators, like {@link RotatingSpaceMap}, always show their whole world and ignore the area.
+     * @param zoomLevel how many times the resolution should be doubled, 0 or more
+     * @param areaX the x-coordinate of the left edge of the area, in cells of the unzoomed map
+     * @param areaY the y-coordinate of the top edge of the area, in cells of the unzoomed map
+     */
+    public void zoomTo(int zoomLevel, int areaX, int areaY)
+    {
+        if(seedA != cacheA || seedB != cacheB)
+        {
+            generate(rng.nextLong());
+        }
+        zoomLevel = Math.max(zoomLevel, 0);
+        restoreZoom(zoomLevel, (areaX << zoomLevel) + (width >> 1), (areaY << zoomLevel) + (height >> 1));
+    }
+
+    /**
+     * Regenerates the map at {@code zoomLevel} with the view centered on {@code zoomStartX},{@code zoomStartY}, which
+     * are in cells of the whole world at that zoom level, the same coordinates {@link #zoomIn(int, int, int)} and
+     * {@link #zoomOut(int, int, int)} keep track of as they move the view. This puts a generator back into a zoomed
+     * state recorded earlier, as {@link WorldSpec} does. The current seed should already have been generated, since
+     * the heat and moisture ranges from that generation are kept.
+     * @param zoomLevel how many times the resolution should be doubled, 0 or more
+     * @param zoomStartX the x-coordinate of the center of the view, at zoomLevel
+     * @param zoomStartY the y-coordinate of the center of the view, at zoomLevel
+     */
+    protected void restoreZoom(int zoomLevel, int zoomStartX, int zoomStartY)
+    {
+        finishSteps();
+        zoom = zoomLevel;
+        this.zoomStartX = zoomStartX;
+        this.zoomStartY = zoomStartY;
+        startCacheX.clear();
+        startCacheY.clear();
+        for (int i = 0; i <= zoomLevel; i++) {
+            startCacheX.add(0);
+            startCacheY.add(0);
+        }
+        regenerateArea(startX = (zoomStartX >> zoom) - (width >> 1 + zoom), startY = (zoomStartY >> zoom) - (height >> 1 + zoom),
+                usedWidth = width >> zoom, usedHeight = height >> zoom,
+                landModifier, heatModifier, cacheA, cacheB);
+        rng.setState(cacheA, cacheB);
+    }
+
+    /**
+     * Starts generating a world like {@link #generate(double, double, long)}, but only does the setup, leaving the
+     * passes that fill the map for {@link #step(long)}; call that until it returns true before using the map. This
+     * lets a game spread generation over many frames without using threads. Anything that generates or zooms before
+     * stepping is done, including another call to a start method, finishes the steps that are left first.
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; a random value will be used if this is negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; a random value will be used if this is negative
+     * @param state the state to give this generator's RNG; if the same as the last call, this will reuse data
+     */
+    public void startGenerate(double landMod, double heatMod, long state)
+    {
+        finishSteps();
+        passState().deferred = true;
+        try {
+            generate(landMod, heatMod, state);
+        } finally {
+            passState.deferred = false;
+        }
+    }
+
+    /**
+     * Starts generating a world like {@link #generate(long)}, leaving the work for {@link #step(long)}; see
+     * {@link #startGenerate(double, double, long)}.
+     * @param state the state to give this generator's RNG; if the same as the last call, this will reuse data
+     */
+    public void startGenerate(long state)
+    {
+        startGenerate(-1.0, -1.0, state);
+    }
+
+    /**
+     * Starts zooming in like {@link #zoomIn(int, int, int)}, leaving the work for {@link #step(long)}; see
+     * {@link #startGenerate(double, double, long)}. If nothing has been generated yet, a world is generated first,
+     * all at once.
+     * @param zoomAmount how many times to double the resolution
+     * @param zoomCenterX the center X position to zoom in to
+     * @param zoomCenterY the center Y position to zoom in to
+     */
+    public void startZoomIn(int zoomAmount, int zoomCenterX, int zoomCenterY)
+    {
+        finishSteps();
+        if(seedA != cacheA || seedB != cacheB)
+            generate(rng.nextLong());
+        passState().deferred = true;
+        try {
+            zoomIn(zoomAmount, zoomCenterX, zoomCenterY);
+        } finally {
+            passState.deferred = false;
+        }
+    }
+
+    /**
+     * Starts zooming out like {@link #zoomOut(int, int, int)}, leaving the work for {@link #step(long)}; see
+     * {@link #startGenerate(double, double, long)}. If nothing has been generated yet, a world is generated first,
+     * all at once.
+     * @param zoomAmount how many times to halve the resolution
+     * @param zoomCenterX the center X position to zoom out from
+     * @param zoomCenterY the center Y position to zoom out from
+     */
+    public void startZoomOut(int zoomAmount, int zoomCenterX, int zoomCenterY)
+    {
+        finishSteps();
+        if(seedA != cacheA || seedB != cacheB)
+            generate(rng.nextLong());
+        passState().deferred = true;
+        try {
+            zoomOut(zoomAmount, zoomCenterX, zoomCenterY);
+        } finally {
+            passState.deferred = false;
+        }
+    }
+
+    /**
+     * Starts showing an exact area like {@link #zoomTo(int, int, int)}, leaving the work for {@link #step(long)}; see
+     * {@link #startGenerate(double, double, long)}. If nothing has been generated yet, a world is generated first,
+     * all at once.
+     * @param zoomLevel how many times the resolution should be doubled, 0 or more
+     * @param areaX the x-coordinate of the left edge of the area, in cells of the unzoomed map
+     * @param areaY the y-coordinate of the top edge of the area, in cells of the unzoomed map
+     */
+    public void startZoomTo(int zoomLevel, int areaX, int areaY)
+    {
+        finishSteps();
+        if(seedA != cacheA || seedB != cacheB)
+            generate(rng.nextLong());
+        passState().deferred = true;
+        try {
+            zoomTo(zoomLevel, areaX, areaY);
+        } finally {
+            passState.deferred = false;
+        }
+    }
+
+    /**
+     * Continues a generation or zoom started by {@link #startGenerate(double, double, long)} or another start method,
+     * running rows of its passes until about {@code nanosBudget} nanoseconds have gone by. Each call finishes at least
+     * one row, and guesses how many more fit in the budget from how long the rows so far took, so it rarely goes over
+     * by more than a row. The map's layers and ranges are only valid once this returns true; before that, the rows
+     * finished so far may be in any pass. The results are exactly the same as generating all at once.
+     * <br>
+     * A {@link GenerationListener} hears about each pass as usual, but the time it gets for a pass includes any time
+     * between steps. A {@link ProgressMonitor} that cancels makes this throw a {@link GenerationCancelledException},
+     * and leaves nothing to step.
+     * @param nanosBudget about how many nanoseconds this may take, such as what is left of the current frame
+     * @return true if generation is done (or nothing was started), or false if more steps are needed
+     */
+    public boolean step(long nanosBudget)
+    {
+        if(stepPhase == GenerationListener.REGENERATE)
+            return true;
+        final long start = System.nanoTime();
+        long last = start, now;
+        int rows = 1;
+        try {
+            while (true) {
+                ownLayers();
+                final int from = stepRow, to = Math.min(from + rows, height);
+                passRows(stepPhase, from, to);
+                stepRow = to;
+                if(to == height) {
+                    stepPhase = nextPass(stepPhase);
+                    stepRow = 0;
+                    if(stepPhase == GenerationListener.REGENERATE) {
+                        finishPhase(GenerationListener.REGENERATE, passState.regenerateStart, width * height, 0);
+                        return true;
+                    }
+                    // the next pass may take a very different time per row
+                    rows = 1;
+                    now = System.nanoTime();
+                }
+                else {
+                    now = System.nanoTime();
+                    rows = (int) Math.min(height, (double) (nanosBudget - (now - start)) * (to - from) / Math.max(now - last, 1L));
+                }
+                if(now - start >= nanosBudget || rows < 1)
+                    return false;
+                last = now;
+            }
+        } catch (RuntimeException e) {
+            stepPhase = GenerationListener.REGENERATE;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true unless a generation or zoom started by {@link #startGenerate(double, double, long)} or another start
+     * method still has steps left; only when this is true are the map's layers and ranges valid.
+     * @return true if there is nothing left for {@link #step(long)} to do
+     */
+    public boolean isDone()
+    {
+        return stepPhase == GenerationListener.REGENERATE;
+    }
+
+    /**
+     * Runs every step left in a generation or zoom started by {@link #startGenerate(double, double, long)} or another
+     * start method, all at once; does nothing if there are none.
+     */
+    public void finishSteps()
+    {
+        while (!step(Long.MAX_VALUE)) {
+        }
+    }
+
+    /**
+     * Regenerates the area given, as {@link #generate(double, double, long)} and the zoom methods do after they decide
+     * what area to show; or, when a start method such as {@link #startGenerate(double, double, long)} is running, only
+     * starts regenerating it and leaves the passes for {@link #step(long)}. Reports the whole regeneration as the
+     * {@link GenerationListener#REGENERATE} phase.
+     */
+    protected void regenerateArea(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+    {
+        final long phaseStart = startPhase(GenerationListener.REGENERATE);
+        final PassState pass = passState();
+        if(pass.deferred) {
+            pass.regenerateStart = phaseStart;
+            stepRow = 0;
+            stepPhase = startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB);
+            if(stepPhase == GenerationListener.REGENERATE)
+                finishPhase(GenerationListener.REGENERATE, phaseStart, width * height, 0);
+            return;
+        }
+        regenerate(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB);
+        finishPhase(GenerationListener.REGENERATE, phaseStart, width * height, 0);
+    }
+
     protected abstract void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                        double landMod, double heatMod, int stateA, int stateB);
 
+    /**
+     * Does the setup for a regeneration, such as seeding noise and deciding whether ranges must be found again, and
+     * gets the first pass to run with {@link #passRows(int, int, int)}; each pass then runs over every row in order,
+     * and {@link #nextPass(int)} gives the pass after it. Generators here implement
+     * {@link #regenerate(int, int, int, int, double, double, int, int)} this way, so it can also be done a few rows at a
+     * time with {@link #step(long)}. The default does the whole regeneration right away, for subclasses that only
+     * implement regenerate, and returns {@link GenerationListener#REGENERATE} to say there are no passes left.
+     * @return the phase constant in {@link GenerationListener} for the first pass, or
+     * {@link GenerationListener#REGENERATE} if there are none
+     */
+    protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                              double landMod, double heatMod, int stateA, int stateB)
+    {
+        regenerate(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB);
+        return GenerationListener.REGENERATE;
+    }
+
+    /**
+     * Runs rows {@code fromRow} (inclusive) to {@code toRow} (exclusive) of one pass. Each pass must be given all of its
+     * rows in order, starting at 0, before the next pass starts. Only needs to be implemented by generators that
+     * override {@link #startPasses(int, int, int, int, double, double, int, int)}.
+     * @param phase the phase constant in {@link GenerationListener} for the pass, as from startPasses or
+     *              {@link #nextPass(int)}
+     * @param fromRow the first row to run, inclusive
+     * @param toRow the last row to run, exclusive; at most {@link #height}
+     */
+    protected void passRows(int phase, int fromRow, int toRow)
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " doesn't generate in passes");
+    }
+
+    /**
+     * Gets the pass to run after {@code phase} has run over every row. The default goes from
+     * {@link GenerationListener#NOISE} to {@link GenerationListener#HEAT} to {@link GenerationListener#NORMALIZE}, and
+     * then returns {@link GenerationListener#REGENERATE} to say generation is done; once NORMALIZE is done, the ranges
+     * are complete, so this also clears {@link PassState#rangesIncomplete}.
+     * @param phase the phase constant in {@link GenerationListener} for the pass that just finished
+     * @return the phase constant for the next pass, or {@link GenerationListener#REGENERATE} if there are none
+     */
+    protected int nextPass(int phase)
+    {
+        if(phase == GenerationListener.NORMALIZE)
+            passState().rangesIncomplete = false;
+        return phase == GenerationListener.NOISE ? GenerationListener.HEAT
+                : phase == GenerationListener.HEAT ? GenerationListener.NORMALIZE
+                : GenerationListener.REGENERATE;
+    }
+
+    /**
+     * Runs every row of {@code phase} and of each pass after it, all at once.
+     * @param phase the phase constant in {@link GenerationListener} for the first pass, as from
+     *              {@link #startPasses(int, int, int, int, double, double, int, int)}
+     */
+    protected final void runPasses(int phase)
+    {
+        while (phase != GenerationListener.REGENERATE) {
+            passRows(phase, 0, height);
+            phase = nextPass(phase);
+        }
+    }
+
     public int codeHeight(final double high)
     {
         if(high < deepWaterUpper)
@@ -663,6 +1314,428 @@ public abstract class WorldMapGenerator implements Serializable {
 //        rng.setState(rebuildState);
 //    }
 
+    /**
+     * An immutable description of how to build one {@link Noise} generator: its frequency, noise type, octave count,
+     * lacunarity, gain, and fractal type. Because nothing here can change after construction, one NoiseLayer can be
+     * shared freely between threads; {@link #build(int)} makes a new Noise each time, so each generator that uses
+     * this gets its own Noise and never shares a mutable one.
+     */
+    public static final class NoiseLayer implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final float frequency, lacunarity, gain;
+        public final int noiseType, octaves, fractalType;
+
+        /**
+         * Makes a NoiseLayer that builds Noise generators using {@link Noise#FBM} as the fractal type, with a lacunarity
+         * of 2 and a gain of 0.5, which are the defaults Noise uses.
+         * @param frequency the frequency of noise to produce; the projections here use values between about 1 and 4
+         * @param noiseType a noise type constant from {@link Noise}, such as {@link Noise#FOAM_FRACTAL}
+         * @param octaves how many octaves of noise to use; should be at least 1
+         */
+        public NoiseLayer(float frequency, int noiseType, int octaves) {
+            this(frequency, noiseType, octaves, 2f, 0.5f, Noise.FBM);
+        }
+
+        /**
+         * Makes a NoiseLayer with every setting specified.
+         * @param frequency the frequency of noise to produce; the projections here use values between about 1 and 4
+         * @param noiseType a noise type constant from {@link Noise}, such as {@link Noise#FOAM_FRACTAL}
+         * @param octaves how many octaves of noise to use; should be at least 1
+         * @param lacunarity how much frequency is multiplied by for each octave after the first
+         * @param gain how much the strength of each octave is multiplied by, relative to the previous octave
+         * @param fractalType a fractal type constant from {@link Noise}, such as {@link Noise#FBM} or {@link Noise#RIDGED_MULTI}
+         */
+        public NoiseLayer(float frequency, int noiseType, int octaves, float lacunarity, float gain, int fractalType) {
+            this.frequency = frequency;
+            this.noiseType = noiseType;
+            this.octaves = octaves;
+            this.lacunarity = lacunarity;
+            this.gain = gain;
+            this.fractalType = fractalType;
+        }
+
+        /**
+         * Creates a new Noise configured with this layer's settings and the given seed. The projections in this class
+         * always pass their own seed to each noise call, so {@code seed} mostly matters when the Noise is used
+         * elsewhere.
+         * @param seed the seed to give the new Noise
+         * @return a new Noise that isn't shared with anything else
+         */
+        public Noise build(int seed) {
+            Noise noise = new Noise(seed, frequency, noiseType, octaves, lacunarity, gain);
+            noise.setFractalType(fractalType);
+            return noise;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NoiseLayer that = (NoiseLayer) o;
+            return Float.compare(that.frequency, frequency) == 0 && Float.compare(that.lacunarity, lacunarity) == 0
+                    && Float.compare(that.gain, gain) == 0 && noiseType == that.noiseType && octaves == that.octaves
+                    && fractalType == that.fractalType;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(frequency);
+            result = 31 * result + Float.floatToIntBits(lacunarity);
+            result = 31 * result + Float.floatToIntBits(gain);
+            result = 31 * result + noiseType;
+            result = 31 * result + octaves;
+            result = 31 * result + fractalType;
+            return result;
+        }
+    }
+
+    /**
+     * An immutable set of the five {@link NoiseLayer}s a projection uses: {@link #terrain} and {@link #terrainLayered}
+     * for elevation, {@link #heat} and {@link #moisture} for climate, and {@link #otherRidged} to distort heat and
+     * moisture. One NoiseConfiguration can be given to any number of generators on any number of threads; each
+     * generator builds its own Noise objects from it when constructed (and when copied), so generators never share a
+     * mutable Noise. Use {@link #standard(double)} to get the configuration the projections use by default, or
+     * {@link #DEFAULT} for the standard one with normal detail.
+     */
+    public static final class NoiseConfiguration implements Serializable {
+        private static final long serialVersionUID = 1L;
+        /**
+         * The configuration every projection uses unless told otherwise; the same as {@code standard(1.0)}.
+         */
+        public static final NoiseConfiguration DEFAULT = standard(1.0);
+
+        public final NoiseLayer terrain, terrainLayered, heat, moisture, otherRidged;
+
+        public NoiseConfiguration(NoiseLayer terrain, NoiseLayer terrainLayered, NoiseLayer heat, NoiseLayer moisture,
+                                  NoiseLayer otherRidged) {
+            if(terrain == null || terrainLayered == null || heat == null || moisture == null || otherRidged == null)
+                throw new IllegalArgumentException("No NoiseLayer in a NoiseConfiguration can be null");
+            this.terrain = terrain;
+            this.terrainLayered = terrainLayered;
+            this.heat = heat;
+            this.moisture = moisture;
+            this.otherRidged = otherRidged;
+        }
+
+        /**
+         * Gets the configuration the projections in WorldMapGenerator use when given an octave multiplier, which
+         * adjusts how many octaves each layer uses. The octave multiplier should probably be no lower than 0.5, but
+         * can be arbitrarily high if you're willing to spend more time on detail only noticeable at very high zoom.
+         * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
+         * @return a new NoiseConfiguration with the standard settings and the given level of detail
+         */
+        public static NoiseConfiguration standard(double octaveMultiplier) {
+            return new NoiseConfiguration(
+                    new NoiseLayer((float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7), 2f, 0.5f, Noise.RIDGED_MULTI),
+                    new NoiseLayer((float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5)),
+                    new NoiseLayer((float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f, Noise.FBM),
+                    new NoiseLayer((float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f, Noise.FBM),
+                    new NoiseLayer((float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6), 2f, 0.5f, Noise.RIDGED_MULTI));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NoiseConfiguration that = (NoiseConfiguration) o;
+            return terrain.equals(that.terrain) && terrainLayered.equals(that.terrainLayered) && heat.equals(that.heat)
+                    && moisture.equals(that.moisture) && otherRidged.equals(that.otherRidged);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = terrain.hashCode();
+            result = 31 * result + terrainLayered.hashCode();
+            result = 31 * result + heat.hashCode();
+            result = 31 * result + moisture.hashCode();
+            result = 31 * result + otherRidged.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Receives each row of a map as soon as the last pass of generation has finished it, so later work on the finished
+     * map can be fused into that pass instead of sweeping over the whole map again. Set one with
+     * {@link WorldMapGenerator#setRowVisitor(RowVisitor)}; {@link WorldMapView#generateAndShow()} uses this to map
+     * biomes and colors in the same pass that normalizes heat and moisture.
+     * <br>
+     * When {@link #visitRow(WorldMapGenerator, int)} is called for a row, that row's height, heat, moisture, and height
+     * code data are final, and the world's {@link WorldMapGenerator#minHeat} and {@link WorldMapGenerator#maxHeat}
+     * hold the range heat will have when generation is done; other rows and other statistics may not be final yet. If
+     * that range turns out to be different than expected, {@link #startRows(WorldMapGenerator)} is called again and
+     * every row is visited again after generation, so the last visit to each row always sees the final map.
+     */
+    public interface RowVisitor
+    {
+        /**
+         * Called before the first row is visited, each time all rows are about to be visited.
+         * @param world the WorldMapGenerator whose rows will be visited
+         */
+        void startRows(WorldMapGenerator world);
+
+        /**
+         * Called once a row of the map has been finished.
+         * @param world the WorldMapGenerator being generated
+         * @param y the row that was just finished, from 0 to {@code world.height - 1}
+         */
+        void visitRow(WorldMapGenerator world, int y);
+    }
+
+    /**
+     * Hears how far each pass of generation has gotten, and can cancel generation partway through. Set one with
+     * {@link WorldMapGenerator#setProgressMonitor(ProgressMonitor)}; each pass reports after every
+     * {@link WorldMapGenerator#progressRows} rows it finishes and again when it is done, and biome mapping and coloring
+     * report when they are done. {@link AsyncWorldGenerator} uses this to stop work that a newer request has replaced.
+     * <br>
+     * Methods here are called on whatever thread is doing the generation, and the rows of the pass that is reporting
+     * may only be partly done, so they shouldn't read the world's layers.
+     */
+    public interface ProgressMonitor
+    {
+        /**
+         * Called each time a pass finishes another block of rows, and when it finishes all of them.
+         * @param world the WorldMapGenerator being generated, or the one a biome mapper or view is reading from
+         * @param phase one of the phase constants in {@link GenerationListener}, such as {@link GenerationListener#NOISE}
+         * @param rowsDone how many rows of this pass are finished, from 1 to rows
+         * @param rows how many rows this pass has in total
+         * @return true to keep going, or false to cancel, which makes the generating method throw a
+         * {@link GenerationCancelledException}
+         */
+        boolean rowsFinished(WorldMapGenerator world, int phase, int rowsDone, int rows);
+    }
+
+    /**
+     * The state a regeneration keeps between the calls that run its passes, so a pass can be run a few rows at a time:
+     * whether it was started by a start method such as {@link WorldMapGenerator#startGenerate(double, double, long)}, whether it finds
+     * new ranges, and what the pass running now has found so far. Each generator has its own, from
+     * {@link WorldMapGenerator#passState()}; it only means anything while generating.
+     */
+    protected static class PassState {
+        /**
+         * When true, {@link WorldMapGenerator#regenerateArea(int, int, int, int, double, double, int, int)} only starts its passes,
+         * leaving them for {@link WorldMapGenerator#step(long)}.
+         */
+        public boolean deferred;
+        /**
+         * When the regeneration started, for reporting the whole {@link GenerationListener#REGENERATE} phase once
+         * stepping finishes.
+         */
+        public long regenerateStart;
+        /**
+         * True from when a regeneration starts finding new heat and moisture ranges (because the seed or modifiers
+         * changed) until its {@link GenerationListener#NORMALIZE} pass finishes; if generation stops before then, the
+         * ranges are incomplete and the state being generated has to be forgotten with {@link WorldMapGenerator#forgetState()}.
+         */
+        public boolean rangesIncomplete;
+        /**
+         * Whether the current regeneration finds new ranges, and whether the last pass is passing rows to a
+         * {@link RowVisitor}.
+         */
+        public boolean fresh, visitingRows;
+        /**
+         * When the current pass started, and how many cells it has filled.
+         */
+        public long passStart;
+        public int passCells;
+        /**
+         * The lowest and highest values the current pass has seen so far, and the heat range the last pass expects.
+         */
+        public double runMinHeat, runMaxHeat, runMinWet, runMaxWet, expectedMinHeat, expectedMaxHeat;
+        /**
+         * When either is more than 1, the noise pass only fills cells whose x and y are both multiples of
+         * {@code sampleStride}, and skips any whose x and y are both multiples of {@code sampledStride}, since an
+         * earlier pass filled those; both must be powers of two. The projection's shape is still worked out for every
+         * cell. Used by {@link ProgressiveWorldGenerator} to fill a map coarse-to-fine; 0 for both fills every cell.
+         */
+        public int sampleStride, sampledStride;
+    }
+
+    /**
+     * Thrown out of {@link #generate()}, {@link #zoomIn()}, and the other methods that regenerate a map when a
+     * {@link ProgressMonitor} cancels them. The map's layers are left partly regenerated and shouldn't be used until
+     * the world is generated or zoomed again; if the seed or modifiers were changing, the new seed isn't kept, so
+     * generating it again starts from scratch.
+     */
+    public static class GenerationCancelledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        /**
+         * The phase constant in {@link GenerationListener} for the pass that was cancelled.
+         */
+        public final int phase;
+        /**
+         * How many rows of that pass were finished when it was cancelled.
+         */
+        public final int rowsDone;
+
+        public GenerationCancelledException(int phase, int rowsDone) {
+            super("Generation cancelled during the " + GenerationListener.PHASE_NAMES[phase] + " phase after "
+                    + rowsDone + " rows");
+            this.phase = phase;
+            this.rowsDone = rowsDone;
+        }
+    }
+
+    /**
+     * Holds what a world looks like at one point, as found by a point query such as
+     * {@link SphereMap#query(double, double, PointInfo)}, without generating a map around it. The height, heat, and
+     * moisture are the same values the point's cell would have in {@link #heightData}, {@link #heatData}, and
+     * {@link #moistureData}, and the codes are the same as {@link #heightCodeData} and a {@link DetailedBiomeMapper}'s
+     * {@link DetailedBiomeMapper#heatCodeData}, {@link DetailedBiomeMapper#moistureCodeData}, and
+     * {@link DetailedBiomeMapper#biomeCodeData}. One PointInfo can be reused for any number of queries.
+     */
+    public static class PointInfo
+    {
+        public double height, heat, moisture;
+        public int heightCode, heatCode, moistureCode, biomeCode;
+
+        /**
+         * Sets the codes in this from a result of {@link RegionBiomeMapper#classifyCell(WorldMapGenerator, int, int)}
+         * or {@link DetailedBiomeMapper#classifyPoint(WorldMapGenerator, double, int, double, double)}.
+         * @param cell the biome code in the low 32 bits, the heat code in bits 32-35, and the moisture code in bits 40-43
+         */
+        public void setCodes(long cell)
+        {
+            heatCode = (int) (cell >>> 32) & 15;
+            moistureCode = (int) (cell >>> 40) & 15;
+            biomeCode = (int) cell;
+        }
+
+        @Override
+        public String toString() {
+            return "PointInfo{height=" + height + ", heat=" + heat + ", moisture=" + moisture +
+                    ", heightCode=" + heightCode + ", heatCode=" + heatCode + ", moistureCode=" + moistureCode +
+                    ", biomeCode=" + biomeCode + '}';
+        }
+    }
+
+    /**
+     * Holds what a world looks like at many points, as found by a batch query such as
+     * {@link SphereMap.PointSampler#query(double[], double[], double[], int, int, PointBatch)}, in parallel arrays with
+     * one entry per point (the same index the point has in the input arrays). Each array holds the same kind of value
+     * as the field with the same name in {@link PointInfo}. The arrays {@link #x}, {@link #y}, and {@link #z} are
+     * used to hold the unit-sphere positions of points given by latitude and longitude. One PointBatch can be reused
+     * for any number of batches that fit in its capacity.
+     */
+    public static class PointBatch
+    {
+        public final double[] height, heat, moisture, x, y, z;
+        public final int[] heightCode, heatCode, moistureCode, biomeCode;
+
+        /**
+         * @param capacity how many points this can hold; each array will have this length
+         */
+        public PointBatch(int capacity)
+        {
+            height = new double[capacity];
+            heat = new double[capacity];
+            moisture = new double[capacity];
+            x = new double[capacity];
+            y = new double[capacity];
+            z = new double[capacity];
+            heightCode = new int[capacity];
+            heatCode = new int[capacity];
+            moistureCode = new int[capacity];
+            biomeCode = new int[capacity];
+        }
+
+        /**
+         * Gets how many points this can hold.
+         * @return the length of each array in this
+         */
+        public int capacity()
+        {
+            return height.length;
+        }
+
+        /**
+         * Copies the results for the point at {@code index} into {@code info}.
+         * @param index the index of a point
+         * @param info a PointInfo to fill; if null, a new one will be made
+         * @return info, after filling it
+         */
+        public PointInfo get(int index, PointInfo info)
+        {
+            if(info == null)
+                info = new PointInfo();
+            info.height = height[index];
+            info.heat = heat[index];
+            info.moisture = moisture[index];
+            info.heightCode = heightCode[index];
+            info.heatCode = heatCode[index];
+            info.moistureCode = moistureCode[index];
+            info.biomeCode = biomeCode[index];
+            return info;
+        }
+    }
+
+    /**
+     * Receives timing and workload information for each phase of generating a world map, biome mapping, and coloring.
+     * Set one with {@link WorldMapGenerator#setListener(GenerationListener)}; when none is set, nothing is measured.
+     * Phases can nest: {@link #REGENERATE} covers one whole call to {@link #generate()}, {@link #zoomIn()},
+     * {@link #zoomOut()}, or their overloads, and is reported after the {@link #NOISE}, {@link #HEAT}, and
+     * {@link #NORMALIZE} (or {@link #RESAMPLE}) phases inside it. The {@link #BIOMES} phase is reported by
+     * {@link BiomeMapper#makeBiomes(WorldMapGenerator)} and the {@link #COLORS} phase by {@link WorldMapView#show()}.
+     * The current {@link WorldMapGenerator#zoom} and size can be read from the world passed to each method.
+     * <br>
+     * Methods here are called on whatever thread is doing the generation, so implementations should be quick and
+     * should not throw; a typical implementation records the elapsed time in a histogram for later export.
+     */
+    public interface GenerationListener
+    {
+        /**
+         * Phase constant for one full regeneration of the map, which contains the other generation phases.
+         */
+        int REGENERATE = 0,
+        /**
+         * Phase constant for the first pass, which evaluates noise for height, heat, and moisture in each cell.
+         */
+        NOISE = 1,
+        /**
+         * Phase constant for the second pass, which assigns height codes and shapes heat by latitude and elevation.
+         */
+        HEAT = 2,
+        /**
+         * Phase constant for the third pass, which normalizes heat and moisture into their final ranges.
+         */
+        NORMALIZE = 3,
+        /**
+         * Phase constant for copying cells from a stored map instead of evaluating noise, as in
+         * {@link RotatingSpaceMap#setCenterLongitude(double)}.
+         */
+        RESAMPLE = 4,
+        /**
+         * Phase constant for {@link BiomeMapper#makeBiomes(WorldMapGenerator)}.
+         */
+        BIOMES = 5,
+        /**
+         * Phase constant for {@link WorldMapView#show()}.
+         */
+        COLORS = 6;
+
+        /**
+         * Names for each phase constant, in order, so {@code PHASE_NAMES[phase]} describes a phase.
+         */
+        String[] PHASE_NAMES = {"regenerate", "noise", "heat", "normalize", "resample", "biomes", "colors"};
+
+        /**
+         * Called just before a phase starts.
+         * @param world the WorldMapGenerator being generated, or the one a biome mapper or view is reading from
+         * @param phase one of the phase constants in this interface, such as {@link #NOISE}
+         */
+        void phaseStarted(WorldMapGenerator world, int phase);
+
+        /**
+         * Called just after a phase finishes.
+         * @param world the WorldMapGenerator being generated, or the one a biome mapper or view is reading from
+         * @param phase one of the phase constants in this interface, such as {@link #NOISE}
+         * @param nanos how many nanoseconds of wall time the phase took
+         * @param cells how many cells the phase processed
+         * @param noiseCalls how many calls to Noise methods the phase made; for {@link #REGENERATE}, the total of the
+         *                   phases inside it
+         */
+        void phaseFinished(WorldMapGenerator world, int phase, long nanos, int cells, int noiseCalls);
+    }
+
     public interface BiomeMapper
     {
         /**
@@ -719,6 +1792,83 @@ public abstract class WorldMapGenerator implements Serializable {
          */
         void makeBiomes(WorldMapGenerator world);
     }
+
+    /**
+     * A {@link BiomeMapper} that can also map just part of a world, and can write into flat arrays instead of its own
+     * 2D fields. After {@link #prepareBiomes(WorldMapGenerator, boolean)} has been called for a world, the
+     * {@code mapRegion} methods can be called from several threads at once on regions that don't overlap, which is
+     * how {@link ParallelBiomeMapper} splits the work. Both {@link SimpleBiomeMapper} and {@link DetailedBiomeMapper}
+     * implement this.
+     */
+    public interface RegionBiomeMapper extends BiomeMapper
+    {
+        /**
+         * Maps only the cells with x from {@code startX} (inclusive) to {@code endX} (exclusive) and y from
+         * {@code startY} (inclusive) to {@code endY} (exclusive), leaving the rest of the stored codes as they were;
+         * useful when only part of a world changed. The bounds are clamped to the world's size. This prepares the
+         * mapper for the world itself, so it doesn't need {@link #prepareBiomes(WorldMapGenerator, boolean)} first.
+         * @param world a WorldMapGenerator that should have generated at least one map; it may be at any zoom
+         * @param startX the lowest x to map, inclusive
+         * @param startY the lowest y to map, inclusive
+         * @param endX the highest x to map, exclusive
+         * @param endY the highest y to map, exclusive
+         */
+        void makeBiomes(WorldMapGenerator world, int startX, int startY, int endX, int endY);
+
+        /**
+         * Gets this mapper ready to map {@code world} with either {@code mapRegion} method, computing anything that
+         * depends on the whole world (like its heat range) and, if {@code allocate} is true, making sure the 2D code
+         * arrays match the world's size. This must be called on one thread before any calls to mapRegion for the same
+         * world.
+         * @param world a WorldMapGenerator that should have generated at least one map
+         * @param allocate true if the 2D code arrays will be written to and should be sized to fit world
+         */
+        void prepareBiomes(WorldMapGenerator world, boolean allocate);
+
+        /**
+         * Maps a region of {@code world} into this mapper's 2D code arrays, without clamping bounds or reporting to a
+         * {@link GenerationListener}. Requires {@link #prepareBiomes(WorldMapGenerator, boolean)} to have been called
+         * with {@code allocate} set to true. Calls on regions that don't overlap can run at the same time.
+         * @param world the WorldMapGenerator this was prepared for
+         * @param startX the lowest x to map, inclusive; must be at least 0
+         * @param startY the lowest y to map, inclusive; must be at least 0
+         * @param endX the highest x to map, exclusive; must be at most {@code world.width}
+         * @param endY the highest y to map, exclusive; must be at most {@code world.height}
+         */
+        void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY);
+
+        /**
+         * Maps a region of {@code world} into flat, row-major arrays, where the cell at x,y is at index
+         * {@code y * world.width + x}, without clamping bounds or reporting to a {@link GenerationListener}. This
+         * doesn't touch this mapper's 2D code arrays. Requires {@link #prepareBiomes(WorldMapGenerator, boolean)} to
+         * have been called. Calls on regions that don't overlap can run at the same time. Cells in space only have
+         * their biome code written, as with {@link #makeBiomes(WorldMapGenerator)}.
+         * @param world the WorldMapGenerator this was prepared for
+         * @param startX the lowest x to map, inclusive; must be at least 0
+         * @param startY the lowest y to map, inclusive; must be at least 0
+         * @param endX the highest x to map, exclusive; must be at most {@code world.width}
+         * @param endY the highest y to map, exclusive; must be at most {@code world.height}
+         * @param heatCodes receives heat codes; may be null to skip them, otherwise must have at least
+         *                  {@code world.width * world.height} elements
+         * @param moistureCodes receives moisture codes; may be null to skip them, otherwise must have at least
+         *                      {@code world.width * world.height} elements
+         * @param biomeCodes receives biome codes; must have at least {@code world.width * world.height} elements
+         */
+        void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY,
+                       int[] heatCodes, int[] moistureCodes, int[] biomeCodes);
+
+        /**
+         * Classifies the single cell at x,y of {@code world} without storing anything, so the codes can be used right
+         * away; {@link WorldMapView#generateAndShow()} uses this to color cells as soon as they are generated. Requires
+         * {@link #prepareBiomes(WorldMapGenerator, boolean)} to have been called for the world.
+         * @param world the WorldMapGenerator this was prepared for
+         * @param x the x-coordinate of the cell
+         * @param y the y-coordinate of the cell
+         * @return the biome code in the low 32 bits, the heat code in bits 32-35, and the moisture code in bits 40-43;
+         *         for a cell in space, the biome code is 60 and the other codes are 0
+         */
+        long classifyCell(WorldMapGenerator world, int x, int y);
+    }
     /**
      * A way to get biome information for the cells on a map when you only need a single value to describe a biome, such
      * as "Grassland" or "TropicalRainforest".
@@ -737,7 +1887,7 @@ public abstract class WorldMapGenerator implements Serializable {
      * enough to tell that a space is off-map. This also assigns moisture codes and heat codes from 0 to 5 for each
      * cell, which may be useful to simplify logic that deals with those factors.
      */
-    public static class SimpleBiomeMapper implements BiomeMapper
+    public static class SimpleBiomeMapper implements RegionBiomeMapper
     {
         /**
          * The heat codes for the analyzed map, from 0 to 5 inclusive, with 0 coldest and 5 hottest.
@@ -837,64 +1987,146 @@ public abstract class WorldMapGenerator implements Serializable {
          */
         @Override
         public void makeBiomes(WorldMapGenerator world) {
+            if(world == null)
+                return;
+            makeBiomes(world, 0, 0, world.width, world.height);
+        }
+
+        @Override
+        public void makeBiomes(WorldMapGenerator world, int startX, int startY, int endX, int endY) {
             if(world == null || world.width <= 0 || world.height <= 0)
                 return;
-            if(heatCodeData == null || (heatCodeData.length != world.width || heatCodeData[0].length != world.height))
-                heatCodeData = new int[world.width][world.height];
-            if(moistureCodeData == null || (moistureCodeData.length != world.width || moistureCodeData[0].length != world.height))
-                moistureCodeData = new int[world.width][world.height];
-            if(biomeCodeData == null || (biomeCodeData.length != world.width || biomeCodeData[0].length != world.height))
-                biomeCodeData = new int[world.width][world.height];
-            final double i_hot = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
-            for (int x = 0; x < world.width; x++) {
-                for (int y = 0; y < world.height; y++) {
-                    final double hot = (world.heatData[x][y] - world.minHeat) * i_hot, moist = world.moistureData[x][y];
-                    final int heightCode = world.heightCodeData[x][y];
+            startX = Math.max(startX, 0);
+            startY = Math.max(startY, 0);
+            endX = Math.min(endX, world.width);
+            endY = Math.min(endY, world.height);
+            if(startX >= endX || startY >= endY)
+                return;
+            prepareBiomes(world, true);
+            final long phaseStart = world.startPhase(GenerationListener.BIOMES);
+            mapRegion(world, startX, startY, endX, endY);
+            world.finishPhase(GenerationListener.BIOMES, phaseStart, (endX - startX) * (endY - startY), 0);
+        }
+
+        /**
+         * The heat range of the world this was last prepared for, used by {@link #classifyCell(WorldMapGenerator, int, int)}.
+         */
+        private double preparedMinHeat = 0.0, preparedInverseHeat = 1.0;
+
+        @Override
+        public void prepareBiomes(WorldMapGenerator world, boolean allocate) {
+            if(allocate) {
+                if(heatCodeData == null || (heatCodeData.length != world.width || heatCodeData[0].length != world.height))
+                    heatCodeData = new int[world.width][world.height];
+                if(moistureCodeData == null || (moistureCodeData.length != world.width || moistureCodeData[0].length != world.height))
+                    moistureCodeData = new int[world.width][world.height];
+                if(biomeCodeData == null || (biomeCodeData.length != world.width || biomeCodeData[0].length != world.height))
+                    biomeCodeData = new int[world.width][world.height];
+            }
+            preparedMinHeat = world.minHeat;
+            preparedInverseHeat = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
+        }
+
+        @Override
+        public long classifyCell(WorldMapGenerator world, int x, int y) {
+            final int heightCode = world.heightCodeData[x][y];
+            if(heightCode == 1000)
+                return 60L;
+            return mapCell((world.heatData[x][y] - preparedMinHeat) * preparedInverseHeat, world.moistureData[x][y], heightCode);
+        }
+
+        @Override
+        public void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY) {
+            final int[][] heightCodeData = world.heightCodeData;
+            final double[][] heatData = world.heatData, moistureData = world.moistureData;
+            final double minHeat = world.minHeat, i_hot = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
+            int heightCode;
+            long cell;
+            for (int x = startX; x < endX; x++) {
+                for (int y = startY; y < endY; y++) {
+                    heightCode = heightCodeData[x][y];
                     if(heightCode == 1000) {
                         biomeCodeData[x][y] = 60;
                         continue;
                     }
-                    int hc, mc;
-                    boolean isLake = false,// world.generateRivers && heightCode >= 4 && fresh > 0.65 && fresh + moist * 2.35 > 2.75,//world.partialLakeData.contains(x, y) && heightCode >= 4,
-                            isRiver = false;// world.generateRivers && !isLake && heightCode >= 4 && fresh > 0.55 && fresh + moist * 2.2 > 2.15;//world.partialRiverData.contains(x, y) && heightCode >= 4;
-                    if(heightCode < 4) {
-                        mc = 9;
-                    }
-                    else if (moist > wetterValueUpper) {
-                        mc = 5;
-                    } else if (moist > wetValueUpper) {
-                        mc = 4;
-                    } else if (moist > dryValueUpper) {
-                        mc = 3;
-                    } else if (moist > drierValueUpper) {
-                        mc = 2;
-                    } else if (moist > driestValueUpper) {
-                        mc = 1;
-                    } else {
-                        mc = 0;
-                    }
+                    cell = mapCell((heatData[x][y] - minHeat) * i_hot, moistureData[x][y], heightCode);
+                    heatCodeData[x][y] = (int) (cell >>> 32) & 15;
+                    moistureCodeData[x][y] = (int) (cell >>> 40) & 15;
+                    biomeCodeData[x][y] = (int) cell;
+                }
+            }
+        }
 
-                    if (hot > warmerValueUpper) {
-                        hc = 5;
-                    } else if (hot > warmValueUpper) {
-                        hc = 4;
-                    } else if (hot > coldValueUpper) {
-                        hc = 3;
-                    } else if (hot > colderValueUpper) {
-                        hc = 2;
-                    } else if (hot > coldestValueUpper) {
-                        hc = 1;
-                    } else {
-                        hc = 0;
+        @Override
+        public void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY,
+                              int[] heatCodes, int[] moistureCodes, int[] biomeCodes) {
+            final int[][] heightCodeData = world.heightCodeData;
+            final double[][] heatData = world.heatData, moistureData = world.moistureData;
+            final double minHeat = world.minHeat, i_hot = (world.maxHeat == world.minHeat) ? 1.0 : 1.0 / (world.maxHeat - world.minHeat);
+            final int width = world.width;
+            int heightCode, i;
+            long cell;
+            for (int y = startY; y < endY; y++) {
+                i = y * width + startX;
+                for (int x = startX; x < endX; x++, i++) {
+                    heightCode = heightCodeData[x][y];
+                    if(heightCode == 1000) {
+                        biomeCodes[i] = 60;
+                        continue;
                     }
-
-                    heatCodeData[x][y] = hc;
-                    moistureCodeData[x][y] = mc;
-                    biomeCodeData[x][y] = heightCode < 4 ? hc + 54 // 54 == 9 * 6, 9 is used for Ocean groups
-                            : isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
+                    cell = mapCell((heatData[x][y] - minHeat) * i_hot, moistureData[x][y], heightCode);
+                    if(heatCodes != null)
+                        heatCodes[i] = (int) (cell >>> 32) & 15;
+                    if(moistureCodes != null)
+                        moistureCodes[i] = (int) (cell >>> 40) & 15;
+                    biomeCodes[i] = (int) cell;
                 }
             }
         }
+
+        /**
+         * Classifies one cell that isn't in space, given its heat already scaled to the 0.0 to 1.0 range.
+         * @return the biome code in the low 32 bits, the heat code in bits 32-35, and the moisture code in bits 40-43
+         */
+        private static long mapCell(final double hot, final double moist, final int heightCode) {
+            int hc, mc;
+            boolean isLake = false,// world.generateRivers && heightCode >= 4 && fresh > 0.65 && fresh + moist * 2.35 > 2.75,//world.partialLakeData.contains(x, y) && heightCode >= 4,
+                    isRiver = false;// world.generateRivers && !isLake && heightCode >= 4 && fresh > 0.55 && fresh + moist * 2.2 > 2.15;//world.partialRiverData.contains(x, y) && heightCode >= 4;
+            if(heightCode < 4) {
+                mc = 9;
+            }
+            else if (moist > wetterValueUpper) {
+                mc = 5;
+            } else if (moist > wetValueUpper) {
+                mc = 4;
+            } else if (moist > dryValueUpper) {
+                mc = 3;
+            } else if (moist > drierValueUpper) {
+                mc = 2;
+            } else if (moist > driestValueUpper) {
+                mc = 1;
+            } else {
+                mc = 0;
+            }
+
+            if (hot > warmerValueUpper) {
+                hc = 5;
+            } else if (hot > warmValueUpper) {
+                hc = 4;
+            } else if (hot > coldValueUpper) {
+                hc = 3;
+            } else if (hot > colderValueUpper) {
+                hc = 2;
+            } else if (hot > coldestValueUpper) {
+                hc = 1;
+            } else {
+                hc = 0;
+            }
+
+            final int bc = heightCode < 4 ? hc + 54 // 54 == 9 * 6, 9 is used for Ocean groups
+                    : isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
+            return (bc & 0xFFFFFFFFL) | (long) hc << 32 | (long) mc << 40;
+        }
     }
     /**
      * A way to get biome information for the cells on a map when you want an area's biome to be a combination of two
@@ -910,7 +2142,7 @@ public abstract class WorldMapGenerator implements Serializable {
      * with the extractPart methods. The extractMixAmount() method gets a float that is the amount by which biome B
      * affects biome A; if this is higher than 0.5, then biome B is the "dominant" biome in the area.
      */
-    public static class DetailedBiomeMapper implements BiomeMapper
+    public static class DetailedBiomeMapper implements RegionBiomeMapper
     {
         /**
          * The heat codes for the analyzed map, from 0 to 5 inclusive, with 0 coldest and 5 hottest.
@@ -984,6 +2216,129 @@ public abstract class WorldMapGenerator implements Serializable {
                 wetterValueLower = 0.8,    wetterValueUpper  = 0.9,  // 4
                 wettestValueLower = 0.9,   wettestValueUpper = 1.0;  // 5
 
+        /**
+         * How many buckets per unit of moisture (or per {@link WorldMapGenerator#maxHeat} of heat) the lookup tables
+         * used by {@link #makeBiomes(WorldMapGenerator)} have. Every threshold is more than 1/64 away from its
+         * neighbors, so with this many buckets, each bucket contains at most one threshold.
+         */
+        private static final int LOOKUP_SIZE = 256;
+
+        /**
+         * The lowest moisture for each of moisture codes 1 through 5 in the first (part A) classification. These are
+         * the same expressions {@link #makeBiomes(WorldMapGenerator)} used to compare against directly.
+         */
+        private static final double[] wetThresholdsA = {
+                drierValueUpper - (driestValueUpper) * 0.2,
+                dryValueUpper - (drierValueUpper - drierValueLower) * 0.2,
+                wetValueUpper - (dryValueUpper - dryValueLower) * 0.2,
+                wetterValueUpper - (wetValueUpper - wetValueLower) * 0.2,
+                wettestValueUpper - (wetterValueUpper - wetterValueLower) * 0.2,
+        },
+        /**
+         * The lowest moisture for each of moisture codes 1 through 5 in the second (part B) classification.
+         */
+        wetThresholdsB = {
+                driestValueUpper + (drierValueUpper - drierValueLower) * 0.2,
+                drierValueUpper + (dryValueUpper - dryValueLower) * 0.2,
+                dryValueUpper + (wetValueUpper - wetValueLower) * 0.2,
+                wetValueUpper + (wetterValueUpper - wetterValueLower) * 0.2,
+                wetterValueUpper + (wettestValueUpper - wettestValueLower) * 0.2,
+        },
+        /**
+         * The lowest heat for each of heat codes 1 through 5 in the first (part A) classification, before being
+         * multiplied by the inverse of {@link WorldMapGenerator#maxHeat}.
+         */
+        heatLimitsA = {
+                colderValueUpper - (coldestValueUpper) * 0.2,
+                coldValueUpper - (colderValueUpper - colderValueLower) * 0.2,
+                warmValueUpper - (coldValueUpper - coldValueLower) * 0.2,
+                warmerValueUpper - (warmValueUpper - warmValueLower) * 0.2,
+                warmestValueUpper - (warmerValueUpper - warmerValueLower) * 0.2,
+        },
+        /**
+         * The lowest heat for each of heat codes 1 through 5 in the second (part B) classification, before being
+         * multiplied by the inverse of {@link WorldMapGenerator#maxHeat}.
+         */
+        heatLimitsB = {
+                coldestValueUpper + (colderValueUpper - colderValueLower) * 0.2,
+                colderValueUpper + (coldValueUpper - coldValueLower) * 0.2,
+                coldValueUpper + (warmValueUpper - warmValueLower) * 0.2,
+                warmValueUpper + (warmerValueUpper - warmerValueLower) * 0.2,
+                warmerValueUpper + (warmestValueUpper - warmestValueLower) * 0.2,
+        };
+
+        private static final byte[] wetLookupA = new byte[LOOKUP_SIZE + 1], wetLookupB = new byte[LOOKUP_SIZE + 1];
+        static {
+            fillLookup(wetLookupA, wetThresholdsA, LOOKUP_SIZE);
+            fillLookup(wetLookupB, wetThresholdsB, LOOKUP_SIZE);
+        }
+
+        /**
+         * Heat thresholds and lookup tables for the world most recently analyzed; these only depend on the inverse of
+         * that world's {@link WorldMapGenerator#maxHeat}, so they are rebuilt only when that changes.
+         */
+        private final double[] heatThresholdsA = new double[5], heatThresholdsB = new double[5];
+        private final byte[] heatLookupA = new byte[LOOKUP_SIZE + 1], heatLookupB = new byte[LOOKUP_SIZE + 1];
+        private double lookupInverseHeat = Double.NaN, heatScale = Double.NaN;
+        private boolean heatLookupValid = false;
+
+        /**
+         * Finds how many of the 5 ascending {@code thresholds} are less than or equal to {@code value}, checking from
+         * the highest threshold down; this is the same as the original chain of comparisons, and works even if the
+         * thresholds are not ascending.
+         */
+        private static int classify(final double value, final double[] thresholds) {
+            for (int code = 5; code > 0; code--) {
+                if(value >= thresholds[code - 1])
+                    return code;
+            }
+            return 0;
+        }
+
+        /**
+         * Gets the same result as {@link #classify(double, double[])} for ascending thresholds, by looking up a code
+         * that is no higher than the correct one in {@code table} and then checking the next threshold up, which only
+         * matters in the few buckets that contain a threshold.
+         */
+        private static int lookup(final double value, final double scale, final byte[] table, final double[] thresholds) {
+            int code = table[Math.min(Math.max((int) (value * scale), 0), LOOKUP_SIZE)];
+            while (code < 5 && value >= thresholds[code])
+                ++code;
+            return code;
+        }
+
+        /**
+         * Fills {@code table} so each bucket holds the code of the value at the start of the previous bucket, which is
+         * always at most the code of any value that {@link #lookup(double, double, byte[], double[])} puts in that
+         * bucket, even allowing for rounding.
+         */
+        private static void fillLookup(final byte[] table, final double[] thresholds, final double scale) {
+            for (int i = 0; i <= LOOKUP_SIZE; i++) {
+                table[i] = (byte) classify((i - 1) / scale, thresholds);
+            }
+        }
+
+        /**
+         * Rebuilds the heat thresholds and lookup tables if {@code i_hot} differs from the last value they were built
+         * for. The lookup tables are only used when the thresholds are ascending, which needs a positive, finite
+         * {@code i_hot}.
+         */
+        private void prepareHeat(final double i_hot) {
+            if(Double.doubleToLongBits(i_hot) == Double.doubleToLongBits(lookupInverseHeat))
+                return;
+            lookupInverseHeat = i_hot;
+            heatScale = LOOKUP_SIZE * i_hot;
+            for (int i = 0; i < 5; i++) {
+                heatThresholdsA[i] = heatLimitsA[i] * i_hot;
+                heatThresholdsB[i] = heatLimitsB[i] * i_hot;
+            }
+            heatLookupValid = i_hot > 0.0 && i_hot < Double.POSITIVE_INFINITY;
+            if(heatLookupValid) {
+                fillLookup(heatLookupA, heatThresholdsA, heatScale);
+                fillLookup(heatLookupB, heatThresholdsB, heatScale);
+            }
+        }
+
         /**
          * The default biome table to use with parts of biome codes from {@link #biomeCodeData}. Biomes are assigned by
          * heat and moisture for the first 36 of 61 elements (coldest to warmest for each group of 6, with the first
@@ -1076,14 +2431,36 @@ public abstract class WorldMapGenerator implements Serializable {
         }
 
         /**
-         * Simple constructor; pretty much does nothing. Make sure to call {@link #makeBiomes(WorldMapGenerator)} before
-         * using fields like {@link #biomeCodeData}.
+         * Simple constructor; pretty much does nothing. Make sure to call {@link #makeBiomes(WorldMapGenerator)} before
+         * using fields like {@link #biomeCodeData}.
+         */
+        public DetailedBiomeMapper()
+        {
+            heatCodeData = null;
+            moistureCodeData = null;
+            biomeCodeData = null;
+        }
+
+        /**
+         * Copies the heat, moisture, and biome codes of {@code other}, so the copy can be used (such as on another
+         * thread) without sharing any arrays it writes to.
+         * @param other a DetailedBiomeMapper to copy
+         */
+        public DetailedBiomeMapper(DetailedBiomeMapper other)
+        {
+            heatCodeData = WorldMapGenerator.copy(other.heatCodeData);
+            moistureCodeData = WorldMapGenerator.copy(other.moistureCodeData);
+            biomeCodeData = WorldMapGenerator.copy(other.biomeCodeData);
+        }
+
+        /**
+         * Makes a copy of this mapper with its own code arrays; subclasses should override this to return their own
+         * type, so code that copies a mapper it was given, like {@link WorldMapView#copy()}, keeps any changed behavior.
+         * @return a copy of this DetailedBiomeMapper
          */
-        public DetailedBiomeMapper()
+        public DetailedBiomeMapper copy()
         {
-            heatCodeData = null;
-            moistureCodeData = null;
-            biomeCodeData = null;
+            return new DetailedBiomeMapper(this);
         }
 
         /**
@@ -1096,108 +2473,148 @@ public abstract class WorldMapGenerator implements Serializable {
          */
         @Override
         public void makeBiomes(WorldMapGenerator world) {
+            if(world == null)
+                return;
+            makeBiomes(world, 0, 0, world.width, world.height);
+        }
+
+        @Override
+        public void makeBiomes(WorldMapGenerator world, int startX, int startY, int endX, int endY) {
             if(world == null || world.width <= 0 || world.height <= 0)
                 return;
-            if(heatCodeData == null || (heatCodeData.length != world.width || heatCodeData[0].length != world.height))
-                heatCodeData = new int[world.width][world.height];
-            if(moistureCodeData == null || (moistureCodeData.length != world.width || moistureCodeData[0].length != world.height))
-                moistureCodeData = new int[world.width][world.height];
-            if(biomeCodeData == null || (biomeCodeData.length != world.width || biomeCodeData[0].length != world.height))
-                biomeCodeData = new int[world.width][world.height];
+            startX = Math.max(startX, 0);
+            startY = Math.max(startY, 0);
+            endX = Math.min(endX, world.width);
+            endY = Math.min(endY, world.height);
+            if(startX >= endX || startY >= endY)
+                return;
+            prepareBiomes(world, true);
+            final long phaseStart = world.startPhase(GenerationListener.BIOMES);
+            mapRegion(world, startX, startY, endX, endY);
+            world.finishPhase(GenerationListener.BIOMES, phaseStart, (endX - startX) * (endY - startY), 0);
+        }
+
+        @Override
+        public void prepareBiomes(WorldMapGenerator world, boolean allocate) {
+            if(allocate) {
+                if(heatCodeData == null || (heatCodeData.length != world.width || heatCodeData[0].length != world.height))
+                    heatCodeData = new int[world.width][world.height];
+                if(moistureCodeData == null || (moistureCodeData.length != world.width || moistureCodeData[0].length != world.height))
+                    moistureCodeData = new int[world.width][world.height];
+                if(biomeCodeData == null || (biomeCodeData.length != world.width || biomeCodeData[0].length != world.height))
+                    biomeCodeData = new int[world.width][world.height];
+            }
+            prepareHeat(1.0 / world.maxHeat);
+        }
+
+        @Override
+        public long classifyCell(WorldMapGenerator world, int x, int y) {
+            final int heightCode = world.heightCodeData[x][y];
+            if(heightCode == 1000)
+                return 60L;
+            return mapCell(world.heatData[x][y], world.moistureData[x][y], world.heightData[x][y], heightCode);
+        }
+
+        /**
+         * Classifies a point that isn't part of any map, given the same height, height code, heat, and moisture its
+         * cell would have in {@code world}, such as the values {@link SphereMap#query(double, double, PointInfo)}
+         * finds. This uses the heat range of {@code world}, so it gives the same codes as mapping a map of it would.
+         * @param world the WorldMapGenerator the point belongs to; it must have generated a map already
+         * @param high the height of the point, as in {@link WorldMapGenerator#heightData}
+         * @param heightCode the height code of the point, as from {@link WorldMapGenerator#codeHeight(double)}
+         * @param hot the heat of the point, as in {@link WorldMapGenerator#heatData}
+         * @param moist the moisture of the point, as in {@link WorldMapGenerator#moistureData}
+         * @return the biome code in the low 32 bits, the heat code in bits 32-35, and the moisture code in bits 40-43
+         */
+        public long classifyPoint(WorldMapGenerator world, double high, int heightCode, double hot, double moist) {
+            if(heightCode == 1000)
+                return 60L;
+            prepareHeat(1.0 / world.maxHeat);
+            return mapCell(hot, moist, high, heightCode);
+        }
+
+        @Override
+        public void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY) {
             final int[][] heightCodeData = world.heightCodeData;
             final double[][] heatData = world.heatData, moistureData = world.moistureData, heightData = world.heightData;
-            int hc, mc, heightCode, bc;
-            double hot, moist, high, i_hot = 1.0 / world.maxHeat;
-            for (int x = 0; x < world.width; x++) {
-                for (int y = 0; y < world.height; y++) {
-
+            int heightCode;
+            long cell;
+            for (int x = startX; x < endX; x++) {
+                for (int y = startY; y < endY; y++) {
                     heightCode = heightCodeData[x][y];
                     if(heightCode == 1000) {
                         biomeCodeData[x][y] = 60;
                         continue;
                     }
-                    hot = heatData[x][y];
-                    moist = moistureData[x][y];
-                    high = heightData[x][y];
-//                    fresh = world.freshwaterData[x][y];
-                    boolean isLake = false,//world.generateRivers && heightCode >= 4 && fresh > 0.65 && fresh + moist * 2.35 > 2.75,//world.partialLakeData.contains(x, y) && heightCode >= 4,
-                            isRiver = false;//world.generateRivers && !isLake && heightCode >= 4 && fresh > 0.55 && fresh + moist * 2.2 > 2.15;//world.partialRiverData.contains(x, y) && heightCode >= 4;
-                    if (moist >= (wettestValueUpper - (wetterValueUpper - wetterValueLower) * 0.2)) {
-                        mc = 5;
-                    } else if (moist >= (wetterValueUpper - (wetValueUpper - wetValueLower) * 0.2)) {
-                        mc = 4;
-                    } else if (moist >= (wetValueUpper - (dryValueUpper - dryValueLower) * 0.2)) {
-                        mc = 3;
-                    } else if (moist >= (dryValueUpper - (drierValueUpper - drierValueLower) * 0.2)) {
-                        mc = 2;
-                    } else if (moist >= (drierValueUpper - (driestValueUpper) * 0.2)) {
-                        mc = 1;
-                    } else {
-                        mc = 0;
-                    }
-
-                    if (hot >= (warmestValueUpper - (warmerValueUpper - warmerValueLower) * 0.2) * i_hot) {
-                        hc = 5;
-                    } else if (hot >= (warmerValueUpper - (warmValueUpper - warmValueLower) * 0.2) * i_hot) {
-                        hc = 4;
-                    } else if (hot >= (warmValueUpper - (coldValueUpper - coldValueLower) * 0.2) * i_hot) {
-                        hc = 3;
-                    } else if (hot >= (coldValueUpper - (colderValueUpper - colderValueLower) * 0.2) * i_hot) {
-                        hc = 2;
-                    } else if (hot >= (colderValueUpper - (coldestValueUpper) * 0.2) * i_hot) {
-                        hc = 1;
-                    } else {
-                        hc = 0;
-                    }
-
-                    heatCodeData[x][y] = hc;
-                    moistureCodeData[x][y] = mc;
-                    bc = heightCode < 4 ? hc + 54 // 54 == 9 * 6, 9 is used for Ocean groups
-                            : isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
-
-                    if(heightCode < 4) {
-                        mc = 9;
-                    }
-                    else if (moist >= (wetterValueUpper + (wettestValueUpper - wettestValueLower) * 0.2)) {
-                        mc = 5;
-                    } else if (moist >= (wetValueUpper + (wetterValueUpper - wetterValueLower) * 0.2)) {
-                        mc = 4;
-                    } else if (moist >= (dryValueUpper + (wetValueUpper - wetValueLower) * 0.2)) {
-                        mc = 3;
-                    } else if (moist >= (drierValueUpper + (dryValueUpper - dryValueLower) * 0.2)) {
-                        mc = 2;
-                    } else if (moist >= (driestValueUpper + (drierValueUpper - drierValueLower) * 0.2)) {
-                        mc = 1;
-                    } else {
-                        mc = 0;
-                    }
+                    cell = mapCell(heatData[x][y], moistureData[x][y], heightData[x][y], heightCode);
+                    heatCodeData[x][y] = (int) (cell >>> 32) & 15;
+                    moistureCodeData[x][y] = (int) (cell >>> 40) & 15;
+                    biomeCodeData[x][y] = (int) cell;
+                }
+            }
+        }
 
-                    if (hot >= (warmerValueUpper + (warmestValueUpper - warmestValueLower) * 0.2) * i_hot) {
-                        hc = 5;
-                    } else if (hot >= (warmValueUpper + (warmerValueUpper - warmerValueLower) * 0.2) * i_hot) {
-                        hc = 4;
-                    } else if (hot >= (coldValueUpper + (warmValueUpper - warmValueLower) * 0.2) * i_hot) {
-                        hc = 3;
-                    } else if (hot >= (colderValueUpper + (coldValueUpper - coldValueLower) * 0.2) * i_hot) {
-                        hc = 2;
-                    } else if (hot >= (coldestValueUpper + (colderValueUpper - colderValueLower) * 0.2) * i_hot) {
-                        hc = 1;
-                    } else {
-                        hc = 0;
+        @Override
+        public void mapRegion(WorldMapGenerator world, int startX, int startY, int endX, int endY,
+                              int[] heatCodes, int[] moistureCodes, int[] biomeCodes) {
+            final int[][] heightCodeData = world.heightCodeData;
+            final double[][] heatData = world.heatData, moistureData = world.moistureData, heightData = world.heightData;
+            final int width = world.width;
+            int heightCode, i;
+            long cell;
+            for (int y = startY; y < endY; y++) {
+                i = y * width + startX;
+                for (int x = startX; x < endX; x++, i++) {
+                    heightCode = heightCodeData[x][y];
+                    if(heightCode == 1000) {
+                        biomeCodes[i] = 60;
+                        continue;
                     }
-
-                    bc |= (hc + mc * 6) << 10;
-                    if(heightCode < 4)
-                        biomeCodeData[x][y] = bc | (int)((heightData[x][y] + 1.0) * 1000.0) << 20;
-                    else if (isRiver || isLake)
-                        biomeCodeData[x][y] = bc | (int)(moist * 358.4 + 665.0) << 20;
-                    else
-                        biomeCodeData[x][y] = bc | (int) ((heightCode == 4)
-                                ? (sandUpper - high) * 10240.0 // multiplier affected by changes to sandLower
-                                : TrigTools.sin_((high + moist) * (4.1 + high - hot)) * 512 + 512) << 20;
+                    cell = mapCell(heatData[x][y], moistureData[x][y], heightData[x][y], heightCode);
+                    if(heatCodes != null)
+                        heatCodes[i] = (int) (cell >>> 32) & 15;
+                    if(moistureCodes != null)
+                        moistureCodes[i] = (int) (cell >>> 40) & 15;
+                    biomeCodes[i] = (int) cell;
                 }
             }
         }
+
+        /**
+         * Classifies one cell that isn't in space; {@link #prepareHeat(double)} must have been called for its world.
+         * @return the biome code in the low 32 bits, the heat code in bits 32-35, and the moisture code in bits 40-43
+         */
+        private long mapCell(final double hot, final double moist, final double high, final int heightCode) {
+            int hc, mc, bc;
+            boolean isLake = false,//world.generateRivers && heightCode >= 4 && fresh > 0.65 && fresh + moist * 2.35 > 2.75,//world.partialLakeData.contains(x, y) && heightCode >= 4,
+                    isRiver = false;//world.generateRivers && !isLake && heightCode >= 4 && fresh > 0.55 && fresh + moist * 2.2 > 2.15;//world.partialRiverData.contains(x, y) && heightCode >= 4;
+            mc = lookup(moist, LOOKUP_SIZE, wetLookupA, wetThresholdsA);
+            hc = heatLookupValid ? lookup(hot, heatScale, heatLookupA, heatThresholdsA)
+                    : classify(hot, heatThresholdsA);
+            final long codes = (long) hc << 32 | (long) mc << 40;
+            bc = heightCode < 4 ? hc + 54 // 54 == 9 * 6, 9 is used for Ocean groups
+                    : isLake ? hc + 48 : (isRiver ? hc + 42 : ((heightCode == 4) ? hc + 36 : hc + mc * 6));
+
+            if(heightCode < 4) {
+                mc = 9;
+            }
+            else {
+                mc = lookup(moist, LOOKUP_SIZE, wetLookupB, wetThresholdsB);
+            }
+            hc = heatLookupValid ? lookup(hot, heatScale, heatLookupB, heatThresholdsB)
+                    : classify(hot, heatThresholdsB);
+
+            bc |= (hc + mc * 6) << 10;
+            if(heightCode < 4)
+                bc |= (int)((high + 1.0) * 1000.0) << 20;
+            else if (isRiver || isLake)
+                bc |= (int)(moist * 358.4 + 665.0) << 20;
+            else
+                bc |= (int) ((heightCode == 4)
+                        ? (sandUpper - high) * 10240.0 // multiplier affected by changes to sandLower
+                        : TrigTools.sin_((high + moist) * (4.1 + high - hot)) * 512 + 512) << 20;
+            return (bc & 0xFFFFFFFFL) | codes;
+        }
     }
     
     /**
@@ -1217,12 +2634,29 @@ public abstract class WorldMapGenerator implements Serializable {
         private double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
 
         public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
-
+        /**
+         * Holds the sine and cosine of each column's longitude, interleaved, while {@link #regenerate} runs; kept here
+         * so regenerating doesn't allocate.
+         */
+        protected final double[] trigTable;
+        /**
+         * Answers {@link #query(double, double, double, PointInfo)}; made when first needed.
+         */
+        protected transient PointSampler querySampler;
 
         /**
          * Constructs a concrete WorldMapGenerator for a map that can be used to wrap a sphere (as with a texture on a
@@ -1329,18 +2763,34 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public SphereMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link SphereMap} with the given initial seed and size, building its Noise generators from
+         * {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of generators,
+         * including ones used on different threads, can share one NoiseConfiguration, since each builds its own Noise
+         * objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public SphereMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
-
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            trigTable = new double[width << 1];
+
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
         }
         @Override
         public int wrapY(final int x, final int y)  {
@@ -1348,33 +2798,393 @@ public abstract class WorldMapGenerator implements Serializable {
         }
 
         /**
-         * Copies the SphereMap {@code other} to construct a new one that is exactly the same. References will only be
-         * shared to Noise classes.
+         * Copies the SphereMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other a SphereMap to copy
          */
         public SphereMap(SphereMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
+            trigTable = new double[width << 1];
+        }
+
+        @Override
+        public SphereMap copy()
+        {
+            return new SphereMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
+
+        /**
+         * Finds the height, heat, moisture, and codes of one point on this world, given as a latitude and longitude,
+         * without generating a map. Latitude is in radians, from {@code PI/2} at the top edge of the map (north) to
+         * {@code -PI/2} at the bottom edge, and longitude is in radians east of the map's left edge (before
+         * {@link #centerLongitude} is added, as it is for the map), so a longitude of {@code x * 2 * PI / width}
+         * falls on column {@code x} of the unzoomed map. The heat and moisture are scaled using the ranges of the
+         * last map this generated (any zoom level keeps them), so a point query gives the same results as the
+         * map's cell would; if this hasn't generated a map for its current seed yet, it generates one first. Once it
+         * has, a query only takes a handful of noise calls. The approximate trigonometry in {@link TrigTools} can put
+         * the point a tiny distance away from where a map's cell center would be; to get a cell's values exactly, use
+         * {@link #query(double, double, double, PointInfo)} with that cell's position.
+         * <br>
+         * This isn't thread-safe; use a {@link #sampler()} on each other thread.
+         * @param latitude the latitude in radians, from {@code -PI/2} to {@code PI/2}
+         * @param longitude the longitude in radians, east of the map's left edge
+         * @param info a PointInfo to fill; if null, a new one will be made
+         * @return info, after filling it
+         */
+        public PointInfo query(double latitude, double longitude, PointInfo info)
+        {
+            return querySampler().query(latitude, longitude, info);
+        }
+
+        /**
+         * Finds the height, heat, moisture, and codes of one point on this world, given as a point on the unit sphere,
+         * without generating a map. The coordinates are the same ones this stores for each cell of a map in
+         * {@link #xPositions}, {@link #yPositions}, and {@link #zPositions}, where z is -1 at the top edge of the map
+         * and 1 at the bottom; querying those coordinates gives exactly the values of that cell. Otherwise, this works
+         * like {@link #query(double, double, PointInfo)}.
+         * @param x the x-coordinate of a point on the unit sphere
+         * @param y the y-coordinate of a point on the unit sphere
+         * @param z the z-coordinate of a point on the unit sphere, -1 at the top edge of the map
+         * @param info a PointInfo to fill; if null, a new one will be made
+         * @return info, after filling it
+         */
+        public PointInfo query(double x, double y, double z, PointInfo info)
+        {
+            return querySampler().query(x, y, z, info);
+        }
+
+        /**
+         * Gets a new {@link PointSampler} that answers point queries about this world as it is now, with its own
+         * Noise objects, so it can be used on another thread while this keeps generating or zooming. If this hasn't
+         * generated a map for its current seed yet, it generates one first.
+         * @return a new PointSampler for this world
+         */
+        public PointSampler sampler()
+        {
+            if(seedA != cacheA || seedB != cacheB)
+            {
+                generate(rng.nextLong());
+            }
+            return new PointSampler(this);
+        }
+
+        /**
+         * Gets the PointSampler that {@link #query(double, double, double, PointInfo)} uses, making a new one if the
+         * seed, modifiers, or heat and moisture ranges have changed since the last one was made.
+         */
+        protected PointSampler querySampler()
+        {
+            if(seedA != cacheA || seedB != cacheB)
+            {
+                generate(rng.nextLong());
+            }
+            if(querySampler == null || !querySampler.matches(this))
+                querySampler = new PointSampler(this);
+            return querySampler;
+        }
+
+        /**
+         * Answers point queries about one {@link SphereMap} using the same noise and scaling that its maps use, either
+         * one point at a time or in batches of parallel arrays. A PointSampler keeps a copy of everything it needs,
+         * including its own Noise objects, when it is made (with {@link SphereMap#sampler()} or by copying another
+         * PointSampler), so it keeps answering for the world as it was then even if the SphereMap goes on to generate
+         * other seeds, and it doesn't touch the SphereMap from then on. Each PointSampler should only be used by one
+         * thread at a time; copy it to get one for another thread.
+         * <br>
+         * The batch methods work in passes over the whole range of points: first any latitudes and longitudes are
+         * converted to unit-sphere positions, then all terrain noise is taken, then all heat noise, then all moisture
+         * noise, and then each point is scaled and classified. Each pass is a tight loop over primitive arrays, with
+         * no objects made per point.
+         */
+        public static class PointSampler
+        {
+            /**
+             * The SphereMap this answers for; only used for {@link WorldMapGenerator#codeHeight(double)}.
+             */
+            public final SphereMap world;
+            protected final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+            protected final long seedA, seedB, seedC;
+            protected final int stateA, stateB;
+            protected final double landModifier, heatModifier, centerLongitude, minHeat0, maxHeat0, minHeat1, maxHeat1,
+                    minWet0, maxWet0, maxHeat;
+            protected final DetailedBiomeMapper biomeMapper = new DetailedBiomeMapper();
+
+            /**
+             * Takes everything needed to answer queries from {@code world}, which must have generated a map for its
+             * current seed; {@link SphereMap#sampler()} makes sure of that.
+             * @param world a SphereMap that has generated a map
+             */
+            public PointSampler(SphereMap world)
+            {
+                this.world = world;
+                final NoiseConfiguration noiseConfiguration = world.noiseConfiguration;
+                terrain = noiseConfiguration.terrain.build(world.seedA);
+                terrainLayered = noiseConfiguration.terrainLayered.build(world.seedB);
+                heat = noiseConfiguration.heat.build(world.seedB);
+                moisture = noiseConfiguration.moisture.build(world.seedB);
+                otherRidged = noiseConfiguration.otherRidged.build(world.seedB);
+                stateA = world.cacheA;
+                stateB = world.cacheB;
+                final SilkRNG seeds = new SilkRNG(stateA, stateB);
+                seedA = seeds.nextLong();
+                seedB = seeds.nextLong();
+                seedC = seeds.nextLong();
+                landModifier = world.landModifier;
+                heatModifier = world.heatModifier;
+                centerLongitude = world.centerLongitude;
+                minHeat0 = world.minHeat0;
+                maxHeat0 = world.maxHeat0;
+                minHeat1 = world.minHeat1;
+                maxHeat1 = world.maxHeat1;
+                minWet0 = world.minWet0;
+                maxWet0 = world.maxWet0;
+                maxHeat = world.maxHeat;
+            }
+
+            /**
+             * Copies {@code other}, building new Noise objects so the copy can be used on another thread.
+             * @param other a PointSampler to copy
+             */
+            public PointSampler(PointSampler other)
+            {
+                world = other.world;
+                final NoiseConfiguration noiseConfiguration = world.noiseConfiguration;
+                terrain = noiseConfiguration.terrain.build(other.terrain.getSeed());
+                terrainLayered = noiseConfiguration.terrainLayered.build(other.terrainLayered.getSeed());
+                heat = noiseConfiguration.heat.build(other.heat.getSeed());
+                moisture = noiseConfiguration.moisture.build(other.moisture.getSeed());
+                otherRidged = noiseConfiguration.otherRidged.build(other.otherRidged.getSeed());
+                stateA = other.stateA;
+                stateB = other.stateB;
+                seedA = other.seedA;
+                seedB = other.seedB;
+                seedC = other.seedC;
+                landModifier = other.landModifier;
+                heatModifier = other.heatModifier;
+                centerLongitude = other.centerLongitude;
+                minHeat0 = other.minHeat0;
+                maxHeat0 = other.maxHeat0;
+                minHeat1 = other.minHeat1;
+                maxHeat1 = other.maxHeat1;
+                minWet0 = other.minWet0;
+                maxWet0 = other.maxWet0;
+                maxHeat = other.maxHeat;
+            }
+
+            /**
+             * Checks whether this still answers for {@code world} as it is now, that is, whether world has the same
+             * seed, modifiers, center longitude, and heat and moisture ranges this was made with.
+             * @param world a SphereMap
+             * @return true if this gives the same results world's maps would
+             */
+            public boolean matches(SphereMap world)
+            {
+                return world == this.world && world.cacheA == stateA && world.cacheB == stateB
+                        && world.landModifier == landModifier && world.heatModifier == heatModifier
+                        && world.centerLongitude == centerLongitude && world.minHeat0 == minHeat0
+                        && world.maxHeat0 == maxHeat0 && world.minHeat1 == minHeat1 && world.maxHeat1 == maxHeat1
+                        && world.minWet0 == minWet0 && world.maxWet0 == maxWet0 && world.maxHeat == maxHeat;
+            }
+
+            /**
+             * Finds one point by latitude and longitude, as {@link SphereMap#query(double, double, PointInfo)} does.
+             * @param latitude the latitude in radians, from {@code -PI/2} at the bottom of the map to {@code PI/2}
+             * @param longitude the longitude in radians, east of the map's left edge
+             * @param info a PointInfo to fill; if null, a new one will be made
+             * @return info, after filling it
+             */
+            public PointInfo query(double latitude, double longitude, PointInfo info)
+            {
+                final double qc = TrigTools.cos(latitude), p = longitude + centerLongitude;
+                return query(TrigTools.cos(p) * qc, TrigTools.sin(p) * qc, -TrigTools.sin(latitude), info);
+            }
+
+            /**
+             * Finds one point on the unit sphere, as {@link SphereMap#query(double, double, double, PointInfo)} does.
+             * @param x the x-coordinate of a point on the unit sphere
+             * @param y the y-coordinate of a point on the unit sphere
+             * @param z the z-coordinate of a point on the unit sphere, -1 at the top edge of the map
+             * @param info a PointInfo to fill; if null, a new one will be made
+             * @return info, after filling it
+             */
+            public PointInfo query(double x, double y, double z, PointInfo info)
+            {
+                if(info == null)
+                    info = new PointInfo();
+                final double h = info.height = terrainLayered.getNoiseWithSeed(x +
+                                terrain.getNoiseWithSeed(x, y, z, seedB - seedA) * 0.5,
+                        y, z, seedA) + landModifier - 1.0;
+                final int t = info.heightCode = world.codeHeight(h);
+                info.heat = scaleHeat(heat.getNoiseWithSeed(x, y
+                                + otherRidged.getNoiseWithSeed(x, y, z, seedB + seedC)
+                        , z, seedB), h, t, z);
+                info.moisture = (moisture.getNoiseWithSeed(x, y, z
+                                + otherRidged.getNoiseWithSeed(x, y, z, seedC + seedA)
+                        , seedC) - minWet0) * (1.0 / (maxWet0 - minWet0));
+                biomeMapper.prepareHeat(1.0 / maxHeat);
+                info.setCodes(biomeMapper.mapCell(info.heat, info.moisture, h, t));
+                return info;
+            }
+
+            /**
+             * Finds every point from index {@code start} (inclusive) to {@code end} (exclusive) of the given arrays of
+             * latitudes and longitudes, in radians as {@link #query(double, double, PointInfo)} takes them, storing
+             * results at the same indices of {@code out}. The unit-sphere positions of the points are stored in
+             * {@code out}'s x, y, and z arrays.
+             * @param latitudes latitudes in radians
+             * @param longitudes longitudes in radians, east of the map's left edge
+             * @param start the first index to query
+             * @param end the index after the last one to query
+             * @param out where results go; must have a capacity of at least end
+             */
+            public void query(double[] latitudes, double[] longitudes, int start, int end, PointBatch out)
+            {
+                final double[] xs = out.x, ys = out.y, zs = out.z;
+                double qc, p;
+                for (int i = start; i < end; i++) {
+                    qc = TrigTools.cos(latitudes[i]);
+                    p = longitudes[i] + centerLongitude;
+                    xs[i] = TrigTools.cos(p) * qc;
+                    ys[i] = TrigTools.sin(p) * qc;
+                    zs[i] = -TrigTools.sin(latitudes[i]);
+                }
+                query(xs, ys, zs, start, end, out);
+            }
+
+            /**
+             * Finds every point from index {@code start} (inclusive) to {@code end} (exclusive) of the given arrays of
+             * unit-sphere coordinates, as {@link #query(double, double, double, PointInfo)} takes them, storing results
+             * at the same indices of {@code out}. The coordinate arrays can be out's own x, y, and z arrays.
+             * @param xs x-coordinates of points on the unit sphere
+             * @param ys y-coordinates of points on the unit sphere
+             * @param zs z-coordinates of points on the unit sphere, -1 at the top edge of the map
+             * @param start the first index to query
+             * @param end the index after the last one to query
+             * @param out where results go; must have a capacity of at least end
+             */
+            public void query(double[] xs, double[] ys, double[] zs, int start, int end, PointBatch out)
+            {
+                final double[] height = out.height, heat = out.heat, moisture = out.moisture;
+                final int[] heightCode = out.heightCode;
+                double x, y, z;
+                for (int i = start; i < end; i++) {
+                    x = xs[i];
+                    y = ys[i];
+                    z = zs[i];
+                    height[i] = terrainLayered.getNoiseWithSeed(x +
+                                    terrain.getNoiseWithSeed(x, y, z, seedB - seedA) * 0.5,
+                            y, z, seedA) + landModifier - 1.0;
+                }
+                for (int i = start; i < end; i++) {
+                    x = xs[i];
+                    y = ys[i];
+                    z = zs[i];
+                    heat[i] = this.heat.getNoiseWithSeed(x, y
+                                    + otherRidged.getNoiseWithSeed(x, y, z, seedB + seedC)
+                            , z, seedB);
+                }
+                for (int i = start; i < end; i++) {
+                    x = xs[i];
+                    y = ys[i];
+                    z = zs[i];
+                    moisture[i] = this.moisture.getNoiseWithSeed(x, y, z
+                                    + otherRidged.getNoiseWithSeed(x, y, z, seedC + seedA)
+                            , seedC);
+                }
+                final double wetDiff = 1.0 / (maxWet0 - minWet0);
+                final int[] heatCode = out.heatCode, moistureCode = out.moistureCode, biomeCode = out.biomeCode;
+                biomeMapper.prepareHeat(1.0 / maxHeat);
+                int t;
+                long cell;
+                for (int i = start; i < end; i++) {
+                    heightCode[i] = t = world.codeHeight(height[i]);
+                    heat[i] = scaleHeat(heat[i], height[i], t, zs[i]);
+                    moisture[i] = (moisture[i] - minWet0) * wetDiff;
+                    cell = biomeMapper.mapCell(heat[i], moisture[i], height[i], t);
+                    heatCode[i] = (int) (cell >>> 32) & 15;
+                    moistureCode[i] = (int) (cell >>> 40) & 15;
+                    biomeCode[i] = (int) cell;
+                }
+            }
+
+            /**
+             * Turns raw heat noise into the heat a map would have for the same point, the same way the second and third
+             * passes of {@link SphereMap#regenerate} do.
+             */
+            protected double scaleHeat(final double p, double h, final int t, final double z)
+            {
+                double hMod = 1.0;
+                switch (t) {
+                    case 0:
+                    case 1:
+                    case 2:
+                    case 3:
+                        h = 0.4;
+                        hMod = 0.2;
+                        break;
+                    case 6:
+                        h = -0.1 * (h - forestLower - 0.08);
+                        break;
+                    case 7:
+                        h *= -0.25;
+                        break;
+                    case 8:
+                        h *= -0.4;
+                        break;
+                    default:
+                        h *= 0.05;
+                }
+                double temp = Math.abs(z);
+                temp *= (2.4 - temp);
+                temp = 2.2 - temp;
+                h = (((p - minHeat0) * (0.8 / (maxHeat0 - minHeat0)) * hMod) + h + 0.6) * temp;
+                return (h - minHeat1) * (heatModifier / (maxHeat1 - minHeat1));
+            }
         }
 
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -1391,14 +3201,27 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.29) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -1406,22 +3229,27 @@ public abstract class WorldMapGenerator implements Serializable {
                     h, temp,
                     i_w = 6.283185307179586 / width, i_h = 2.0 / (height+2.0),//(3.141592653589793) / (height+2.0),
                     xPos = startX, yPos, i_uw = usedWidth / (double)width, i_uh = usedHeight * i_h / (height+2.0);
-            final double[] trigTable = new double[width << 1];
-            for (int x = 0; x < width; x++, xPos += i_uw) {
-                p = xPos * i_w + centerLongitude;
-                // 0.7978845608028654 1.2533141373155001
-                trigTable[x<<1]   = TrigTools.sin(p);// * 1.2533141373155001;
-                trigTable[x<<1|1] = TrigTools.cos(p);// * 0.7978845608028654;
+            if(fromRow == 0) {
+                for (int x = 0; x < width; x++, xPos += i_uw) {
+                    p = xPos * i_w + centerLongitude;
+                    // 0.7978845608028654 1.2533141373155001
+                    trigTable[x<<1]   = TrigTools.sin(p);// * 1.2533141373155001;
+                    trigTable[x<<1|1] = TrigTools.cos(p);// * 0.7978845608028654;
+                }
             }
             yPos = startY * i_h + i_uh;
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
                 qs = -1 + yPos;//-1.5707963267948966 + yPos;
                 qc = TrigTools.cos(TrigTools.asin(qs));
                 //qs = qs;
                 //qs = TrigTools.sin(qs);
-                for (int x = 0, xt = 0; x < width; x++) {
-                    ps = trigTable[xt++] * qc;//TrigTools.sin(p);
-                    pc = trigTable[xt++] * qc;//TrigTools.cos(p);
+                for (int x = 0; x < width; x++) {
+                    if(sampling && skipSample(x, y)) continue;
+                    ps = trigTable[x<<1] * qc;//TrigTools.sin(p);
+                    pc = trigTable[x<<1|1] * qc;//TrigTools.cos(p);
                     xPositions[x][y] = pc;
                     yPositions[x][y] = ps;
                     zPositions[x][y] = qs;
@@ -1437,7 +3265,7 @@ public abstract class WorldMapGenerator implements Serializable {
 
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -1452,21 +3280,31 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod;
-            yPos = startY * i_h + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, width * height, width * height * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, temp, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0),
+                    i_h = 2.0 / (height+2.0), i_uh = usedHeight * i_h / (height+2.0),
+                    yPos = startY * i_h + i_uh;
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.HEAT, y);
                 temp = Math.abs(yPos - 1.0);
                 temp *= (2.4 - temp);
                 temp = 2.2 - temp;
                 for (int x = 0; x < width; x++) {
-//                    heightData[x][y] = (h = (heightData[x][y] - minHeightActual) * heightDiff - 1.0);
-//                    minHeightActual0 = Math.min(minHeightActual0, h);
-//                    maxHeightActual0 = Math.max(maxHeightActual0, h);
                     h = heightData[x][y];
                     heightCodeData[x][y] = (t = codeHeight(h));
                     hMod = 1.0;
@@ -1491,47 +3329,69 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = (((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6) * temp);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (minHeat1 - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (maxHeat1 - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
             }
             
             /*
             if(generateRivers) {
-                if (fresh) {
+                if (pass.fresh) {
                     addRivers();
                     riverData.connect8way().thin().thin();
                     lakeData.connect8way().thin();
@@ -1573,6 +3433,18 @@ public abstract class WorldMapGenerator implements Serializable {
             }
             */
         }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
+            }
+        }
     }
     /**
      * A concrete implementation of {@link WorldMapGenerator} that projects the world map onto an ellipse that should be
@@ -1584,8 +3456,22 @@ public abstract class WorldMapGenerator implements Serializable {
         protected double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
+        /**
+         * The lowest and highest heat the noise pass leaves in cells outside the projection, which still count toward
+         * the heat range. Not serialized.
+         */
+        protected transient double spaceLow, spaceHigh;
 
         public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
@@ -1692,46 +3578,78 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public EllipticalMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link EllipticalMap} with the given initial seed and size, building its Noise generators from
+         * {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of generators,
+         * including ones used on different threads, can share one NoiseConfiguration, since each builds its own Noise
+         * objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public EllipticalMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
             edges = new int[height << 1];
 
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
         }
 
         /**
-         * Copies the EllipticalMap {@code other} to construct a new one that is exactly the same. References will only
-         * be shared to Noise classes.
+         * Copies the EllipticalMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other an EllipticalMap to copy
          */
         public EllipticalMap(EllipticalMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
             edges = Arrays.copyOf(other.edges, other.edges.length);
         }
 
+        @Override
+        public EllipticalMap copy()
+        {
+            return new EllipticalMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
+
         @Override
         public int wrapX(final int x, int y) {
             y = Math.max(0, Math.min(y, height - 1));
@@ -1750,7 +3668,20 @@ public abstract class WorldMapGenerator implements Serializable {
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -1767,14 +3698,28 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.2) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+                pass.passCells = 0;
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -1787,7 +3732,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     ry = height * 0.5, iry = 1.0 / ry;
 
             yPos = startY - ry;
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
                 thx = TrigTools.asin((yPos) * iry);
                 lon = (thx == Math.PI * 0.5 || thx == Math.PI * -0.5) ? thx : Math.PI * irx * 0.5 / TrigTools.cos(thx);
                 thy = thx * 2.0;
@@ -1811,6 +3759,8 @@ public abstract class WorldMapGenerator implements Serializable {
                         edges[y << 1] = x;
                     }
                     edges[y << 1 | 1] = x;
+                    if(sampling && skipSample(x, y)) continue;
+                    ++pass.passCells;
                     th += centerLongitude;
                     ps = TrigTools.sin(th) * qc;
                     pc = TrigTools.cos(th) * qc;
@@ -1828,7 +3778,7 @@ public abstract class WorldMapGenerator implements Serializable {
                             , seedC));
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -1843,15 +3793,31 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod,
-                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight;
-            yPos = startY + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, pass.passCells, pass.passCells * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                // space cells keep stale heat that the last pass still normalizes, so their range is needed to predict it
+                spaceLow = Double.POSITIVE_INFINITY;
+                spaceHigh = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, temp, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0),
+                    i_uh = usedHeight / (double)height,
+                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight,
+                    yPos = startY + i_uh;
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.HEAT, y);
                 temp = Math.abs(yPos - halfHeight) * i_half;
                 temp *= (2.4 - temp);
                 temp = 2.2 - temp;
@@ -1859,6 +3825,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     h = heightData[x][y];
                     if(heightCodeData[x][y] == 10000) {
                         heightCodeData[x][y] = 1000;
+                        if(pass.fresh) {
+                            spaceLow = Math.min(spaceLow, heatData[x][y]);
+                            spaceHigh = Math.max(spaceHigh, heatData[x][y]);
+                        }
                         continue;
                     }
                     else
@@ -1885,44 +3855,77 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = (((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6) * temp);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (Math.min(minHeat1, spaceLow) - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (Math.max(maxHeat1, spaceHigh) - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
+            }
+        }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
             }
-            
         }
     }
     /**
@@ -1938,8 +3941,22 @@ public abstract class WorldMapGenerator implements Serializable {
         protected double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
+        /**
+         * The lowest and highest heat the noise pass leaves in cells outside the projection, which still count toward
+         * the heat range. Not serialized.
+         */
+        protected transient double spaceLow, spaceHigh;
 
         public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
@@ -2044,44 +4061,76 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public SpaceViewMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link SpaceViewMap} with the given initial seed and size, building its Noise generators from
+         * {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of generators,
+         * including ones used on different threads, can share one NoiseConfiguration, since each builds its own Noise
+         * objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public SpaceViewMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
             edges = new int[height << 1];
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
         }
 
         /**
-         * Copies the SpaceViewMap {@code other} to construct a new one that is exactly the same. References will only
-         * be shared to Noise classes.
+         * Copies the SpaceViewMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other a SpaceViewMap to copy
          */
         public SpaceViewMap(SpaceViewMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
             edges = Arrays.copyOf(other.edges, other.edges.length);
         }
+
+        @Override
+        public SpaceViewMap copy()
+        {
+            return new SpaceViewMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
         
         @Override
         public int wrapX(int x, int y) {
@@ -2099,7 +4148,20 @@ public abstract class WorldMapGenerator implements Serializable {
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -2118,14 +4180,28 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.2) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+                pass.passCells = 0;
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -2139,7 +4215,10 @@ public abstract class WorldMapGenerator implements Serializable {
 
             yPos = startY - ry;
             iyPos = yPos / ry;
-            for (int y = 0; y < height; y++, yPos += i_uh, iyPos += iry) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh, iyPos += iry) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
 
                 boolean inSpace = true;
                 xPos = startX - rx;
@@ -2157,6 +4236,8 @@ public abstract class WorldMapGenerator implements Serializable {
                         edges[y << 1] = x;
                     }
                     edges[y << 1 | 1] = x;
+                    if(sampling && skipSample(x, y)) continue;
+                    ++pass.passCells;
                     th = TrigTools.asin(rho); // c
                     lat = TrigTools.asin(iyPos);
                     lon = centerLongitude + TrigTools.atan2(ixPos * rho, rho * TrigTools.cos(th));
@@ -2185,7 +4266,7 @@ public abstract class WorldMapGenerator implements Serializable {
                             , seedC));
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -2200,15 +4281,31 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod,
-                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight;
-            yPos = startY + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, pass.passCells, pass.passCells * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                // space cells keep stale heat that the last pass still normalizes, so their range is needed to predict it
+                spaceLow = Double.POSITIVE_INFINITY;
+                spaceHigh = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, temp, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0),
+                    i_uh = usedHeight / (double)height,
+                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight,
+                    yPos = startY + i_uh;
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.HEAT, y);
                 temp = Math.abs(yPos - halfHeight) * i_half;
                 temp *= (2.4 - temp);
                 temp = 2.2 - temp;
@@ -2216,6 +4313,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     h = heightData[x][y];
                     if(heightCodeData[x][y] == 10000) {
                         heightCodeData[x][y] = 1000;
+                        if(pass.fresh) {
+                            spaceLow = Math.min(spaceLow, heatData[x][y]);
+                            spaceHigh = Math.max(spaceHigh, heatData[x][y]);
+                        }
                         continue;
                     }
                     else
@@ -2242,44 +4343,77 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = (((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6) * temp);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (Math.min(minHeat1, spaceLow) - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (Math.max(maxHeat1, spaceHigh) - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
+            }
+        }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
             }
-            
         }
     }
     /**
@@ -2294,8 +4428,22 @@ public abstract class WorldMapGenerator implements Serializable {
         protected double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
+        /**
+         * The lowest and highest heat the noise pass leaves in cells outside the projection, which still count toward
+         * the heat range. Not serialized.
+         */
+        protected transient double spaceLow, spaceHigh;
 
         public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
@@ -2433,18 +4581,52 @@ public abstract class WorldMapGenerator implements Serializable {
          */
         public HyperellipticalMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator,
                                   double octaveMultiplier, double alpha, double kappa){
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier), alpha, kappa);
+        }
+
+        /**
+         * Constructs a {@link HyperellipticalMap} with the given initial seed and size, building its Noise generators
+         * from {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of
+         * generators, including ones used on different threads, can share one NoiseConfiguration, since each builds its
+         * own Noise objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in. Uses the default Tobler parameters, 0.0625 for alpha and 2.5 for kappa.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public HyperellipticalMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
+            this(initialSeed, mapWidth, mapHeight, noiseConfiguration, 0.0625, 2.5);
+        }
+
+        /**
+         * Constructs a {@link HyperellipticalMap} with the given initial seed and size, building its Noise generators
+         * from {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of
+         * generators, including ones used on different threads, can share one NoiseConfiguration, since each builds its
+         * own Noise objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         * @param alpha one of the Tobler parameters;  0.0625 is the default and this can range from 0.0 to 1.0 at least
+         * @param kappa one of the Tobler parameters; 2.5 is the default but 2.0-5.0 range values are also often used
+         */
+        public HyperellipticalMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration,
+                                  double alpha, double kappa){
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
             edges = new int[height << 1];
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
             this.alpha = alpha;
             this.kappa = kappa;
             this.Z = new double[height << 2];
@@ -2452,27 +4634,29 @@ public abstract class WorldMapGenerator implements Serializable {
             ProjectionTools.simpsonODESolveHyperellipse(1, this.Z, 0.25 / height, alpha, kappa, epsilon);
         }
         /**
-         * Copies the HyperellipticalMap {@code other} to construct a new one that is exactly the same. References will only
-         * be shared to Noise classes.
+         * Copies the HyperellipticalMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other a HyperellipticalMap to copy
          */
         public HyperellipticalMap(HyperellipticalMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
             edges = Arrays.copyOf(other.edges, other.edges.length);
             alpha = other.alpha;
             kappa = other.kappa;
@@ -2480,6 +4664,37 @@ public abstract class WorldMapGenerator implements Serializable {
             Z = Arrays.copyOf(other.Z, other.Z.length);
         }
 
+        @Override
+        public HyperellipticalMap copy()
+        {
+            return new HyperellipticalMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
+
+        /**
+         * Gets the Tobler parameter alpha this was constructed with; 0.0625 by default.
+         * @return the alpha parameter, usually between 0.0 and 1.0
+         */
+        public double getAlpha() {
+            return alpha;
+        }
+
+        /**
+         * Gets the Tobler parameter kappa this was constructed with; 2.5 by default.
+         * @return the kappa parameter, usually between 2.0 and 5.0
+         */
+        public double getKappa() {
+            return kappa;
+        }
+
 
         @Override
         public int wrapX(final int x, int y) {
@@ -2499,7 +4714,20 @@ public abstract class WorldMapGenerator implements Serializable {
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -2518,14 +4746,28 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.2) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+                pass.passCells = 0;
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -2538,7 +4780,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     ry = height * 0.5, iry = 1.0 / ry;
 
             yPos = startY - ry;
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
 //                thy = yPos * iry;//TrigTools.sin(thb);
 //                thb = asin(thy);
 //                thx = TrigTools.cos(thb);
@@ -2570,6 +4815,8 @@ public abstract class WorldMapGenerator implements Serializable {
                         edges[y << 1] = x;
                     }
                     edges[y << 1 | 1] = x;
+                    if(sampling && skipSample(x, y)) continue;
+                    ++pass.passCells;
                     th += centerLongitude;
                     ps = TrigTools.sin(th) * qc;
                     pc = TrigTools.cos(th) * qc;
@@ -2587,7 +4834,7 @@ public abstract class WorldMapGenerator implements Serializable {
                             , seedC));
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -2602,15 +4849,31 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod,
-                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight;
-            yPos = startY + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, pass.passCells, pass.passCells * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                // space cells keep stale heat that the last pass still normalizes, so their range is needed to predict it
+                spaceLow = Double.POSITIVE_INFINITY;
+                spaceHigh = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, temp, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0),
+                    i_uh = usedHeight / (double)height,
+                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight,
+                    yPos = startY + i_uh;
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.HEAT, y);
                 temp = Math.abs(yPos - halfHeight) * i_half;
                 temp *= (2.4 - temp);
                 temp = 2.2 - temp;
@@ -2618,6 +4881,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     h = heightData[x][y];
                     if(heightCodeData[x][y] == 10000) {
                         heightCodeData[x][y] = 1000;
+                        if(pass.fresh) {
+                            spaceLow = Math.min(spaceLow, heatData[x][y]);
+                            spaceHigh = Math.max(spaceHigh, heatData[x][y]);
+                        }
                         continue;
                     }
                     else
@@ -2644,44 +4911,77 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = (((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6) * temp);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (Math.min(minHeat1, spaceLow) - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (Math.max(maxHeat1, spaceHigh) - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
+            }
+        }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
             }
-            
         }
     }
 
@@ -2698,8 +4998,22 @@ public abstract class WorldMapGenerator implements Serializable {
         protected double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
+        /**
+         * The lowest and highest heat the noise pass leaves in cells outside the projection, which still count toward
+         * the heat range. Not serialized.
+         */
+        protected transient double spaceLow, spaceHigh;
 
         public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
@@ -2818,45 +5132,77 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public EllipticalHammerMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link EllipticalHammerMap} with the given initial seed and size, building its Noise generators
+         * from {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of
+         * generators, including ones used on different threads, can share one NoiseConfiguration, since each builds its
+         * own Noise objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public EllipticalHammerMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
             edges = new int[height << 1];
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
         }
 
         /**
-         * Copies the EllipticalHammerMap {@code other} to construct a new one that is exactly the same. References will only
-         * be shared to Noise classes.
+         * Copies the EllipticalHammerMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other an EllipticalHammerMap to copy
          */
         public EllipticalHammerMap(EllipticalHammerMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
             edges = Arrays.copyOf(other.edges, other.edges.length);
         }
 
+        @Override
+        public EllipticalHammerMap copy()
+        {
+            return new EllipticalHammerMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
+
         @Override
         public int wrapX(final int x, int y) {
             y = Math.max(0, Math.min(y, height - 1));
@@ -2875,7 +5221,20 @@ public abstract class WorldMapGenerator implements Serializable {
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -2894,14 +5253,28 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.2) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+                pass.passCells = 0;
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -2915,7 +5288,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     i_uh = usedHeight / (double)(height);
 
             yPos = (startY - height * 0.5);
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
                 boolean inSpace = true;
                 yAdj = yPos * iry;
                 xPos = (startX - hw);
@@ -2939,6 +5315,8 @@ public abstract class WorldMapGenerator implements Serializable {
                         edges[y << 1] = x;
                     }
                     edges[y << 1 | 1] = x;
+                    if(sampling && skipSample(x, y)) continue;
+                    ++pass.passCells;
                     ps = TrigTools.sin(th) * qc;
                     pc = TrigTools.cos(th) * qc;
                     xPositions[x][y] = pc;
@@ -2955,7 +5333,7 @@ public abstract class WorldMapGenerator implements Serializable {
                             , seedC));
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -2970,15 +5348,31 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod,
-                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight;
-            yPos = startY + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, pass.passCells, pass.passCells * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                // space cells keep stale heat that the last pass still normalizes, so their range is needed to predict it
+                spaceLow = Double.POSITIVE_INFINITY;
+                spaceHigh = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, temp, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0),
+                    i_uh = usedHeight / (double)height,
+                    halfHeight = (height - 1) * 0.5, i_half = 1.0 / halfHeight,
+                    yPos = startY + i_uh;
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.HEAT, y);
                 temp = Math.abs(yPos - halfHeight) * i_half;
                 temp *= (2.4 - temp);
                 temp = 2.2 - temp;
@@ -2986,6 +5380,10 @@ public abstract class WorldMapGenerator implements Serializable {
                     h = heightData[x][y];
                     if(heightCodeData[x][y] == 10000) {
                         heightCodeData[x][y] = 1000;
+                        if(pass.fresh) {
+                            spaceLow = Math.min(spaceLow, heatData[x][y]);
+                            spaceHigh = Math.max(spaceHigh, heatData[x][y]);
+                        }
                         continue;
                     }
                     else
@@ -3012,44 +5410,77 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = (((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6) * temp);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (Math.min(minHeat1, spaceLow) - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (Math.max(maxHeat1, spaceHigh) - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
+            }
+        }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
             }
-            
         }
     }
 
@@ -3180,12 +5611,28 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public RotatingSpaceMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link RotatingSpaceMap} with the given initial seed and size, giving {@code noiseConfiguration}
+         * to the {@link #storedMap} it samples from (which uses {@link NoiseConfiguration#DEFAULT} if that is null).
+         * Any number of generators, including ones used on different threads, can share one NoiseConfiguration, since
+         * each builds its own Noise objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public RotatingSpaceMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[mapWidth][mapHeight];
             yPositions = new double[mapWidth][mapHeight];
             zPositions = new double[mapWidth][mapHeight];
             edges = new int[height << 1];
-            storedMap = new SphereMap(initialSeed, mapWidth << 1, mapHeight, noiseGenerator, octaveMultiplier);
+            storedMap = new SphereMap(initialSeed, mapWidth << 1, mapHeight, noiseConfiguration);
         }
 
         /**
@@ -3202,13 +5649,28 @@ public abstract class WorldMapGenerator implements Serializable {
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
             edges = Arrays.copyOf(other.edges, other.edges.length);
             storedMap = new SphereMap(other.storedMap);
         }
 
+        @Override
+        public RotatingSpaceMap copy()
+        {
+            return new RotatingSpaceMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
+        }
+
 
         @Override
         public int wrapX(int x, int y) {
@@ -3221,9 +5683,59 @@ public abstract class WorldMapGenerator implements Serializable {
             return Math.max(0, Math.min(y, height - 1));
         }
 
+        /**
+         * Sets the {@link GenerationListener} for this and for {@link #storedMap}, so the listener also hears about the
+         * phases that generate the stored map.
+         * @param listener a GenerationListener, or null to stop reporting
+         */
+        @Override
+        public void setListener(GenerationListener listener) {
+            super.setListener(listener);
+            storedMap.setListener(listener);
+        }
+
+        /**
+         * Sets the {@link ProgressMonitor} for this and for {@link #storedMap}, so the monitor also hears about (and
+         * can cancel) the passes that generate the stored map.
+         * @param progressMonitor a ProgressMonitor, or null to stop reporting progress
+         */
+        @Override
+        public void setProgressMonitor(ProgressMonitor progressMonitor) {
+            super.setProgressMonitor(progressMonitor);
+            storedMap.setProgressMonitor(progressMonitor);
+        }
+
+        /**
+         * Forgets the RNG state this and {@link #storedMap} last generated with; see
+         * {@link WorldMapGenerator#forgetState()}.
+         */
+        @Override
+        protected void forgetState() {
+            super.forgetState();
+            storedMap.forgetState();
+        }
+
         @Override
         public void setCenterLongitude(double centerLongitude) {
             super.setCenterLongitude(centerLongitude);
+            if(!isDone()) {
+                // the rest of the steps resample at the new longitude, starting over if they already began to
+                if(stepPhase == GenerationListener.RESAMPLE)
+                    stepRow = 0;
+                return;
+            }
+            ownLayers();
+            resampleRows(0, height);
+        }
+
+        /**
+         * Fills rows {@code fromRow} (inclusive) to {@code toRow} (exclusive) of this map from {@link #storedMap}, as
+         * seen from above {@link #centerLongitude}; rows must be filled in order starting at 0.
+         * @param fromRow the first row to fill, inclusive
+         * @param toRow the last row to fill, exclusive; at most {@link #height}
+         */
+        protected void resampleRows(int fromRow, int toRow) {
+            final PassState pass = passState();
             int ax, ay;
             double
                     ps, pc,
@@ -3236,9 +5748,18 @@ public abstract class WorldMapGenerator implements Serializable {
                     rx = width * 0.5, irx = i_uw / rx,
                     ry = height * 0.5, iry = i_uh / ry;
 
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.RESAMPLE);
+                pass.expectedMinHeat = minHeat;
+                pass.expectedMaxHeat = maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
             yPos = startY - ry;
             iyPos = yPos / ry;
-            for (int y = 0; y < height; y++, yPos += i_uh, iyPos += iry) {
+            for (int y = 0; y < toRow; y++, yPos += i_uh, iyPos += iry) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.RESAMPLE, y);
                 boolean inSpace = true;
                 xPos = startX - rx;
                 ixPos = xPos / rx;
@@ -3316,42 +5837,86 @@ public abstract class WorldMapGenerator implements Serializable {
                 }
                 minHeightActual = Math.min(minHeightActual, minHeight);
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
+                if(pass.visitingRows)
+                    visitRow(y);
+            }
+            if(toRow == height) {
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.RESAMPLE, pass.passStart, width * height, 0);
             }
-
         }
 
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        /**
+         * Starts the passes of {@link #storedMap} if the seed changed, or otherwise goes right to resampling it.
+         */
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
             if(cacheA != stateA || cacheB != stateB)// || landMod != storedMap.landModifier || coolMod != storedMap.coolingModifier)
             {
-                storedMap.regenerate(0, 0, width << 1, height, landMod, heatMod, stateA, stateB);
-                minHeightActual = Double.POSITIVE_INFINITY;
-                maxHeightActual = Double.NEGATIVE_INFINITY;
+                storedMap.noiseCallCount = 0;
+                // the stored map generates this state, so it forgets the same one if that is cancelled
+                storedMap.seedA = stateA;
+                storedMap.seedB = stateB;
+                return storedMap.startPasses(0, 0, width << 1, height, landMod, heatMod, stateA, stateB);
+            }
+            return GenerationListener.RESAMPLE;
+        }
 
-                minHeight = storedMap.minHeight;
-                maxHeight = storedMap.maxHeight;
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            if(phase == GenerationListener.RESAMPLE)
+                resampleRows(fromRow, toRow);
+            else
+                storedMap.passRows(phase, fromRow, toRow);
+        }
 
-                minHeat0 = storedMap.minHeat0;
-                maxHeat0 = storedMap.maxHeat0;
+        @Override
+        protected int nextPass(int phase)
+        {
+            if(phase == GenerationListener.RESAMPLE)
+                return GenerationListener.REGENERATE;
+            phase = storedMap.nextPass(phase);
+            if(phase != GenerationListener.REGENERATE)
+                return phase;
+            noiseCallCount += storedMap.noiseCallCount;
+            minHeightActual = Double.POSITIVE_INFINITY;
+            maxHeightActual = Double.NEGATIVE_INFINITY;
 
-                minHeat1 = storedMap.minHeat1;
-                maxHeat1 = storedMap.maxHeat1;
+            minHeight = storedMap.minHeight;
+            maxHeight = storedMap.maxHeight;
 
-                minWet0 = storedMap.minWet0;
-                maxWet0 = storedMap.maxWet0;
+            minHeat0 = storedMap.minHeat0;
+            maxHeat0 = storedMap.maxHeat0;
 
-                minHeat = storedMap.minHeat;
-                maxHeat = storedMap.maxHeat;
+            minHeat1 = storedMap.minHeat1;
+            maxHeat1 = storedMap.maxHeat1;
 
-                minWet = storedMap.minWet;
-                maxWet = storedMap.maxWet;
+            minWet0 = storedMap.minWet0;
+            maxWet0 = storedMap.maxWet0;
 
-                cacheA = stateA;
-                cacheB = stateB;
-            }
-            setCenterLongitude(centerLongitude);
-            
+            minHeat = storedMap.minHeat;
+            maxHeat = storedMap.maxHeat;
+
+            minWet = storedMap.minWet;
+            maxWet = storedMap.maxWet;
+
+            cacheA = storedMap.cacheA;
+            cacheB = storedMap.cacheB;
+            return GenerationListener.RESAMPLE;
         }
     }
     /**
@@ -3364,9 +5929,17 @@ public abstract class WorldMapGenerator implements Serializable {
         protected double minHeat0 = Double.POSITIVE_INFINITY, maxHeat0 = Double.NEGATIVE_INFINITY,
                 minHeat1 = Double.POSITIVE_INFINITY, maxHeat1 = Double.NEGATIVE_INFINITY,
                 minWet0 = Double.POSITIVE_INFINITY, maxWet0 = Double.NEGATIVE_INFINITY;
+        /**
+         * The seeds the noise pass uses, taken from the RNG state being generated. Not serialized.
+         */
+        protected transient long noiseSeedA, noiseSeedB, noiseSeedC;
 
-        public final Noise terrain, otherRidged;
-        public final Noise heat, moisture, terrainLayered;
+        public final Noise terrain, heat, moisture, otherRidged, terrainLayered;
+        /**
+         * The immutable settings used to build {@link #terrain}, {@link #heat}, {@link #moisture},
+         * {@link #otherRidged}, and {@link #terrainLayered}; may be shared with other generators on any thread.
+         */
+        public final NoiseConfiguration noiseConfiguration;
         public final double[][] xPositions,
                 yPositions,
                 zPositions;
@@ -3477,42 +6050,74 @@ public abstract class WorldMapGenerator implements Serializable {
          * @param octaveMultiplier used to adjust the level of detail, with 0.5 at the bare-minimum detail and 1.0 normal
          */
         public LocalMap(long initialSeed, int mapWidth, int mapHeight, Noise noiseGenerator, double octaveMultiplier) {
+            this(initialSeed, mapWidth, mapHeight, NoiseConfiguration.standard(octaveMultiplier));
+        }
+
+        /**
+         * Constructs a {@link LocalMap} with the given initial seed and size, building its Noise generators from
+         * {@code noiseConfiguration} (or {@link NoiseConfiguration#DEFAULT} if that is null). Any number of generators,
+         * including ones used on different threads, can share one NoiseConfiguration, since each builds its own Noise
+         * objects from it. The {@code initialSeed} parameter may or may not be used, since you can specify the seed to
+         * use when you call {@link #generate(long)}. The width and height of the map cannot be changed after the fact,
+         * but you can zoom in.
+         * @param initialSeed the seed for the SilkRNG this uses; this may also be set per-call to generate
+         * @param mapWidth the width of the map(s) to generate; cannot be changed later
+         * @param mapHeight the height of the map(s) to generate; cannot be changed later
+         * @param noiseConfiguration the immutable noise settings to use, such as {@link NoiseConfiguration#standard(double)}
+         */
+        public LocalMap(long initialSeed, int mapWidth, int mapHeight, NoiseConfiguration noiseConfiguration) {
             super(initialSeed, mapWidth, mapHeight);
             xPositions = new double[width][height];
             yPositions = new double[width][height];
             zPositions = new double[width][height];
 
-            terrain = new Noise(seedA, (float) terrainFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 7));
-            terrain.setFractalType(Noise.RIDGED_MULTI);
-            otherRidged = new Noise(seedB, (float) otherFreq, Noise.FOAM_FRACTAL, (int) (0.5 + octaveMultiplier * 6));
-            otherRidged.setFractalType(Noise.RIDGED_MULTI);
-            terrainLayered = new Noise(seedB, (float) terrainRidgedFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 5));
-            heat = new Noise(seedB, (float) heatFreq, Noise.FOAM_FRACTAL, (int) (1 + octaveMultiplier * 3), 0.75f, 1.333f);
-            moisture = new Noise(seedB, (float) moistureFreq, Noise.SIMPLEX_FRACTAL, (int) (1 + octaveMultiplier * 4), 0.55f, 1f / 0.55f);
+            this.noiseConfiguration = noiseConfiguration == null ? NoiseConfiguration.DEFAULT : noiseConfiguration;
+            terrain = this.noiseConfiguration.terrain.build(seedA);
+            otherRidged = this.noiseConfiguration.otherRidged.build(seedB);
+            terrainLayered = this.noiseConfiguration.terrainLayered.build(seedB);
+            heat = this.noiseConfiguration.heat.build(seedB);
+            moisture = this.noiseConfiguration.moisture.build(seedB);
         }
 
         /**
-         * Copies the LocalMap {@code other} to construct a new one that is exactly the same. References will only
-         * be shared to Noise classes.
+         * Copies the LocalMap {@code other} to construct a new one that is exactly the same. The copy shares
+         * {@link #noiseConfiguration} with {@code other} but builds its own Noise objects from it, so the two can be
+         * used on different threads.
          * @param other a LocalMap to copy
          */
         public LocalMap(LocalMap other)
         {
             super(other);
-            terrain = other.terrain;
-            terrainLayered = other.terrainLayered;
-            heat = other.heat;
-            moisture = other.moisture;
-            otherRidged = other.otherRidged;
+            noiseConfiguration = other.noiseConfiguration;
+            terrain = noiseConfiguration.terrain.build(seedA);
+            terrainLayered = noiseConfiguration.terrainLayered.build(seedB);
+            heat = noiseConfiguration.heat.build(seedB);
+            moisture = noiseConfiguration.moisture.build(seedB);
+            otherRidged = noiseConfiguration.otherRidged.build(seedB);
             minHeat0 = other.minHeat0;
             maxHeat0 = other.maxHeat0;
             minHeat1 = other.minHeat1;
             maxHeat1 = other.maxHeat1;
             minWet0 = other.minWet0;
             maxWet0 = other.maxWet0;
-            xPositions = copy(other.xPositions);
-            yPositions = copy(other.yPositions);
-            zPositions = copy(other.zPositions);
+            xPositions = other.xPositions.clone();
+            yPositions = other.yPositions.clone();
+            zPositions = other.zPositions.clone();
+        }
+
+        @Override
+        public LocalMap copy()
+        {
+            return new LocalMap(this);
+        }
+
+        @Override
+        protected void unshareLayers()
+        {
+            super.unshareLayers();
+            unshare(xPositions);
+            unshare(yPositions);
+            unshare(zPositions);
         }
 
         @Override
@@ -3528,7 +6133,20 @@ public abstract class WorldMapGenerator implements Serializable {
         protected void regenerate(int startX, int startY, int usedWidth, int usedHeight,
                                   double landMod, double heatMod, int stateA, int stateB)
         {
-            boolean fresh = false;
+            runPasses(startPasses(startX, startY, usedWidth, usedHeight, landMod, heatMod, stateA, stateB));
+        }
+
+        @Override
+        protected int startPasses(int startX, int startY, int usedWidth, int usedHeight,
+                                  double landMod, double heatMod, int stateA, int stateB)
+        {
+            final PassState pass = passState();
+            ownLayers();
+            this.startX = startX;
+            this.startY = startY;
+            this.usedWidth = usedWidth;
+            this.usedHeight = usedHeight;
+            pass.fresh = false;
             if(cacheA != stateA || cacheB != stateB || landMod != landModifier || heatMod != heatModifier)
             {
                 minHeight = Double.POSITIVE_INFINITY;
@@ -3545,14 +6163,27 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxWet = Double.NEGATIVE_INFINITY;
                 cacheA = stateA;
                 cacheB = stateB;
-                fresh = true;
+                pass.fresh = true;
+                pass.rangesIncomplete = true;
             }
             rng.setState(stateA, stateB);
-            long seedA = rng.nextLong(), seedB = rng.nextLong(), seedC = rng.nextLong();
-            int t;
+            noiseSeedA = rng.nextLong();
+            noiseSeedB = rng.nextLong();
+            noiseSeedC = rng.nextLong();
 
             landModifier = (landMod <= 0) ? rng.nextDouble(0.29) + 0.91 : landMod;
             heatModifier = (heatMod <= 0) ? rng.nextDouble(0.45) * (rng.nextDouble()-0.5) + 1.1 : heatMod;
+            return GenerationListener.NOISE;
+        }
+
+        protected void noiseRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NOISE);
+            }
+            final long seedA = noiseSeedA, seedB = noiseSeedB, seedC = noiseSeedC;
+            final boolean sampling = pass.sampleStride > 1 || pass.sampledStride > 1;
 
             double p,
                     ps, pc,
@@ -3560,9 +6191,13 @@ public abstract class WorldMapGenerator implements Serializable {
                     h, temp,
                     i_w = 1.0 / width, i_h = 1.0 / (height),  ii = Math.max(i_w, i_h),
                     i_uw = usedWidth * i_w * ii, i_uh = usedHeight * i_h * ii, xPos, yPos = startY * i_h;
-            for (int y = 0; y < height; y++, yPos += i_uh) { 
+            for (int y = 0; y < toRow; y++, yPos += i_uh) {
+                // earlier calls did the rows before fromRow; this only moves the positions past them
+                if(y < fromRow) continue;
+                checkRow(GenerationListener.NOISE, y);
                 xPos = startX * i_w;
                 for (int x = 0; x < width; x++, xPos += i_uw) {
+                    if(sampling && skipSample(x, y)) continue;
                     xPositions[x][y] = xPos;
                     yPositions[x][y] = yPos;
                     zPositions[x][y] = 0.0;
@@ -3577,7 +6212,7 @@ public abstract class WorldMapGenerator implements Serializable {
 
                     minHeightActual = Math.min(minHeightActual, h);
                     maxHeightActual = Math.max(maxHeightActual, h);
-                    if(fresh) {
+                    if(pass.fresh) {
                         minHeight = Math.min(minHeight, h);
                         maxHeight = Math.max(maxHeight, h);
 
@@ -3592,14 +6227,23 @@ public abstract class WorldMapGenerator implements Serializable {
                 maxHeightActual = Math.max(maxHeightActual, maxHeight);
 
             }
-            double  heatDiff = 0.8 / (maxHeat0 - minHeat0),
-                    wetDiff = 1.0 / (maxWet0 - minWet0),
-                    hMod;
-            yPos = startY * i_h + i_uh;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
+            if(toRow == height)
+                finishPhase(GenerationListener.NOISE, pass.passStart, width * height, width * height * NOISE_CALLS_PER_CELL);
+        }
 
-            for (int y = 0; y < height; y++, yPos += i_uh) {
+        protected void heatRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.HEAT);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+            }
+            int t;
+            double h, hMod,
+                    heatDiff = 0.8 / (maxHeat0 - minHeat0);
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.HEAT, y);
                 for (int x = 0; x < width; x++) {
                     h = heightData[x][y];
                     heightCodeData[x][y] = (t = codeHeight(h));
@@ -3625,44 +6269,77 @@ public abstract class WorldMapGenerator implements Serializable {
                             h *= 0.05;
                     }
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat0) * heatDiff * hMod) + h + 0.6);
-                    if (fresh) {
-                        ps = Math.min(ps, h); //minHeat0
-                        pc = Math.max(pc, h); //maxHeat0
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
                     }
                 }
             }
-            if(fresh)
-            {
-                minHeat1 = ps;
-                maxHeat1 = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat1 = pass.runMinHeat;
+                    maxHeat1 = pass.runMaxHeat;
+                }
+                finishPhase(GenerationListener.HEAT, pass.passStart, width * height, 0);
             }
-            heatDiff = heatModifier / (maxHeat1 - minHeat1);
-            qs = Double.POSITIVE_INFINITY;
-            qc = Double.NEGATIVE_INFINITY;
-            ps = Double.POSITIVE_INFINITY;
-            pc = Double.NEGATIVE_INFINITY;
-
+        }
 
-            for (int y = 0; y < height; y++) {
+        protected void normalizeRows(int fromRow, int toRow)
+        {
+            final PassState pass = passState();
+            final double heatDiff = heatModifier / (maxHeat1 - minHeat1),
+                    wetDiff = 1.0 / (maxWet0 - minWet0);
+            if(fromRow == 0) {
+                pass.passStart = startPhase(GenerationListener.NORMALIZE);
+                pass.runMinHeat = Double.POSITIVE_INFINITY;
+                pass.runMaxHeat = Double.NEGATIVE_INFINITY;
+                pass.runMinWet = Double.POSITIVE_INFINITY;
+                pass.runMaxWet = Double.NEGATIVE_INFINITY;
+                // the lowest and highest heat from the last pass become these after normalizing
+                pass.expectedMinHeat = pass.fresh ? (minHeat1 - minHeat1) * heatDiff : minHeat;
+                pass.expectedMaxHeat = pass.fresh ? (maxHeat1 - minHeat1) * heatDiff : maxHeat;
+                pass.visitingRows = startRows(pass.expectedMinHeat, pass.expectedMaxHeat);
+            }
+            double h, temp;
+            for (int y = fromRow; y < toRow; y++) {
+                checkRow(GenerationListener.NORMALIZE, y);
                 for (int x = 0; x < width; x++) {
                     heatData[x][y] = (h = ((heatData[x][y] - minHeat1) * heatDiff));
                     moistureData[x][y] = (temp = (moistureData[x][y] - minWet0) * wetDiff);
-                    if (fresh) {
-                        qs = Math.min(qs, h);
-                        qc = Math.max(qc, h);
-                        ps = Math.min(ps, temp);
-                        pc = Math.max(pc, temp);
+                    if (pass.fresh) {
+                        pass.runMinHeat = Math.min(pass.runMinHeat, h);
+                        pass.runMaxHeat = Math.max(pass.runMaxHeat, h);
+                        pass.runMinWet = Math.min(pass.runMinWet, temp);
+                        pass.runMaxWet = Math.max(pass.runMaxWet, temp);
                     }
                 }
+                if(pass.visitingRows)
+                    visitRow(y);
             }
-            if(fresh)
-            {
-                minHeat = qs;
-                maxHeat = qc;
-                minWet = ps;
-                maxWet = pc;
+            if(toRow == height) {
+                if(pass.fresh)
+                {
+                    minHeat = pass.runMinHeat;
+                    maxHeat = pass.runMaxHeat;
+                    minWet = pass.runMinWet;
+                    maxWet = pass.runMaxWet;
+                }
+                finishRows(pass.visitingRows, pass.expectedMinHeat, pass.expectedMaxHeat);
+                finishPhase(GenerationListener.NORMALIZE, pass.passStart, width * height, 0);
+            }
+        }
+
+        @Override
+        protected void passRows(int phase, int fromRow, int toRow)
+        {
+            switch (phase) {
+                case GenerationListener.NOISE: noiseRows(fromRow, toRow);
+                    break;
+                case GenerationListener.HEAT: heatRows(fromRow, toRow);
+                    break;
+                default: normalizeRows(fromRow, toRow);
             }
-            
         }
     }
 
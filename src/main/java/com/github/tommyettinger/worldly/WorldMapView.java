@@ -1,9 +1,14 @@
 package com.github.tommyettinger.worldly;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.NumberUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
 import static com.badlogic.gdx.utils.NumberUtils.longBitsToDouble;
 
 /**
@@ -14,6 +19,53 @@ public class WorldMapView {
     protected float[][] colorMap;
     protected WorldMapGenerator world;
     protected WorldMapGenerator.DetailedBiomeMapper biomeMapper;
+    /**
+     * True if {@link #generateAndShow(int, int, double, double, boolean)} should also fill the biome mapper's code
+     * arrays while it colors each row.
+     */
+    protected boolean fusedKeepCodes = true;
+    /**
+     * Set when {@link #fusedVisitor} has been given rows during the current generation.
+     */
+    protected boolean fusedVisited = false;
+    /**
+     * Maps biomes and colors each row of {@link #world} as soon as generation finishes it; used by
+     * {@link #generateAndShow(int, int, double, double, boolean)}.
+     */
+    protected final WorldMapGenerator.RowVisitor fusedVisitor = new WorldMapGenerator.RowVisitor() {
+        @Override
+        public void startRows(WorldMapGenerator world) {
+            biomeMapper.prepareBiomes(world, fusedKeepCodes);
+            fusedVisited = true;
+        }
+
+        @Override
+        public void visitRow(WorldMapGenerator world, int y) {
+            final int[][] heightCodeData = world.heightCodeData;
+            final double[][] heightData = world.heightData;
+            final boolean keep = fusedKeepCodes;
+            int hc, tc, bc;
+            long cell;
+            for (int x = 0; x < width; x++) {
+                hc = heightCodeData[x][y];
+                if(hc == 1000) {
+                    if(keep)
+                        biomeMapper.biomeCodeData[x][y] = 60;
+                    colorMap[x][y] = emptyColor;
+                    continue;
+                }
+                cell = biomeMapper.classifyCell(world, x, y);
+                tc = (int) (cell >>> 32) & 15;
+                bc = (int) cell;
+                if(keep) {
+                    biomeMapper.heatCodeData[x][y] = tc;
+                    biomeMapper.moistureCodeData[x][y] = (int) (cell >>> 40) & 15;
+                    biomeMapper.biomeCodeData[x][y] = bc;
+                }
+                colorMap[x][y] = cellColor(hc, tc, bc, heightData[x][y]);
+            }
+        }
+    };
 
     public int getWidth() {
         return width;
@@ -35,6 +87,25 @@ public class WorldMapView {
         this.biomeMapper = biomeMapper;
     }
 
+    /**
+     * Gets the {@link WorldMapGenerator.GenerationListener} of the world this shows, if one is set.
+     * @return the world's GenerationListener, or null if none is set
+     */
+    public WorldMapGenerator.GenerationListener getListener() {
+        return world.getListener();
+    }
+
+    /**
+     * Sets the {@link WorldMapGenerator.GenerationListener} of the world this shows, which will then be told about
+     * each generation phase, biome mapping, and the coloring done by {@link #show()}. This is the same as calling
+     * {@link WorldMapGenerator#setListener(WorldMapGenerator.GenerationListener)} on {@link #getWorld()}, so it only
+     * applies to the current world; a world set later with {@link #setWorld(WorldMapGenerator)} keeps its own listener.
+     * @param listener a GenerationListener, or null to stop reporting
+     */
+    public void setListener(WorldMapGenerator.GenerationListener listener) {
+        world.setListener(listener);
+    }
+
     public WorldMapGenerator getWorld() {
         return world;
     }
@@ -64,6 +135,38 @@ public class WorldMapView {
         this(new WorldMapGenerator.LocalMap(seed, width, height));
     }
 
+    /**
+     * Copies {@code other}, making a new WorldMapView that shows a {@link WorldMapGenerator#copy() copy} of its world
+     * with the same colors and a {@link WorldMapGenerator.DetailedBiomeMapper#copy() copy} of its biome mapper, so the
+     * two can be used on different threads. Subclasses should use this in their own copy constructor and override
+     * {@link #copy()}.
+     * @param other a WorldMapView to copy; its world must support {@link WorldMapGenerator#copy()}
+     */
+    public WorldMapView(WorldMapView other)
+    {
+        world = other.world.copy();
+        width = world.width;
+        height = world.height;
+        colorMap = new float[width][height];
+        biomeMapper = other.biomeMapper.copy();
+        biomeColors = other.biomeColors.clone();
+        System.arraycopy(other.BIOME_COLOR_TABLE, 0, BIOME_COLOR_TABLE, 0, 61);
+        System.arraycopy(other.BIOME_DARK_COLOR_TABLE, 0, BIOME_DARK_COLOR_TABLE, 0, 61);
+        ditherStrength = other.ditherStrength;
+        updateRamps();
+    }
+
+    /**
+     * Makes a copy of this view as {@link #WorldMapView(WorldMapView)} does; subclasses that change how biomes are
+     * mapped or colors are drawn override this to return their own type, so code that copies a view it was given, like
+     * {@link TilePyramidExporter}, draws the same thing as this view.
+     * @return a copy of this WorldMapView, showing a copy of its world
+     */
+    public WorldMapView copy()
+    {
+        return new WorldMapView(this);
+    }
+
 
     public static float floatGet(int r, int g, int b) {
         return NumberUtils.intBitsToFloat((r & 0xff) | (g << 8 & 0xff00) | (b << 16 & 0xff0000)
@@ -245,7 +348,118 @@ public class WorldMapView {
             Empty                                                                                                                      //SPACE
     };
     public final float[] BIOME_COLOR_TABLE = new float[61], BIOME_DARK_COLOR_TABLE = new float[61];
+    /**
+     * How many steps each of the precomputed color ramps has between its two ends.
+     */
+    protected static final int RAMP_STEPS = 1024;
+    /**
+     * The colors {@link #show()} uses for unfrozen ocean, frozen ocean, and frozen coast, precomputed by
+     * {@link #updateRamps()} at {@link #RAMP_STEPS} + 1 evenly-spaced amounts along each gradient, as int bits.
+     */
+    protected final int[] oceanRamp = new int[RAMP_STEPS + 1], frozenOceanRamp = new int[RAMP_STEPS + 1],
+            frozenCoastRamp = new int[RAMP_STEPS + 1];
+    /**
+     * The red, green, blue, and alpha channels of each color in {@link #BIOME_COLOR_TABLE} and
+     * {@link #BIOME_DARK_COLOR_TABLE}, 4 ints per biome, unpacked by {@link #updateRamps()} so biome blends don't need to
+     * unpack them for every cell.
+     */
+    protected final int[] lightChannels = new int[61 << 2], darkChannels = new int[61 << 2];
+    /**
+     * The palette for {@link #showIndexed(byte[], boolean)}, as RGBA8888 ints; built when needed by
+     * {@link #buildPalette()}.
+     */
+    protected int[] palette;
+    /**
+     * Maps each color with 5 bits per channel (red in the high bits, blue in the low) to the index of the nearest
+     * palette entry; built along with {@link #palette}.
+     */
+    protected final byte[] paletteLookup = new byte[0x8000];
+    /**
+     * False when the palette needs to be rebuilt because the colors it comes from have changed.
+     */
+    protected boolean paletteValid = false;
+    /**
+     * How far {@link #showIndexed(byte[], boolean)} can push each channel of a color, up or down, when dithering;
+     * defaults to 12. Larger values hide banding in smooth gradients better but make the dither pattern more visible.
+     */
+    public int ditherStrength = 12;
+    /**
+     * A 4x4 Bayer matrix, used for ordered dithering.
+     */
+    private static final int[] BAYER = {0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5};
     
+    /**
+     * Rebuilds the precomputed color ramps and channel tables that {@link #show()} uses from
+     * {@link #BIOME_COLOR_TABLE} and {@link #BIOME_DARK_COLOR_TABLE}. The initialize() and match() methods call this
+     * already; you only need to call it yourself after changing entries in those tables directly.
+     */
+    public void updateRamps()
+    {
+        int c;
+        for (int i = 0, j = 0; i < 61; i++, j += 4) {
+            c = NumberUtils.floatToIntBits(BIOME_COLOR_TABLE[i]);
+            lightChannels[j] = c & 0xFF;
+            lightChannels[j + 1] = c >>> 8 & 0xFF;
+            lightChannels[j + 2] = c >>> 16 & 0xFF;
+            lightChannels[j + 3] = c >>> 24 & 254;
+            c = NumberUtils.floatToIntBits(BIOME_DARK_COLOR_TABLE[i]);
+            darkChannels[j] = c & 0xFF;
+            darkChannels[j + 1] = c >>> 8 & 0xFF;
+            darkChannels[j + 2] = c >>> 16 & 0xFF;
+            darkChannels[j + 3] = c >>> 24 & 254;
+        }
+        fillRamp(oceanRamp, BIOME_COLOR_TABLE[56], BIOME_COLOR_TABLE[43]);
+        fillRamp(frozenOceanRamp, BIOME_COLOR_TABLE[50], BIOME_COLOR_TABLE[12]);
+        fillRamp(frozenCoastRamp, BIOME_COLOR_TABLE[0], BIOME_COLOR_TABLE[12]);
+        paletteValid = false;
+    }
+
+    private static void fillRamp(final int[] ramp, final float start, final float end)
+    {
+        for (int i = 0; i <= RAMP_STEPS; i++) {
+            ramp[i] = NumberUtils.floatToIntBits(lerpFloatColors(start, end, i * (1f / RAMP_STEPS)));
+        }
+    }
+
+    /**
+     * Gets the same color as {@code lerpFloatColors(start, end, change)}, reading it from {@code ramp} when possible.
+     * Each channel of a lerp only moves one way as change grows, so if the ramp's entries on both sides of change are
+     * equal, the color at change must be that same color; otherwise this falls back to lerping.
+     */
+    private static float rampColor(final int[] ramp, final float start, final float end, final float change)
+    {
+        if(change >= 0f && change <= 1f) {
+            final int i = (int) (change * RAMP_STEPS);
+            if(i == RAMP_STEPS || ramp[i] == ramp[i + 1])
+                return NumberUtils.intBitsToFloat(ramp[i]);
+        }
+        return lerpFloatColors(start, end, change);
+    }
+
+    /**
+     * Gets the color for a land biome code from a {@link WorldMapGenerator.DetailedBiomeMapper}, which blends the
+     * light color of part B toward the dark color of part A by the mix amount. The mix amount is stored as a 10-bit
+     * fixed-point number, so this blend is done in integer math on the unpacked channels, and gives exactly the same
+     * result as {@link #lerpFloatColors(float, float, float)}.
+     * @param bc a biome code
+     * @return a packed float color
+     */
+    protected float biomeColor(final int bc)
+    {
+        final int[] light = lightChannels, dark = darkChannels;
+        final int a = (bc & 1023) << 2, b = (bc >>> 10 & 1023) << 2, mix = bc >>> 20;
+        int s;
+        s = light[b];
+        final int red = (s * 1024 + mix * (dark[a] - s)) / 1024 & 0xFF;
+        s = light[b + 1];
+        final int green = (s * 1024 + mix * (dark[a + 1] - s)) / 1024 & 0xFF;
+        s = light[b + 2];
+        final int blue = (s * 1024 + mix * (dark[a + 2] - s)) / 1024 & 0xFF;
+        s = light[b + 3];
+        final int alpha = (s * 1024 + mix * (dark[a + 3] - s)) / 1024 & 0xFE;
+        return NumberUtils.intBitsToFloat(red | green << 8 | blue << 16 | alpha << 24);
+    }
+
     public void initialize()
     {
         initialize(0f, 0f, 0f, 1f);
@@ -261,6 +475,7 @@ public class WorldMapView {
             BIOME_DARK_COLOR_TABLE[i] = toEditedFloat(b, 0f, 0f, -0.08f, 0f);
         }
         BIOME_COLOR_TABLE[60] = BIOME_DARK_COLOR_TABLE[60] = emptyColor;
+        updateRamps();
     }
 
     /**
@@ -326,6 +541,7 @@ public class WorldMapView {
             BIOME_DARK_COLOR_TABLE[i] = toEditedFloat(b, 0f, 0f, -0.08f, 0f);
         }
         BIOME_COLOR_TABLE[60] = BIOME_DARK_COLOR_TABLE[60] = biomeColors[14];
+        updateRamps();
         biomeColors[ 0] = WorldMapView.desertColor;
         biomeColors[ 1] = WorldMapView.savannaColor;
         biomeColors[ 2] = WorldMapView.tropicalRainforestColor;
@@ -364,6 +580,7 @@ public class WorldMapView {
             BIOME_DARK_COLOR_TABLE[i] = toEditedFloat(b, 0f, 0f, -0.08f, 0f);
         }
         BIOME_COLOR_TABLE[60] = BIOME_DARK_COLOR_TABLE[60] = biomeColors[14];
+        updateRamps();
         biomeColors[ 0] = WorldMapView.desertColor;
         biomeColors[ 1] = WorldMapView.savannaColor;
         biomeColors[ 2] = WorldMapView.tropicalRainforestColor;
@@ -398,58 +615,449 @@ public class WorldMapView {
         world.generate(landMod, heatMod, seed);
         biomeMapper.makeBiomes(world);
     }
+
+    /**
+     * Generates a new world like {@link #generate()} and colors it like {@link #show()}, but maps biomes and colors
+     * each row while generation's last pass still has that row in cache, instead of sweeping over the whole map twice
+     * more afterwards. The biome mapper's code arrays are filled as usual.
+     * @return the 2D float array of colors, the same as {@link #getColorMap()}
+     */
+    public float[][] generateAndShow()
+    {
+        return generateAndShow(world.seedA, world.seedB, 1.0 + formCurvedDouble((world.seedA ^ 0x123456789ABCDL) * 0x12345689ABL ^ world.seedB) * 0.25,
+                SilkRNG.determineDouble(world.seedB * 0x12345 + 0x54321 ^ world.seedA) * 0.25 + 1.0, true);
+    }
+
+    /**
+     * Generates a new world like {@link #generate(int, int, double, double)} and colors it like {@link #show()}, but
+     * maps biomes and colors each row while generation's last pass still has that row in cache, instead of sweeping
+     * over the whole map twice more afterwards. The results are the same as calling generate() and then show(). If
+     * {@code keepCodes} is false, the biome mapper's code arrays aren't written (or allocated), which saves memory
+     * traffic when only the colors are needed, such as for thumbnails; its codes are then stale until it maps a world
+     * again.
+     * <br>
+     * Biome mapping and coloring happen inside the world's {@link WorldMapGenerator.GenerationListener#NORMALIZE} or
+     * {@link WorldMapGenerator.GenerationListener#RESAMPLE} phase here, so they aren't reported as separate phases.
+     * @param seedA the first part of the seed to generate with
+     * @param seedB the second part of the seed to generate with
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; a random value will be used if this is negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; a random value will be used if this is negative
+     * @param keepCodes true to also fill the biome mapper's heat, moisture, and biome code arrays
+     * @return the 2D float array of colors, the same as {@link #getColorMap()}
+     */
+    public float[][] generateAndShow(int seedA, int seedB, double landMod, double heatMod, boolean keepCodes)
+    {
+        final long seed = (long) seedB << 32 | (seedA & 0xFFFFFFFFL);
+        final WorldMapGenerator.RowVisitor previous = world.getRowVisitor();
+        fusedKeepCodes = keepCodes;
+        fusedVisited = false;
+        world.setRowVisitor(fusedVisitor);
+        try {
+            world.generate(landMod, heatMod, seed);
+        } finally {
+            world.setRowVisitor(previous);
+        }
+        if(!fusedVisited) {
+            biomeMapper.makeBiomes(world);
+            show();
+        }
+        return colorMap;
+    }
+
     public float[][] show()
     {
-        int hc, tc, bc;
-        final int[][] heightCodeData = world.heightCodeData;
-        double[][] heightData = world.heightData;
-        int[][] heatCodeData = biomeMapper.heatCodeData;
-        int[][] biomeCodeData = biomeMapper.biomeCodeData;
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.COLORS);
+        fillColors();
+        world.finishPhase(WorldMapGenerator.GenerationListener.COLORS, phaseStart, width * height, 0);
+        return colorMap;
+    }
 
-        for (int y = 0; y < height; y++) {
-            PER_CELL:
-            for (int x = 0; x < width; x++) {
-                hc = heightCodeData[x][y];
+    /**
+     * Colors only the part of the map with x from {@code startX} (inclusive) to {@code endX} (exclusive) and y from
+     * {@code startY} (inclusive) to {@code endY} (exclusive), writing into the color map like {@link #show()} does and
+     * leaving the rest of the color map alone. This uses the codes the biome mapper already has, so it's useful after
+     * remapping part of a world, and it can be called from several threads at once for areas that don't overlap. The
+     * bounds are clamped to the map's size. This doesn't report anything to a listener.
+     * @param startX the lowest x to color, inclusive
+     * @param startY the lowest y to color, inclusive
+     * @param endX the highest x to color, exclusive
+     * @param endY the highest y to color, exclusive
+     */
+    public void showRegion(int startX, int startY, int endX, int endY)
+    {
+        startX = Math.max(startX, 0);
+        startY = Math.max(startY, 0);
+        endX = Math.min(endX, width);
+        endY = Math.min(endY, height);
+        int hc;
+        for (int x = startX; x < endX; x++) {
+            final float[] colors = colorMap[x];
+            final int[] heightCodes = world.heightCodeData[x], heatCodes = biomeMapper.heatCodeData[x],
+                    biomeCodes = biomeMapper.biomeCodeData[x];
+            final double[] heights = world.heightData[x];
+            for (int y = startY; y < endY; y++) {
+                hc = heightCodes[y];
                 if(hc == 1000)
                 {
-                    colorMap[x][y] = emptyColor;
+                    colors[y] = emptyColor;
                     continue;
                 }
-                tc = heatCodeData[x][y];
-                bc = biomeCodeData[x][y];
-                if(tc == 0)
-                {
-                    switch (hc)
-                    {
-                        case 0:
-                        case 1:
-                        case 2:
-                        case 3:
-                            colorMap[x][y] = lerpFloatColors(BIOME_COLOR_TABLE[50], BIOME_COLOR_TABLE[12],
-                                    (float) ((heightData[x][y] - -1.0) / (WorldMapGenerator.sandLower - -1.0)));
-                            continue PER_CELL;
-                        case 4:
-                            colorMap[x][y] = lerpFloatColors(BIOME_COLOR_TABLE[0], BIOME_COLOR_TABLE[12],
-                                    (float) ((heightData[x][y] - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower)));
-                            continue PER_CELL;
-                    }
+                colors[y] = cellColor(hc, heatCodes[y], biomeCodes[y], heights[y]);
+            }
+        }
+    }
+
+    /**
+     * Fills the whole color map for {@link #show()}; subclasses can override this to split the work up.
+     */
+    protected void fillColors()
+    {
+        showRegion(0, 0, width, height);
+    }
+
+    /**
+     * Colors the map like {@link #show()}, but writes each cell as RGBA8888 straight into {@code pixels} instead of
+     * into the float color map, which isn't touched. The layout matches a {@link Pixmap} in
+     * {@link Pixmap.Format#RGBA8888} format that is as big as this map: rows go from top (y = 0) to bottom, each row
+     * goes from left to right, and each cell takes 4 bytes, in the order red, green, blue, alpha. That layout is kept
+     * whatever {@link ByteBuffer#order()} the buffer has. Writing starts at the buffer's position, which isn't changed.
+     * Opaque colors get an alpha of 255, where the packed floats can only store 254.
+     * @param pixels a ByteBuffer with at least {@code getWidth() * getHeight() * 4} bytes remaining, such as
+     *               {@link Pixmap#getPixels()}
+     * @return pixels, after writing to it
+     */
+    public ByteBuffer show(ByteBuffer pixels)
+    {
+        final int start = pixels.position(), size = width * height;
+        if(pixels.remaining() < size << 2)
+            throw new IllegalArgumentException("pixels must have at least " + (size << 2) + " bytes remaining");
+        final boolean swap = pixels.order() != ByteOrder.LITTLE_ENDIAN;
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.COLORS);
+        fillPixels(pixels, start, swap);
+        world.finishPhase(WorldMapGenerator.GenerationListener.COLORS, phaseStart, size, 0);
+        return pixels;
+    }
+
+    /**
+     * Colors the map like {@link #show()}, but writes each cell as one int straight into {@code pixels} instead of into
+     * the float color map, which isn't touched. Cells go in row-major order, from the top row (y = 0) to the bottom,
+     * one int per cell. If the buffer is a view of bytes, those bytes are in the order red, green, blue, alpha, the
+     * same as {@link #show(ByteBuffer)}, so an IntBuffer made with {@code pixmap.getPixels().asIntBuffer()} works; this
+     * means the ints are RGBA8888 if {@link IntBuffer#order()} is big-endian, or ABGR8888 if it is little-endian.
+     * Writing starts at the buffer's position, which isn't changed. Opaque colors get an alpha of 255.
+     * @param pixels an IntBuffer with at least {@code getWidth() * getHeight()} ints remaining
+     * @return pixels, after writing to it
+     */
+    public IntBuffer show(IntBuffer pixels)
+    {
+        final int start = pixels.position(), size = width * height;
+        if(pixels.remaining() < size)
+            throw new IllegalArgumentException("pixels must have at least " + size + " ints remaining");
+        final boolean swap = pixels.order() != ByteOrder.LITTLE_ENDIAN;
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.COLORS);
+        fillPixels(pixels, start, swap);
+        world.finishPhase(WorldMapGenerator.GenerationListener.COLORS, phaseStart, size, 0);
+        return pixels;
+    }
+
+    /**
+     * Colors the map like {@link #show()}, but writes it straight into the pixel memory of {@code pixmap}, without
+     * going through the float color map or drawing one pixel at a time. The Pixmap must use
+     * {@link Pixmap.Format#RGBA8888} and be exactly as big as this map; every pixel is replaced, and the Pixmap's
+     * blending setting isn't used.
+     * @param pixmap an RGBA8888 Pixmap with the same width and height as this WorldMapView
+     * @return pixmap, after writing to it
+     */
+    public Pixmap show(Pixmap pixmap)
+    {
+        if(pixmap.getFormat() != Pixmap.Format.RGBA8888 || pixmap.getWidth() != width || pixmap.getHeight() != height)
+            throw new IllegalArgumentException("pixmap must be RGBA8888 and " + width + "x" + height);
+        final ByteBuffer pixels = pixmap.getPixels();
+        final int position = pixels.position();
+        pixels.position(0);
+        show(pixels);
+        pixels.position(position);
+        return pixmap;
+    }
+
+    /**
+     * Fills all of {@code pixels} for {@link #show(ByteBuffer)}; subclasses can override this to split the work up.
+     * @param pixels the ByteBuffer to write to, with enough room already checked
+     * @param start the index of the first byte to write
+     * @param swap true if the buffer is big-endian, so ints need their bytes reversed to be RGBA in memory
+     */
+    protected void fillPixels(ByteBuffer pixels, int start, boolean swap)
+    {
+        showRows(pixels, start, swap, 0, height);
+    }
+
+    /**
+     * Fills all of {@code pixels} for {@link #show(IntBuffer)}; subclasses can override this to split the work up.
+     * @param pixels the IntBuffer to write to, with enough room already checked
+     * @param start the index of the first int to write
+     * @param swap true if the buffer is big-endian, so ints need their bytes reversed to be RGBA in memory
+     */
+    protected void fillPixels(IntBuffer pixels, int start, boolean swap)
+    {
+        showRows(pixels, start, swap, 0, height);
+    }
+
+    /**
+     * Writes the rows from {@code startY} (inclusive) to {@code endY} (exclusive) into {@code pixels}, laid out as
+     * {@link #show(ByteBuffer)} describes. Only absolute puts are used, so threads can write different rows into the
+     * same buffer at once.
+     * @param pixels the ByteBuffer to write to
+     * @param start the index of the first byte of row 0
+     * @param swap true if the buffer is big-endian
+     * @param startY the first row to write, inclusive
+     * @param endY the last row to write, exclusive
+     */
+    protected void showRows(ByteBuffer pixels, int start, boolean swap, int startY, int endY)
+    {
+        int c;
+        for (int y = startY, i = start + (startY * width << 2); y < endY; y++) {
+            for (int x = 0; x < width; x++, i += 4) {
+                c = cellABGR(x, y);
+                pixels.putInt(i, swap ? Integer.reverseBytes(c) : c);
+            }
+        }
+    }
+
+    /**
+     * Writes the rows from {@code startY} (inclusive) to {@code endY} (exclusive) into {@code pixels}, laid out as
+     * {@link #show(IntBuffer)} describes. Only absolute puts are used, so threads can write different rows into the
+     * same buffer at once.
+     * @param pixels the IntBuffer to write to
+     * @param start the index of the first int of row 0
+     * @param swap true if the buffer is big-endian
+     * @param startY the first row to write, inclusive
+     * @param endY the last row to write, exclusive
+     */
+    protected void showRows(IntBuffer pixels, int start, boolean swap, int startY, int endY)
+    {
+        int c;
+        for (int y = startY, i = start + startY * width; y < endY; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                c = cellABGR(x, y);
+                pixels.put(i, swap ? Integer.reverseBytes(c) : c);
+            }
+        }
+    }
+
+    /**
+     * Gets the palette that {@link #showIndexed(byte[], boolean)} indexes into, building it first if the colors have
+     * changed. Each entry is an RGBA8888 int, as used by {@link Pixmap#drawPixel(int, int, int)}, and there are at
+     * most 256 entries. Entry 0 is always {@link #emptyColor}, and is only used for empty space. The rest are the
+     * distinct colors from {@link #BIOME_COLOR_TABLE} and {@link #BIOME_DARK_COLOR_TABLE}, followed by evenly-spaced
+     * steps along the gradients used for ocean and frozen ocean and coast, then halfway blends between each biome's
+     * light and dark colors, as many as fit. The palette only depends on
+     * the colors this was initialized with, not on the map, so maps shown with the same colors share a palette.
+     * <br>
+     * The returned array is reused until the colors change, so it shouldn't be modified.
+     * @return the palette as an array of RGBA8888 ints, with length no greater than 256
+     */
+    public int[] getPalette()
+    {
+        if(!paletteValid)
+            buildPalette();
+        return palette;
+    }
+
+    /**
+     * Builds {@link #palette} and {@link #paletteLookup} from the current color tables and ramps.
+     */
+    protected void buildPalette()
+    {
+        final int[] entries = new int[256];
+        int count = 0;
+        entries[count++] = NumberUtils.floatToIntColor(emptyColor);
+        for (int i = 0; i < 60; i++) {
+            count = addPaletteEntry(entries, count, NumberUtils.floatToIntColor(BIOME_COLOR_TABLE[i]));
+            count = addPaletteEntry(entries, count, NumberUtils.floatToIntColor(BIOME_DARK_COLOR_TABLE[i]));
+        }
+        for (int i = 0; i < 64; i++) {
+            count = addPaletteEntry(entries, count,
+                    NumberUtils.floatToIntColor(NumberUtils.intBitsToFloat(oceanRamp[i * RAMP_STEPS / 63])));
+        }
+        for (int i = 0; i < 16; i++) {
+            count = addPaletteEntry(entries, count,
+                    NumberUtils.floatToIntColor(NumberUtils.intBitsToFloat(frozenOceanRamp[i * RAMP_STEPS / 15])));
+            count = addPaletteEntry(entries, count,
+                    NumberUtils.floatToIntColor(NumberUtils.intBitsToFloat(frozenCoastRamp[i * RAMP_STEPS / 15])));
+        }
+        for (int i = 0; i < 60 && count < 256; i++) {
+            count = addPaletteEntry(entries, count,
+                    NumberUtils.floatToIntColor(lerpFloatColors(BIOME_COLOR_TABLE[i], BIOME_DARK_COLOR_TABLE[i], 0.5f)));
+        }
+        palette = new int[count];
+        int best, bestDist, dist, d, c, r, g, b;
+        for (int i = 0; i < count; i++) {
+            palette[i] = Integer.reverseBytes(entries[i]);
+        }
+        // entry 0 is only for space, so it is never a candidate here
+        for (int i = 0; i < 0x8000; i++) {
+            r = (i >>> 7 & 0xF8) | 4;
+            g = (i >>> 2 & 0xF8) | 4;
+            b = (i << 3 & 0xF8) | 4;
+            best = 1;
+            bestDist = Integer.MAX_VALUE;
+            for (int j = 1; j < count; j++) {
+                c = entries[j];
+                d = (c & 0xFF) - r;
+                dist = d * d * 3;
+                d = (c >>> 8 & 0xFF) - g;
+                dist += d * d * 4;
+                d = (c >>> 16 & 0xFF) - b;
+                dist += d * d * 2;
+                if(dist < bestDist) {
+                    bestDist = dist;
+                    best = j;
+                }
+            }
+            paletteLookup[i] = (byte) best;
+        }
+        paletteValid = true;
+    }
+
+    private static int addPaletteEntry(final int[] entries, final int count, final int color)
+    {
+        if(count >= entries.length)
+            return count;
+        for (int i = 1; i < count; i++) {
+            if(entries[i] == color)
+                return count;
+        }
+        entries[count] = color;
+        return count + 1;
+    }
+
+    /**
+     * Colors the map like {@link #show()}, but writes one palette index per cell into {@code indices} instead of a
+     * color, using the palette from {@link #getPalette()}. Cells go in row-major order, from the top row (y = 0) to
+     * the bottom, so the cell at x,y goes to index {@code y * getWidth() + x}, the same layout as an indexed PNG or
+     * GIF. Empty space always gets index 0; other cells get the palette entry nearest their color. If {@code dither}
+     * is true, a 4x4 ordered (Bayer) dither is applied first, with a strength of {@link #ditherStrength}, which turns
+     * the bands that a limited palette makes in smooth ocean gradients into a fine, stable pattern. Ordered dithering
+     * only depends on each cell's own color and position, so the same map always gives the same indices, and a part of
+     * a map matches the same part of a larger map.
+     * <br>
+     * The float color map isn't touched.
+     * @param indices the array to write to; if null or shorter than {@code getWidth() * getHeight()}, a new array
+     *                will be allocated and returned
+     * @param dither true to use ordered dithering, false to use the nearest palette entry for each cell
+     * @return the array of palette indices, which is {@code indices} if that was big enough
+     */
+    public byte[] showIndexed(byte[] indices, boolean dither)
+    {
+        final int size = width * height;
+        if(indices == null || indices.length < size)
+            indices = new byte[size];
+        if(!paletteValid)
+            buildPalette();
+        final long phaseStart = world.startPhase(WorldMapGenerator.GenerationListener.COLORS);
+        fillIndices(indices, dither);
+        world.finishPhase(WorldMapGenerator.GenerationListener.COLORS, phaseStart, size, 0);
+        return indices;
+    }
+
+    /**
+     * Fills all of {@code indices} for {@link #showIndexed(byte[], boolean)}; subclasses can override this to split
+     * the work up.
+     * @param indices the array to write to, already big enough
+     * @param dither true to use ordered dithering
+     */
+    protected void fillIndices(byte[] indices, boolean dither)
+    {
+        showIndexedRows(indices, dither, 0, height);
+    }
+
+    /**
+     * Writes palette indices for the rows from {@code startY} (inclusive) to {@code endY} (exclusive) into
+     * {@code indices}, laid out as {@link #showIndexed(byte[], boolean)} describes. The palette must already be
+     * built. Different threads can write different rows at once.
+     * @param indices the array to write to
+     * @param dither true to use ordered dithering
+     * @param startY the first row to write, inclusive
+     * @param endY the last row to write, exclusive
+     */
+    protected void showIndexedRows(byte[] indices, boolean dither, int startY, int endY)
+    {
+        final int[][] heightCodeData = world.heightCodeData, heatCodeData = biomeMapper.heatCodeData,
+                biomeCodeData = biomeMapper.biomeCodeData;
+        final double[][] heightData = world.heightData;
+        final int strength = dither ? ditherStrength : 0;
+        int hc, c, r, g, b, offset;
+        for (int y = startY, i = startY * width; y < endY; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                hc = heightCodeData[x][y];
+                if(hc == 1000) {
+                    indices[i] = 0;
+                    continue;
                 }
-                switch (hc) {
-                    case 0:
-                    case 1:
-                    case 2:
-                    case 3:
-                        colorMap[x][y] = lerpFloatColors(
-                                BIOME_COLOR_TABLE[56], BIOME_COLOR_TABLE[43],
-                                (MathUtils.clamp((float) (((heightData[x][y] + 0.06) * 8.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f)));
-                        break;
-                    default:
-                        colorMap[x][y] = lerpFloatColors(BIOME_COLOR_TABLE[biomeMapper.extractPartB(bc)],
-                                BIOME_DARK_COLOR_TABLE[biomeMapper.extractPartA(bc)], biomeMapper.extractMixAmount(bc));
+                c = NumberUtils.floatToIntBits(cellColor(hc, heatCodeData[x][y], biomeCodeData[x][y], heightData[x][y]));
+                r = c & 0xFF;
+                g = c >>> 8 & 0xFF;
+                b = c >>> 16 & 0xFF;
+                if(strength != 0) {
+                    offset = (BAYER[(y & 3) << 2 | (x & 3)] * 2 - 15) * strength / 15;
+                    r = Math.min(Math.max(r + offset, 0), 255);
+                    g = Math.min(Math.max(g + offset, 0), 255);
+                    b = Math.min(Math.max(b + offset, 0), 255);
                 }
+                indices[i] = paletteLookup[(r << 7 & 0x7C00) | (g << 2 & 0x3E0) | b >>> 3];
             }
         }
-        
-        return colorMap;
+    }
+
+    /**
+     * Gets the color {@link #show()} would give the cell at x,y, as an ABGR8888 int with opaque colors at alpha 255.
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @return an ABGR8888 int color
+     */
+    protected int cellABGR(final int x, final int y)
+    {
+        final int hc = world.heightCodeData[x][y];
+        if(hc == 1000)
+            return NumberUtils.floatToIntColor(emptyColor);
+        return NumberUtils.floatToIntColor(cellColor(hc, biomeMapper.heatCodeData[x][y], biomeMapper.biomeCodeData[x][y],
+                world.heightData[x][y]));
+    }
+
+    /**
+     * Gets the color for one cell that isn't in space.
+     * @param hc the height code of the cell, from the world's heightCodeData
+     * @param tc the heat code of the cell, from the biome mapper
+     * @param bc the biome code of the cell, from the biome mapper
+     * @param high the height of the cell, from the world's heightData
+     * @return a packed float color
+     */
+    protected float cellColor(final int hc, final int tc, final int bc, final double high)
+    {
+        if(tc == 0)
+        {
+            switch (hc)
+            {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                    return rampColor(frozenOceanRamp, BIOME_COLOR_TABLE[50], BIOME_COLOR_TABLE[12],
+                            (float) ((high - -1.0) / (WorldMapGenerator.sandLower - -1.0)));
+                case 4:
+                    return rampColor(frozenCoastRamp, BIOME_COLOR_TABLE[0], BIOME_COLOR_TABLE[12],
+                            (float) ((high - WorldMapGenerator.sandLower) / (WorldMapGenerator.sandUpper - WorldMapGenerator.sandLower)));
+            }
+        }
+        switch (hc) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+                return rampColor(oceanRamp, BIOME_COLOR_TABLE[56], BIOME_COLOR_TABLE[43],
+                        (MathUtils.clamp((float) (((high + 0.06) * 8.0) / (WorldMapGenerator.sandLower + 1.0)), 0f, 1f)));
+            default:
+                return biomeColor(bc);
+        }
     }
 }
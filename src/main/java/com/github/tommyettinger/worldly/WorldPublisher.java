@@ -0,0 +1,205 @@
+package com.github.tommyettinger.worldly;
+
+import java.util.ArrayList;
+
+/**
+ * Lets one thread generate and zoom a world while any number of other threads read it, without readers ever seeing a
+ * half-regenerated map. Every change goes through this class, which regenerates the world, maps its biomes, and then
+ * publishes a new {@link WorldSnapshot}; readers get the newest complete snapshot without locking, and keep reading the
+ * one they got for as long as they like. Each snapshot gets its own copy of the world's layers and biome codes, so the
+ * world keeps generating into the same arrays it always does.
+ * <br>
+ * Readers that call {@link #acquire()} and later {@link #release(WorldSnapshot)} let the publisher know when they are
+ * done, and once no reader holds an older snapshot, its arrays are written over for a later one instead of allocating
+ * new ones; with readers like that, publishing only allocates a few small objects after the first couple of changes.
+ * Snapshots from {@link #current()} can't be released, so a snapshot anything got that way is never reused, and every
+ * publish after it allocates a whole set of layers and biome codes (which is also what happens when readers hold more
+ * than a few old snapshots at once).
+ * <br>
+ * Changes are made one at a time; a thread that calls a changing method while another is running waits for it, but
+ * {@link #current()}, {@link #acquire()}, and {@link #release(WorldSnapshot)} never wait. Don't generate with
+ * {@link #world} or {@link #mapper} directly, since readers won't see those changes until the next {@link #publish()}.
+ */
+public class WorldPublisher {
+    /**
+     * How many older snapshots are kept track of so their arrays can be reused.
+     */
+    private static final int KEPT = 4;
+    /**
+     * The generator that does the work; only changed through this publisher.
+     */
+    public final WorldMapGenerator world;
+    /**
+     * The biome mapper run after each change, or null to publish snapshots without biomes.
+     */
+    public final WorldMapGenerator.BiomeMapper mapper;
+    private volatile WorldSnapshot current;
+    /**
+     * Snapshots published before {@link #current}, oldest first, that might be reused once no reader holds them.
+     */
+    private final ArrayList<WorldSnapshot> retired = new ArrayList<>(KEPT + 1);
+
+    /**
+     * Publishes changes to {@code world}, with biomes mapped by {@code mapper}. Nothing is published until the first
+     * change or call to {@link #publish()}, so {@link #current()} returns null until then.
+     * @param world the WorldMapGenerator to generate with
+     * @param mapper a {@link WorldMapGenerator.SimpleBiomeMapper} or {@link WorldMapGenerator.DetailedBiomeMapper}, or
+     *               null to leave biomes out of snapshots
+     */
+    public WorldPublisher(WorldMapGenerator world, WorldMapGenerator.BiomeMapper mapper) {
+        this.world = world;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Gets the most recently published snapshot; never blocks. The snapshot this returns is never reused, so it can
+     * be read for as long as needed, but it also can't save the publisher any allocation; readers that read often
+     * should use {@link #acquire()} instead.
+     * @return the newest WorldSnapshot, or null if nothing has been generated yet
+     */
+    public WorldSnapshot current() {
+        WorldSnapshot snapshot;
+        // checking again after pinning means the publisher either sees the pin or has already replaced this snapshot
+        while ((snapshot = current) != null && !snapshot.pinned) {
+            snapshot.pinned = true;
+            if(snapshot == current)
+                break;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the most recently published snapshot and holds it until {@link #release(WorldSnapshot)} is called with it;
+     * never blocks. The snapshot's arrays may be written over once it has been released, so nothing may read them
+     * after that.
+     * @return the newest WorldSnapshot, or null if nothing has been generated yet
+     */
+    public WorldSnapshot acquire() {
+        WorldSnapshot snapshot;
+        while ((snapshot = current) != null) {
+            snapshot.readers.incrementAndGet();
+            // checking again after counting means the publisher either sees the count or has replaced this snapshot
+            if(snapshot == current)
+                break;
+            snapshot.readers.decrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lets go of a snapshot from {@link #acquire()}, so its arrays can be reused once nothing else holds it.
+     * @param snapshot a snapshot from {@link #acquire()} that hasn't been released yet; may be null
+     */
+    public void release(WorldSnapshot snapshot) {
+        if(snapshot != null)
+            snapshot.readers.decrementAndGet();
+    }
+
+    /**
+     * Maps biomes for the world as it is now (if there is a mapper) and publishes a snapshot of it. The changing
+     * methods here call this already.
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot publish() {
+        if(mapper != null)
+            mapper.makeBiomes(world);
+        WorldSnapshot spare = null;
+        for (int i = 0; i < retired.size(); i++) {
+            final WorldSnapshot old = retired.get(i);
+            if(old.pinned) {
+                retired.remove(i--);
+            }
+            else if(old.readers.get() == 0) {
+                spare = retired.remove(i);
+                break;
+            }
+        }
+        final WorldSnapshot snapshot = new WorldSnapshot(world, mapper, spare);
+        final WorldSnapshot previous = current;
+        current = snapshot;
+        if(previous != null) {
+            retired.add(previous);
+            if(retired.size() > KEPT)
+                retired.remove(0);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Generates a world with a random seed and publishes it; see {@link WorldMapGenerator#generate()}.
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot generate() {
+        world.generate();
+        return publish();
+    }
+
+    /**
+     * Generates a world and publishes it; see {@link WorldMapGenerator#generate(long)}.
+     * @param state the state to give the generator's RNG
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot generate(long state) {
+        world.generate(state);
+        return publish();
+    }
+
+    /**
+     * Generates a world and publishes it; see {@link WorldMapGenerator#generate(double, double, long)}.
+     * @param landMod 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; random if negative
+     * @param heatMod 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; random if negative
+     * @param state the state to give the generator's RNG
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot generate(double landMod, double heatMod, long state) {
+        world.generate(landMod, heatMod, state);
+        return publish();
+    }
+
+    /**
+     * Zooms in and publishes the result; see {@link WorldMapGenerator#zoomIn(int, int, int)}.
+     * @param zoomAmount how many times to double the resolution
+     * @param zoomCenterX the center X position to zoom in to
+     * @param zoomCenterY the center Y position to zoom in to
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot zoomIn(int zoomAmount, int zoomCenterX, int zoomCenterY) {
+        world.zoomIn(zoomAmount, zoomCenterX, zoomCenterY);
+        return publish();
+    }
+
+    /**
+     * Zooms out and publishes the result; see {@link WorldMapGenerator#zoomOut(int, int, int)}.
+     * @param zoomAmount how many times to halve the resolution
+     * @param zoomCenterX the center X position to zoom out from
+     * @param zoomCenterY the center Y position to zoom out from
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot zoomOut(int zoomAmount, int zoomCenterX, int zoomCenterY) {
+        world.zoomOut(zoomAmount, zoomCenterX, zoomCenterY);
+        return publish();
+    }
+
+    /**
+     * Shows an exact area at a zoom level and publishes it; see {@link WorldMapGenerator#zoomTo(int, int, int)}.
+     * @param zoomLevel how many times the resolution should be doubled, 0 or more
+     * @param areaX the x-coordinate of the left edge of the area, in cells of the unzoomed map
+     * @param areaY the y-coordinate of the top edge of the area, in cells of the unzoomed map
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot zoomTo(int zoomLevel, int areaX, int areaY) {
+        world.zoomTo(zoomLevel, areaX, areaY);
+        return publish();
+    }
+
+    /**
+     * Puts the world into the state {@code spec} describes and publishes it; see
+     * {@link WorldSpec#applyTo(WorldMapGenerator)}.
+     * @param spec a WorldSpec for the same projection, size, and noise settings as {@link #world}
+     * @return the newly published snapshot
+     */
+    public synchronized WorldSnapshot apply(WorldSpec spec) {
+        spec.applyTo(world);
+        return publish();
+    }
+}
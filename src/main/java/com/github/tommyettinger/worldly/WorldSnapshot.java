@@ -0,0 +1,194 @@
+package com.github.tommyettinger.worldly;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable view of a world as it was at one moment: its height, heat, moisture, and height code layers, the
+ * ranges and modifiers that go with them, where it was zoomed to, and optionally a copy of its biome codes. Nothing
+ * writes to a snapshot's arrays after it is made, so any number of threads can read one without locking, even while
+ * the generator it came from regenerates or zooms; {@link WorldPublisher} makes a new snapshot after each change and
+ * hands out the newest one.
+ * <br>
+ * Taking a snapshot with the constructor doesn't copy the layers. It shares their columns with the generator, which
+ * copies them for itself the next time it writes (see {@link WorldMapGenerator#ownLayers()}), so the generator's next
+ * regeneration works in fresh arrays while readers keep the old ones. A WorldPublisher copies the layers into arrays
+ * it reuses instead, so the generator never has to. Biome codes are copied, since biome mappers write over their own
+ * arrays. The arrays in a snapshot must not be modified.
+ */
+public class WorldSnapshot {
+    public final int width, height;
+    /**
+     * The layers, shared with nothing that writes to them; read-only.
+     */
+    public final double[][] heightData, heatData, moistureData;
+    /**
+     * The height codes, shared with nothing that writes to them; read-only.
+     */
+    public final int[][] heightCodeData;
+    public final double landModifier, heatModifier, minHeight, maxHeight, minHeightActual, maxHeightActual,
+            minHeat, maxHeat, minWet, maxWet, centerLongitude;
+    /**
+     * The RNG state the world was generated with, as in {@link WorldMapGenerator#cacheA} and
+     * {@link WorldMapGenerator#cacheB}.
+     */
+    public final int cacheA, cacheB;
+    public final int zoom, startX, startY, usedWidth, usedHeight;
+    /**
+     * A copy of the biome mapper's codes for this world, or null if no mapper was given; read-only, so
+     * {@link WorldMapGenerator.BiomeMapper#makeBiomes(WorldMapGenerator)} must not be called on it.
+     */
+    public final WorldMapGenerator.BiomeMapper biomes;
+    /**
+     * How many readers got this from {@link WorldPublisher#acquire()} and haven't released it yet.
+     */
+    final AtomicInteger readers = new AtomicInteger();
+    /**
+     * True once anything got this from {@link WorldPublisher#current()}, which is never released, so the publisher
+     * must not reuse its arrays.
+     */
+    volatile boolean pinned;
+
+    /**
+     * Takes a snapshot of {@code world} as it is now, with a copy of the biome codes in {@code mapper} if that isn't
+     * null. This must be called on the thread that generates with world, or while nothing is generating with it.
+     * @param world a WorldMapGenerator that has generated a map
+     * @param mapper a {@link WorldMapGenerator.SimpleBiomeMapper} or {@link WorldMapGenerator.DetailedBiomeMapper}
+     *               that has mapped world's current map, or null to leave out biomes
+     */
+    public WorldSnapshot(WorldMapGenerator world, WorldMapGenerator.BiomeMapper mapper) {
+        // the world copies these columns before it writes to them again
+        this(world, sharing(world).heightData.clone(), world.heatData.clone(), world.moistureData.clone(),
+                world.heightCodeData.clone(), mapper == null ? null : copyBiomes(mapper, null));
+    }
+
+    /**
+     * Takes a snapshot of {@code world} as it is now, copying its layers instead of sharing them, so the world doesn't
+     * have to copy its layers the next time it generates. {@link WorldPublisher} uses this, and passes the last
+     * snapshot that no reader holds anymore, if there is one, so its arrays can be written over instead of allocated.
+     * @param world a WorldMapGenerator that has generated a map
+     * @param mapper a biome mapper that has mapped world's current map, or null to leave out biomes
+     * @param recycled a snapshot of world that nothing reads anymore and that must not be used after this, or null
+     */
+    WorldSnapshot(WorldMapGenerator world, WorldMapGenerator.BiomeMapper mapper, WorldSnapshot recycled) {
+        this(world, copyInto(world.heightData, recycled == null ? null : recycled.heightData),
+                copyInto(world.heatData, recycled == null ? null : recycled.heatData),
+                copyInto(world.moistureData, recycled == null ? null : recycled.moistureData),
+                copyInto(world.heightCodeData, recycled == null ? null : recycled.heightCodeData),
+                mapper == null ? null : copyBiomes(mapper, recycled == null ? null : recycled.biomes));
+    }
+
+    private WorldSnapshot(WorldMapGenerator world, double[][] heightData, double[][] heatData,
+                          double[][] moistureData, int[][] heightCodeData, WorldMapGenerator.BiomeMapper biomes) {
+        width = world.width;
+        height = world.height;
+        this.heightData = heightData;
+        this.heatData = heatData;
+        this.moistureData = moistureData;
+        this.heightCodeData = heightCodeData;
+        landModifier = world.landModifier;
+        heatModifier = world.heatModifier;
+        minHeight = world.minHeight;
+        maxHeight = world.maxHeight;
+        minHeightActual = world.minHeightActual;
+        maxHeightActual = world.maxHeightActual;
+        minHeat = world.minHeat;
+        maxHeat = world.maxHeat;
+        minWet = world.minWet;
+        maxWet = world.maxWet;
+        centerLongitude = world.getCenterLongitude();
+        cacheA = world.cacheA;
+        cacheB = world.cacheB;
+        zoom = world.zoom;
+        startX = world.startX;
+        startY = world.startY;
+        usedWidth = world.usedWidth;
+        usedHeight = world.usedHeight;
+        this.biomes = biomes;
+    }
+
+    private static WorldMapGenerator sharing(WorldMapGenerator world) {
+        world.shareLayers();
+        return world;
+    }
+
+    private static double[][] copyInto(double[][] source, double[][] target) {
+        if(target == null)
+            return WorldMapGenerator.copy(source);
+        for (int x = 0; x < source.length; x++) {
+            System.arraycopy(source[x], 0, target[x], 0, source[x].length);
+        }
+        return target;
+    }
+
+    private static int[][] copyInto(int[][] source, int[][] target) {
+        if(target == null)
+            return WorldMapGenerator.copy(source);
+        for (int x = 0; x < source.length; x++) {
+            System.arraycopy(source[x], 0, target[x], 0, source[x].length);
+        }
+        return target;
+    }
+
+    /**
+     * Copies the biome codes of mapper, into the arrays of {@code reuse} if it is a mapper of the same class.
+     */
+    private static WorldMapGenerator.BiomeMapper copyBiomes(WorldMapGenerator.BiomeMapper mapper,
+                                                            WorldMapGenerator.BiomeMapper reuse) {
+        if(mapper instanceof WorldMapGenerator.SimpleBiomeMapper) {
+            final WorldMapGenerator.SimpleBiomeMapper from = (WorldMapGenerator.SimpleBiomeMapper) mapper;
+            if(reuse instanceof WorldMapGenerator.SimpleBiomeMapper) {
+                final WorldMapGenerator.SimpleBiomeMapper to = (WorldMapGenerator.SimpleBiomeMapper) reuse;
+                copyInto(from.heatCodeData, to.heatCodeData);
+                copyInto(from.moistureCodeData, to.moistureCodeData);
+                copyInto(from.biomeCodeData, to.biomeCodeData);
+                return to;
+            }
+            final WorldMapGenerator.SimpleBiomeMapper to = new WorldMapGenerator.SimpleBiomeMapper();
+            to.heatCodeData = WorldMapGenerator.copy(from.heatCodeData);
+            to.moistureCodeData = WorldMapGenerator.copy(from.moistureCodeData);
+            to.biomeCodeData = WorldMapGenerator.copy(from.biomeCodeData);
+            return to;
+        }
+        if(mapper instanceof WorldMapGenerator.DetailedBiomeMapper) {
+            final WorldMapGenerator.DetailedBiomeMapper from = (WorldMapGenerator.DetailedBiomeMapper) mapper;
+            if(reuse instanceof WorldMapGenerator.DetailedBiomeMapper) {
+                final WorldMapGenerator.DetailedBiomeMapper to = (WorldMapGenerator.DetailedBiomeMapper) reuse;
+                copyInto(from.heatCodeData, to.heatCodeData);
+                copyInto(from.moistureCodeData, to.moistureCodeData);
+                copyInto(from.biomeCodeData, to.biomeCodeData);
+                return to;
+            }
+            final WorldMapGenerator.DetailedBiomeMapper to = new WorldMapGenerator.DetailedBiomeMapper();
+            to.heatCodeData = WorldMapGenerator.copy(from.heatCodeData);
+            to.moistureCodeData = WorldMapGenerator.copy(from.moistureCodeData);
+            to.biomeCodeData = WorldMapGenerator.copy(from.biomeCodeData);
+            return to;
+        }
+        throw new IllegalArgumentException("Can't copy the biome codes of a " + mapper.getClass().getName());
+    }
+
+    /**
+     * @return true if this snapshot includes biome codes in {@link #biomes}
+     */
+    public boolean hasBiomes() {
+        return biomes != null;
+    }
+
+    /**
+     * @return the RNG state the world was generated with, as could be given to
+     * {@link WorldMapGenerator#generate(double, double, long)}
+     */
+    public long getState() {
+        return (cacheA & 0xFFFFFFFFL) | (long) cacheB << 32;
+    }
+
+    /**
+     * Gets the biome code at x, y; {@link #hasBiomes()} must be true.
+     * @param x the x-coordinate on the map
+     * @param y the y-coordinate on the map
+     * @return the biome code, as from {@link WorldMapGenerator.BiomeMapper#getBiomeCode(int, int)}
+     */
+    public int getBiomeCode(int x, int y) {
+        return biomes.getBiomeCode(x, y);
+    }
+}
@@ -0,0 +1,483 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.Serializable;
+
+/**
+ * An immutable description of a generated world that is small enough to send anywhere: since generation is
+ * deterministic, the projection, size, seed, land and heat modifiers, center longitude, zoom, and noise settings are
+ * enough to make the same {@link WorldMapGenerator#heightData}, {@link WorldMapGenerator#heatData},
+ * {@link WorldMapGenerator#moistureData}, and {@link WorldMapGenerator#heightCodeData} again, down to the last bit.
+ * The one exception is cells outside a projection's shape, with height code 1000: generators don't write their other
+ * layers there, so those keep whatever an earlier generation left.
+ * Get one from a world with {@link #of(WorldMapGenerator)}, send it with {@link #toBytes()} (56 bytes for the default
+ * noise settings) or {@link #toHex()}, and read it back with {@link #fromBytes(byte[])} or {@link #fromHex(CharSequence)}.
+ * <br>
+ * The layers are only generated when something asks for them: {@link #world()} generates a world the first time it
+ * is called and keeps it, so a WorldSpec that is only compared, hashed, or passed along never costs a generation.
+ * {@link #create()} always makes a new world, and {@link #applyTo(WorldMapGenerator)} puts an existing generator into
+ * the described state, skipping generation when the generator is already there. Only the seven projections in
+ * WorldMapGenerator can be described; subclasses of them can't, since they may generate differently.
+ */
+public final class WorldSpec implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final int SPHERE = 0, ELLIPTICAL = 1, SPACE_VIEW = 2, HYPERELLIPTICAL = 3, ELLIPTICAL_HAMMER = 4,
+            ROTATING_SPACE = 5, LOCAL = 6;
+    private static final int MAGIC = 0x57, VERSION = 1, CUSTOM_NOISE = 1, TOBLER = 2, BASE_BYTES = 56;
+
+    /**
+     * One of the projection constants, such as {@link #SPHERE} or {@link #LOCAL}.
+     */
+    public final int projection;
+    public final int width, height;
+    /**
+     * The RNG state the world was generated with, as passed to {@link WorldMapGenerator#generate(double, double, long)};
+     * the low 32 bits are {@link WorldMapGenerator#cacheA} and the high 32 bits are {@link WorldMapGenerator#cacheB}.
+     */
+    public final long state;
+    /**
+     * The land and heat modifiers the world actually used; never the negative values that ask for random ones.
+     */
+    public final double landModifier, heatModifier;
+    /**
+     * The longitude the map is centered on, in radians.
+     */
+    public final double centerLongitude;
+    /**
+     * How many times the world is zoomed in, and the center of the view in cells of the whole world at that zoom, as
+     * given to {@link WorldMapGenerator#restoreZoom(int, int, int)}. For an unzoomed world, zoom is 0 and the center is
+     * half the width and half the height.
+     */
+    public final int zoom, zoomStartX, zoomStartY;
+    /**
+     * The Tobler parameters of a {@link WorldMapGenerator.HyperellipticalMap}; 0.0625 and 2.5 for other projections,
+     * which don't use them.
+     */
+    public final double alpha, kappa;
+    /**
+     * The noise settings the world uses; never null.
+     */
+    public final WorldMapGenerator.NoiseConfiguration noiseConfiguration;
+
+    /**
+     * The world described by this, made by {@link #world()} when it is first needed.
+     */
+    private transient WorldMapGenerator world;
+
+    /**
+     * Describes an unzoomed world centered on longitude 0 with the default noise settings.
+     * @param projection one of the projection constants, such as {@link #SPHERE}
+     * @param width the width of the map
+     * @param height the height of the map
+     * @param state the RNG state to generate with
+     * @param landModifier 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; must be positive
+     * @param heatModifier 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; must be positive
+     */
+    public WorldSpec(int projection, int width, int height, long state, double landModifier, double heatModifier) {
+        this(projection, width, height, state, landModifier, heatModifier, 0.0, 0, width >> 1, height >> 1,
+                0.0625, 2.5, null);
+    }
+
+    /**
+     * Describes a world with every setting specified.
+     * @param projection one of the projection constants, such as {@link #SPHERE}
+     * @param width the width of the map
+     * @param height the height of the map
+     * @param state the RNG state to generate with
+     * @param landModifier 1.0 is Earth-like, less than 1 is more-water, more than 1 is more-land; must be positive
+     * @param heatModifier 1.125 is Earth-like, less than 1 is cooler, more than 1 is hotter; must be positive
+     * @param centerLongitude the longitude to center the map on, in radians
+     * @param zoom how many times the world is zoomed in, from 0 to 30
+     * @param zoomStartX the x-coordinate of the center of the view, in cells of the whole world at that zoom
+     * @param zoomStartY the y-coordinate of the center of the view, in cells of the whole world at that zoom
+     * @param alpha the Tobler parameter alpha, only used by {@link #HYPERELLIPTICAL}
+     * @param kappa the Tobler parameter kappa, only used by {@link #HYPERELLIPTICAL}
+     * @param noiseConfiguration the noise settings; if null, {@link WorldMapGenerator.NoiseConfiguration#DEFAULT}
+     */
+    public WorldSpec(int projection, int width, int height, long state, double landModifier, double heatModifier,
+                     double centerLongitude, int zoom, int zoomStartX, int zoomStartY, double alpha, double kappa,
+                     WorldMapGenerator.NoiseConfiguration noiseConfiguration) {
+        if(projection < SPHERE || projection > LOCAL)
+            throw new IllegalArgumentException("Unknown projection " + projection);
+        if(width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        if(!(landModifier > 0.0) || !(heatModifier > 0.0))
+            throw new IllegalArgumentException("The land and heat modifiers must be positive");
+        if(zoom < 0 || zoom > 30)
+            throw new IllegalArgumentException("Invalid zoom " + zoom);
+        this.projection = projection;
+        this.width = width;
+        this.height = height;
+        this.state = state;
+        this.landModifier = landModifier;
+        this.heatModifier = heatModifier;
+        this.centerLongitude = centerLongitude % 6.283185307179586;
+        this.zoom = zoom;
+        this.zoomStartX = zoomStartX;
+        this.zoomStartY = zoomStartY;
+        this.alpha = projection == HYPERELLIPTICAL ? alpha : 0.0625;
+        this.kappa = projection == HYPERELLIPTICAL ? kappa : 2.5;
+        this.noiseConfiguration = noiseConfiguration == null
+                ? WorldMapGenerator.NoiseConfiguration.DEFAULT : noiseConfiguration;
+    }
+
+    /**
+     * Describes the world {@code world} has generated most recently, including where it is zoomed to.
+     * @param world one of the seven projections in WorldMapGenerator, which must have generated a map
+     * @return a new WorldSpec describing world's current map
+     */
+    public static WorldSpec of(WorldMapGenerator world) {
+        final Class<?> c = world.getClass();
+        final int projection;
+        WorldMapGenerator.NoiseConfiguration config;
+        double alpha = 0.0625, kappa = 2.5;
+        if(c == WorldMapGenerator.SphereMap.class) {
+            projection = SPHERE;
+            config = ((WorldMapGenerator.SphereMap) world).noiseConfiguration;
+        } else if(c == WorldMapGenerator.EllipticalMap.class) {
+            projection = ELLIPTICAL;
+            config = ((WorldMapGenerator.EllipticalMap) world).noiseConfiguration;
+        } else if(c == WorldMapGenerator.SpaceViewMap.class) {
+            projection = SPACE_VIEW;
+            config = ((WorldMapGenerator.SpaceViewMap) world).noiseConfiguration;
+        } else if(c == WorldMapGenerator.HyperellipticalMap.class) {
+            projection = HYPERELLIPTICAL;
+            final WorldMapGenerator.HyperellipticalMap h = (WorldMapGenerator.HyperellipticalMap) world;
+            config = h.noiseConfiguration;
+            alpha = h.getAlpha();
+            kappa = h.getKappa();
+        } else if(c == WorldMapGenerator.EllipticalHammerMap.class) {
+            projection = ELLIPTICAL_HAMMER;
+            config = ((WorldMapGenerator.EllipticalHammerMap) world).noiseConfiguration;
+        } else if(c == WorldMapGenerator.RotatingSpaceMap.class) {
+            projection = ROTATING_SPACE;
+            config = ((WorldMapGenerator.RotatingSpaceMap) world).storedMap.noiseConfiguration;
+        } else if(c == WorldMapGenerator.LocalMap.class) {
+            projection = LOCAL;
+            config = ((WorldMapGenerator.LocalMap) world).noiseConfiguration;
+        } else
+            throw new IllegalArgumentException("Can't describe a " + c.getName());
+        if(!isGenerated(world))
+            throw new IllegalStateException("The world hasn't generated a map yet");
+        final WorldMapGenerator climate = climate(world);
+        return new WorldSpec(projection, world.width, world.height,
+                (world.cacheA & 0xFFFFFFFFL) | (long) world.cacheB << 32, climate.landModifier, climate.heatModifier,
+                world.getCenterLongitude(), world.zoom, world.zoomStartX, world.zoomStartY, alpha, kappa, config);
+    }
+
+    /**
+     * Gets the generator that holds world's land and heat modifiers; a RotatingSpaceMap keeps them in its stored map.
+     */
+    private static WorldMapGenerator climate(WorldMapGenerator world) {
+        return world instanceof WorldMapGenerator.RotatingSpaceMap
+                ? ((WorldMapGenerator.RotatingSpaceMap) world).storedMap : world;
+    }
+
+    private static boolean isGenerated(WorldMapGenerator world) {
+        world = climate(world);
+        return world.landModifier > 0.0 && world.heatModifier > 0.0;
+    }
+
+    /**
+     * Gets a WorldSpec like this one but for the whole world, unzoomed, at the same center longitude.
+     * @return a WorldSpec with zoom 0, or this if it is already unzoomed
+     */
+    public WorldSpec unzoomed() {
+        if(zoom == 0 && zoomStartX == width >> 1 && zoomStartY == height >> 1)
+            return this;
+        return new WorldSpec(projection, width, height, state, landModifier, heatModifier, centerLongitude,
+                0, width >> 1, height >> 1, alpha, kappa, noiseConfiguration);
+    }
+
+    /**
+     * Makes a new, ungenerated WorldMapGenerator of the described projection, size, and noise settings.
+     */
+    private WorldMapGenerator construct() {
+        switch (projection) {
+            case SPHERE: return new WorldMapGenerator.SphereMap(state, width, height, noiseConfiguration);
+            case ELLIPTICAL: return new WorldMapGenerator.EllipticalMap(state, width, height, noiseConfiguration);
+            case SPACE_VIEW: return new WorldMapGenerator.SpaceViewMap(state, width, height, noiseConfiguration);
+            case HYPERELLIPTICAL: return new WorldMapGenerator.HyperellipticalMap(state, width, height,
+                    noiseConfiguration, alpha, kappa);
+            case ELLIPTICAL_HAMMER: return new WorldMapGenerator.EllipticalHammerMap(state, width, height,
+                    noiseConfiguration);
+            case ROTATING_SPACE: return new WorldMapGenerator.RotatingSpaceMap(state, width, height,
+                    noiseConfiguration);
+            default: return new WorldMapGenerator.LocalMap(state, width, height, noiseConfiguration);
+        }
+    }
+
+    /**
+     * Makes a new WorldMapGenerator and generates the described world with it. Each call generates again; use
+     * {@link #world()} to generate only once.
+     * @return a new WorldMapGenerator that has generated the described world
+     */
+    public WorldMapGenerator create() {
+        final WorldMapGenerator w = construct();
+        applyTo(w);
+        return w;
+    }
+
+    /**
+     * Checks whether {@code world} already has the described world generated, including its zoom and center longitude.
+     * This goes by the settings world keeps, so it only checks that world is the right projection with the right
+     * noise settings when it is one of the seven projections WorldSpec knows.
+     * @param world any WorldMapGenerator
+     * @return true if world's current map is the one this describes
+     */
+    public boolean matches(WorldMapGenerator world) {
+        return generatedSeed(world) && world.zoom == zoom && world.zoomStartX == zoomStartX
+                && world.zoomStartY == zoomStartY && world.getCenterLongitude() == centerLongitude;
+    }
+
+    /**
+     * True if world has this seed and these modifiers generated, so only its view may need to change.
+     */
+    private boolean generatedSeed(WorldMapGenerator world) {
+        final WorldMapGenerator climate = climate(world);
+        return world.width == width && world.height == height && isGenerated(world)
+                && world.cacheA == (int) state && world.cacheB == (int) (state >>> 32)
+                && climate.landModifier == landModifier && climate.heatModifier == heatModifier;
+    }
+
+    /**
+     * Makes {@code world} show the described world, generating only what it needs to: nothing if it already
+     * {@link #matches(WorldMapGenerator)}, one regeneration if it has the right seed but a different zoom or longitude,
+     * or a full generation followed by zooming otherwise. The world should be the projection this describes, with the
+     * same noise settings and size, such as one made by {@link #create()} for another WorldSpec.
+     * @param world a WorldMapGenerator of the described projection, noise settings, and size
+     */
+    public void applyTo(WorldMapGenerator world) {
+        if(world.width != width || world.height != height)
+            throw new IllegalArgumentException("The WorldSpec is " + width + "x" + height
+                    + ", but the WorldMapGenerator is " + world.width + "x" + world.height);
+        if(matches(world))
+            return;
+        final boolean reuse = generatedSeed(world);
+        if(projection == ROTATING_SPACE && reuse && world.zoom == zoom && world.zoomStartX == zoomStartX
+                && world.zoomStartY == zoomStartY) {
+            // only the rotation changed, which RotatingSpaceMap can show without generating again
+            world.setCenterLongitude(centerLongitude);
+            return;
+        }
+        world.centerLongitude = centerLongitude;
+        if(!reuse) {
+            // RotatingSpaceMap only regenerates its stored map when the seed changes, so make it forget the seed
+            if(projection == ROTATING_SPACE)
+                world.forgetState();
+            world.generate(landModifier, heatModifier, state);
+        }
+        if(!matches(world))
+            world.restoreZoom(zoom, zoomStartX, zoomStartY);
+    }
+
+    /**
+     * Gets the described world, generating it the first time this is called and returning the same WorldMapGenerator
+     * after that. Everything that calls this on the same WorldSpec shares that generator, so it shouldn't be zoomed,
+     * regenerated, or changed; use {@link #create()} to get one of your own.
+     * @return the shared WorldMapGenerator holding the described world
+     */
+    public synchronized WorldMapGenerator world() {
+        if(world == null)
+            world = create();
+        return world;
+    }
+
+    /**
+     * Gets the height layer of the described world, generating it if this is the first layer asked for.
+     * @return the shared {@link WorldMapGenerator#heightData} of {@link #world()}; don't change it
+     */
+    public double[][] heightData() {
+        return world().heightData;
+    }
+
+    /**
+     * Gets the heat layer of the described world, generating it if this is the first layer asked for.
+     * @return the shared {@link WorldMapGenerator#heatData} of {@link #world()}; don't change it
+     */
+    public double[][] heatData() {
+        return world().heatData;
+    }
+
+    /**
+     * Gets the moisture layer of the described world, generating it if this is the first layer asked for.
+     * @return the shared {@link WorldMapGenerator#moistureData} of {@link #world()}; don't change it
+     */
+    public double[][] moistureData() {
+        return world().moistureData;
+    }
+
+    /**
+     * Gets the height codes of the described world, generating it if this is the first layer asked for.
+     * @return the shared {@link WorldMapGenerator#heightCodeData} of {@link #world()}; don't change it
+     */
+    public int[][] heightCodeData() {
+        return world().heightCodeData;
+    }
+
+    /**
+     * Encodes this as a byte array: 56 bytes, plus 16 for a {@link #HYPERELLIPTICAL} projection and 120 for noise
+     * settings other than {@link WorldMapGenerator.NoiseConfiguration#DEFAULT}.
+     * @return a new byte array that {@link #fromBytes(byte[])} can read
+     */
+    public byte[] toBytes() {
+        final boolean custom = !noiseConfiguration.equals(WorldMapGenerator.NoiseConfiguration.DEFAULT),
+                tobler = projection == HYPERELLIPTICAL;
+        final byte[] bytes = new byte[BASE_BYTES + (tobler ? 16 : 0) + (custom ? 120 : 0)];
+        bytes[0] = (byte) MAGIC;
+        bytes[1] = (byte) VERSION;
+        bytes[2] = (byte) projection;
+        bytes[3] = (byte) ((custom ? CUSTOM_NOISE : 0) | (tobler ? TOBLER : 0));
+        int i = writeInt(bytes, 4, width);
+        i = writeInt(bytes, i, height);
+        i = writeLong(bytes, i, state);
+        i = writeLong(bytes, i, Double.doubleToLongBits(landModifier));
+        i = writeLong(bytes, i, Double.doubleToLongBits(heatModifier));
+        i = writeLong(bytes, i, Double.doubleToLongBits(centerLongitude));
+        i = writeInt(bytes, i, zoom);
+        i = writeInt(bytes, i, zoomStartX);
+        i = writeInt(bytes, i, zoomStartY);
+        if(tobler) {
+            i = writeLong(bytes, i, Double.doubleToLongBits(alpha));
+            i = writeLong(bytes, i, Double.doubleToLongBits(kappa));
+        }
+        if(custom) {
+            i = writeLayer(bytes, i, noiseConfiguration.terrain);
+            i = writeLayer(bytes, i, noiseConfiguration.terrainLayered);
+            i = writeLayer(bytes, i, noiseConfiguration.heat);
+            i = writeLayer(bytes, i, noiseConfiguration.moisture);
+            writeLayer(bytes, i, noiseConfiguration.otherRidged);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a WorldSpec written by {@link #toBytes()}.
+     * @param bytes a byte array made by {@link #toBytes()}
+     * @return the WorldSpec those bytes describe
+     * @throws IllegalArgumentException if bytes doesn't hold a valid WorldSpec
+     */
+    public static WorldSpec fromBytes(byte[] bytes) {
+        if(bytes == null || bytes.length < BASE_BYTES || (bytes[0] & 255) != MAGIC)
+            throw new IllegalArgumentException("Not an encoded WorldSpec");
+        if((bytes[1] & 255) != VERSION)
+            throw new IllegalArgumentException("Unknown encoded WorldSpec version " + (bytes[1] & 255));
+        final int flags = bytes[3];
+        final boolean custom = (flags & CUSTOM_NOISE) != 0, tobler = (flags & TOBLER) != 0;
+        if(bytes.length != BASE_BYTES + (tobler ? 16 : 0) + (custom ? 120 : 0))
+            throw new IllegalArgumentException("Encoded WorldSpec has the wrong length");
+        double alpha = 0.0625, kappa = 2.5;
+        WorldMapGenerator.NoiseConfiguration config = null;
+        int i = BASE_BYTES;
+        if(tobler) {
+            alpha = Double.longBitsToDouble(readLong(bytes, i));
+            kappa = Double.longBitsToDouble(readLong(bytes, i + 8));
+            i += 16;
+        }
+        if(custom) {
+            config = new WorldMapGenerator.NoiseConfiguration(readLayer(bytes, i), readLayer(bytes, i + 24),
+                    readLayer(bytes, i + 48), readLayer(bytes, i + 72), readLayer(bytes, i + 96));
+        }
+        return new WorldSpec(bytes[2], readInt(bytes, 4), readInt(bytes, 8), readLong(bytes, 12),
+                Double.longBitsToDouble(readLong(bytes, 20)), Double.longBitsToDouble(readLong(bytes, 28)),
+                Double.longBitsToDouble(readLong(bytes, 36)), readInt(bytes, 44), readInt(bytes, 48), readInt(bytes, 52),
+                alpha, kappa, config);
+    }
+
+    /**
+     * Encodes this as a String of hex digits, using {@link StringKit#hex(byte[])} on {@link #toBytes()}.
+     * @return a String of 112 or more hex digits that {@link #fromHex(CharSequence)} can read
+     */
+    public String toHex() {
+        return StringKit.hex(toBytes());
+    }
+
+    /**
+     * Reads a WorldSpec written by {@link #toHex()}.
+     * @param hex a CharSequence made by {@link #toHex()}
+     * @return the WorldSpec hex describes
+     * @throws IllegalArgumentException if hex doesn't hold a valid WorldSpec
+     */
+    public static WorldSpec fromHex(CharSequence hex) {
+        if(hex == null || (hex.length() & 1) != 0)
+            throw new IllegalArgumentException("Not an encoded WorldSpec");
+        final byte[] bytes = new byte[hex.length() >> 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) StringKit.intFromHex(hex, i << 1, i + 1 << 1);
+        }
+        return fromBytes(bytes);
+    }
+
+    private static int writeInt(byte[] bytes, int i, int n) {
+        bytes[i] = (byte) (n >>> 24);
+        bytes[i + 1] = (byte) (n >>> 16);
+        bytes[i + 2] = (byte) (n >>> 8);
+        bytes[i + 3] = (byte) n;
+        return i + 4;
+    }
+
+    private static int writeLong(byte[] bytes, int i, long n) {
+        writeInt(bytes, i, (int) (n >>> 32));
+        return writeInt(bytes, i + 4, (int) n);
+    }
+
+    private static int writeLayer(byte[] bytes, int i, WorldMapGenerator.NoiseLayer layer) {
+        i = writeInt(bytes, i, Float.floatToIntBits(layer.frequency));
+        i = writeInt(bytes, i, layer.noiseType);
+        i = writeInt(bytes, i, layer.octaves);
+        i = writeInt(bytes, i, Float.floatToIntBits(layer.lacunarity));
+        i = writeInt(bytes, i, Float.floatToIntBits(layer.gain));
+        return writeInt(bytes, i, layer.fractalType);
+    }
+
+    private static int readInt(byte[] bytes, int i) {
+        return bytes[i] << 24 | (bytes[i + 1] & 255) << 16 | (bytes[i + 2] & 255) << 8 | bytes[i + 3] & 255;
+    }
+
+    private static long readLong(byte[] bytes, int i) {
+        return (long) readInt(bytes, i) << 32 | readInt(bytes, i + 4) & 0xFFFFFFFFL;
+    }
+
+    private static WorldMapGenerator.NoiseLayer readLayer(byte[] bytes, int i) {
+        return new WorldMapGenerator.NoiseLayer(Float.intBitsToFloat(readInt(bytes, i)), readInt(bytes, i + 4),
+                readInt(bytes, i + 8), Float.intBitsToFloat(readInt(bytes, i + 12)),
+                Float.intBitsToFloat(readInt(bytes, i + 16)), readInt(bytes, i + 20));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WorldSpec that = (WorldSpec) o;
+        return projection == that.projection && width == that.width && height == that.height && state == that.state
+                && Double.compare(that.landModifier, landModifier) == 0
+                && Double.compare(that.heatModifier, heatModifier) == 0
+                && Double.compare(that.centerLongitude, centerLongitude) == 0 && zoom == that.zoom
+                && zoomStartX == that.zoomStartX && zoomStartY == that.zoomStartY
+                && Double.compare(that.alpha, alpha) == 0 && Double.compare(that.kappa, kappa) == 0
+                && noiseConfiguration.equals(that.noiseConfiguration);
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = state;
+        bits = 31 * bits + Double.doubleToLongBits(landModifier);
+        bits = 31 * bits + Double.doubleToLongBits(heatModifier);
+        bits = 31 * bits + Double.doubleToLongBits(centerLongitude);
+        bits = 31 * bits + Double.doubleToLongBits(alpha);
+        bits = 31 * bits + Double.doubleToLongBits(kappa);
+        int result = (int) (bits ^ bits >>> 32);
+        result = 31 * result + projection;
+        result = 31 * result + width;
+        result = 31 * result + height;
+        result = 31 * result + zoom;
+        result = 31 * result + zoomStartX;
+        result = 31 * result + zoomStartY;
+        result = 31 * result + noiseConfiguration.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WorldSpec{" + toHex() + '}';
+    }
+}
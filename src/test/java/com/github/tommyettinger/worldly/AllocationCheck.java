@@ -0,0 +1,101 @@
+package com.github.tommyettinger.worldly;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that generating, zooming, biome mapping, and coloring on an already-sized generator allocate nothing once the
+ * JIT has warmed up. Each projection is warmed up with a few hundred rounds of the same calls, then measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} over more rounds; any projection that allocates
+ * is printed and makes the process exit with status 1, so this can run as a build check. Because the JIT can still be
+ * recompiling or deoptimizing just after warm-up, which briefly allocates on its own, the measurement is tried a few
+ * times and only the smallest result counts.
+ * <br>
+ * Each projection is then copied and snapshotted, which shares its layers; the round after that has to copy them, and
+ * is only reported, but the rounds after it are measured again and must allocate nothing, as before.
+ * <br>
+ * Needs a HotSpot-based JVM (or another that supports thread allocation measurement); otherwise this prints a note and
+ * exits with status 0 without checking anything.
+ */
+public class AllocationCheck {
+    private static final int WARMUP = 200, ROUNDS = 50, ATTEMPTS = 3;
+    private static final com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static void round(WorldMapView view, WorldMapGenerator world, long seed) {
+        world.generate(seed);
+        view.getBiomeMapper().makeBiomes(world);
+        view.show();
+        world.zoomIn();
+        world.zoomIn(1, world.width >> 2, world.height >> 2);
+        world.zoomOut(2, world.width >> 1, world.height >> 1);
+        view.getBiomeMapper().makeBiomes(world);
+        if(world instanceof WorldMapGenerator.RotatingSpaceMap)
+            world.setCenterLongitude((seed & 63) * 0.1);
+        view.show();
+    }
+
+    private static long allocated(long thread) {
+        return bean.getThreadAllocatedBytes(thread);
+    }
+
+    private static long measure(WorldMapView view, WorldMapGenerator world, long thread, long overhead, long seed) {
+        long bytes = Long.MAX_VALUE;
+        for (int a = 0; a < ATTEMPTS && bytes > 0; a++) {
+            final long before = allocated(thread);
+            for (int r = 0; r < ROUNDS; r++) {
+                round(view, world, seed + r);
+            }
+            bytes = Math.min(bytes, allocated(thread) - before - overhead);
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) {
+        if(!bean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation measurement isn't supported on this JVM; nothing was checked.");
+            return;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        final long thread = Thread.currentThread().getId();
+        final WorldMapGenerator[] worlds = {
+                new WorldMapGenerator.SphereMap(1L, 128, 64),
+                new WorldMapGenerator.EllipticalMap(2L, 128, 64),
+                new WorldMapGenerator.SpaceViewMap(3L, 64, 64),
+                new WorldMapGenerator.HyperellipticalMap(4L, 128, 64),
+                new WorldMapGenerator.EllipticalHammerMap(5L, 128, 64),
+                new WorldMapGenerator.RotatingSpaceMap(6L, 64, 64),
+                new WorldMapGenerator.LocalMap(7L, 64, 64),
+        };
+        // measures what reading the counter costs by itself, so it can be subtracted
+        long overhead = allocated(thread);
+        overhead = allocated(thread) - overhead;
+        boolean failed = false;
+        for (int i = 0; i < worlds.length; i++) {
+            final WorldMapGenerator world = worlds[i];
+            final WorldMapView view = new WorldMapView(world);
+            for (int r = 0; r < WARMUP; r++) {
+                round(view, world, r);
+            }
+            long bytes = measure(view, world, thread, overhead, WARMUP);
+            System.out.println(world.getClass().getSimpleName() + ": " + bytes + " bytes over " + ROUNDS + " rounds");
+            if(bytes > 0)
+                failed = true;
+            // both of these share the world's layers, so the next round copies them once
+            world.copy();
+            new WorldSnapshot(world, null);
+            final long before = allocated(thread);
+            round(view, world, -1L);
+            final long unshared = allocated(thread) - before - overhead;
+            bytes = measure(view, world, thread, overhead, WARMUP + ROUNDS);
+            System.out.println(world.getClass().getSimpleName() + " after sharing: " + unshared + " bytes once, then "
+                    + bytes + " bytes over " + ROUNDS + " rounds");
+            if(bytes > 0)
+                failed = true;
+        }
+        if(failed) {
+            System.out.println("FAILED: at least one projection allocated after warm-up.");
+            System.exit(1);
+        }
+        System.out.println("OK: no allocation after warm-up.");
+    }
+}
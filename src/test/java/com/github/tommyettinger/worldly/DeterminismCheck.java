@@ -0,0 +1,511 @@
+package com.github.tommyettinger.worldly;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that the optimized generation paths give the same results as the plain path they replace. For every
+ * projection, a fixed set of seeds, and a few sequences of generating and zooming, this runs the plain reference path
+ * (generate or zoom, then {@link WorldMapGenerator.DetailedBiomeMapper#makeBiomes(WorldMapGenerator)}, then
+ * {@link WorldMapView#show(ByteBuffer)}) and checks each {@link Variant} against it cell by cell in the same run. A
+ * variant is a faster way to get the same results, such as the fused generate-and-show pass or the parallel biome
+ * mapper, and declares how close it must be: {@link Variant#maxDifference} is the largest absolute difference allowed
+ * in height, heat, or moisture, and {@link Variant#maxMismatch} is the largest fraction of cells allowed to have a
+ * different code or color; both are 0 for a variant that must be bit-identical.
+ * <br>
+ * This does not show that the reference path itself is unchanged; it only compares paths within one build. The
+ * reference path can be hashed (height, heat, moisture, height code, heat code, moisture code, and biome code layers,
+ * the RGBA colors, and the heat and moisture ranges) with {@code record} and later compared with {@code verify}, but no
+ * digest file is kept in the repo, because the digests depend on the noise library's version as well as this one.
+ * To look for drift between two builds, record on the older one and verify on the newer one, both using the same
+ * make_some_noise version.
+ * <br>
+ * Run with no arguments or {@code variants} to compare variants to the reference path, with {@code record} to also
+ * write the digests, or with {@code verify} to also check them; the digest file can be given as the second argument
+ * and defaults to {@code determinism-digests.txt}. Exits with status 1 if anything differs, or 2 if verifying and
+ * there are no digests to verify.
+ */
+public class DeterminismCheck {
+    private static final String DEFAULT_FILE = "determinism-digests.txt";
+    private static final long[] SEEDS = {1L, 0x9E3779B97F4A7C15L};
+    /**
+     * Each char is one step: g generates with the case's seed, z zooms in on the upper-left quarter, and o zooms out.
+     */
+    private static final String[] SEQUENCES = {"g", "gz", "gzz", "gzo"};
+
+    /**
+     * One projection, seed, and sequence of steps.
+     */
+    static final class Case {
+        final int projection;
+        final long seed;
+        final String steps;
+
+        Case(int projection, long seed, String steps) {
+            this.projection = projection;
+            this.seed = seed;
+            this.steps = steps;
+        }
+
+        WorldMapGenerator make() {
+            switch (projection) {
+                case 0: return new WorldMapGenerator.SphereMap(1L, 128, 64);
+                case 1: return new WorldMapGenerator.EllipticalMap(2L, 128, 64);
+                case 2: return new WorldMapGenerator.SpaceViewMap(3L, 64, 64);
+                case 3: return new WorldMapGenerator.HyperellipticalMap(4L, 128, 64);
+                case 4: return new WorldMapGenerator.EllipticalHammerMap(5L, 128, 64);
+                case 5: return new WorldMapGenerator.RotatingSpaceMap(6L, 64, 64);
+                default: return new WorldMapGenerator.LocalMap(7L, 64, 64);
+            }
+        }
+
+        void step(WorldMapGenerator world, char step) {
+            switch (step) {
+                case 'g':
+                    world.generate(seed);
+                    break;
+                case 'z':
+                    world.zoomIn(1, world.width >> 2, world.height >> 2);
+                    break;
+                default:
+                    world.zoomOut(1, world.width >> 1, world.height >> 1);
+            }
+        }
+
+        void apply(WorldMapGenerator world, int from) {
+            for (int i = from; i < steps.length(); i++) {
+                step(world, steps.charAt(i));
+            }
+        }
+
+        String name() {
+            return make().getClass().getSimpleName() + "/" + Long.toHexString(seed) + "/" + steps;
+        }
+    }
+
+    /**
+     * Everything one run produced.
+     */
+    static final class Layers {
+        double[][] height, heat, moisture;
+        int[][] heightCode, heatCode, moistureCode, biomeCode;
+        byte[] colors;
+        double[] ranges;
+    }
+
+    /**
+     * A faster path that should give the same results as the reference path, within its declared tolerance.
+     */
+    abstract static class Variant {
+        final String name;
+        /**
+         * The largest absolute difference allowed in any height, heat, or moisture value; 0 means bit-identical.
+         */
+        final double maxDifference;
+        /**
+         * The largest fraction of cells allowed to have a different code or color; 0 means none.
+         */
+        final double maxMismatch;
+
+        Variant(String name, double maxDifference, double maxMismatch) {
+            this.name = name;
+            this.maxDifference = maxDifference;
+            this.maxMismatch = maxMismatch;
+        }
+
+        boolean appliesTo(Case c) {
+            return true;
+        }
+
+        /**
+         * Runs the plain path this variant must match, for variants that do something the case's steps don't, such
+         * as generating one more time; null means the case's own reference run.
+         */
+        Layers expected(Case c) {
+            return null;
+        }
+
+        abstract Layers run(Case c);
+    }
+
+    static Layers capture(WorldMapGenerator world, WorldMapGenerator.DetailedBiomeMapper mapper, ByteBuffer colors) {
+        final Layers layers = new Layers();
+        layers.height = world.heightData;
+        layers.heat = world.heatData;
+        layers.moisture = world.moistureData;
+        layers.heightCode = world.heightCodeData;
+        layers.heatCode = mapper.heatCodeData;
+        layers.moistureCode = mapper.moistureCodeData;
+        layers.biomeCode = mapper.biomeCodeData;
+        layers.colors = colors.array();
+        layers.ranges = new double[]{world.minHeat, world.maxHeat, world.minWet, world.maxWet};
+        return layers;
+    }
+
+    static ByteBuffer pixels(WorldMapGenerator world) {
+        return ByteBuffer.allocate(world.width * world.height << 2);
+    }
+
+    static Layers reference(Case c) {
+        final WorldMapGenerator world = c.make();
+        final WorldMapView view = new WorldMapView(world);
+        c.apply(world, 0);
+        view.getBiomeMapper().makeBiomes(world);
+        return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+    }
+
+    static final Variant[] VARIANTS = {
+            new Variant("fused generateAndShow", 0.0, 0.0) {
+                @Override
+                boolean appliesTo(Case c) {
+                    return c.steps.equals("g");
+                }
+
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    final WorldMapView view = new WorldMapView(world);
+                    view.generateAndShow((int) c.seed, (int) (c.seed >>> 32), -1.0, -1.0, true);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("ParallelBiomeMapper", 0.0, 0.0) {
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    final WorldMapView view = new WorldMapView(world);
+                    c.apply(world, 0);
+                    final ParallelBiomeMapper parallel = new ParallelBiomeMapper();
+                    parallel.minimumCellsPerTask = 256;
+                    parallel.makeBiomes(view.getBiomeMapper(), world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("ParallelWorldMapView", 0.0, 0.0) {
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    final ParallelWorldMapView view = new ParallelWorldMapView(world);
+                    view.minimumCellsPerTask = 256;
+                    c.apply(world, 0);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("copy() after generating", 0.0, 0.0) {
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator original = c.make();
+                    c.step(original, 'g');
+                    final WorldMapGenerator world = original.copy();
+                    c.apply(world, 1);
+                    final WorldMapView view = new WorldMapView(world);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("start methods and step()", 0.0, 0.0) {
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    for (int i = 0; i < c.steps.length(); i++) {
+                        switch (c.steps.charAt(i)) {
+                            case 'g':
+                                world.startGenerate(c.seed);
+                                break;
+                            case 'z':
+                                world.startZoomIn(1, world.width >> 2, world.height >> 2);
+                                break;
+                            default:
+                                world.startZoomOut(1, world.width >> 1, world.height >> 1);
+                        }
+                        // a budget this small runs about one row per step, so every pass is split many times
+                        while (!world.step(1000L)) {
+                        }
+                    }
+                    final WorldMapView view = new WorldMapView(world);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("ProgressiveWorldGenerator start() and finish()", 0.0, 0.0) {
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    final ProgressiveWorldGenerator progressive = new ProgressiveWorldGenerator(world);
+                    // every sequence starts by generating, which this does coarse-to-fine through every level
+                    progressive.start(c.seed);
+                    progressive.finish();
+                    c.apply(world, 1);
+                    final WorldMapView view = new WorldMapView(world);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("ProgressiveWorldGenerator interrupted by generate()", 0.0, 0.0) {
+                @Override
+                Layers expected(Case c) {
+                    // generating with random modifiers always starts over, and cells outside the projection keep
+                    // what the generation before left there, so this must match generating twice
+                    final WorldMapGenerator world = c.make();
+                    c.step(world, 'g');
+                    c.apply(world, 0);
+                    final WorldMapView view = new WorldMapView(world);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator world = c.make();
+                    final ProgressiveWorldGenerator progressive = new ProgressiveWorldGenerator(world);
+                    progressive.start(c.seed);
+                    progressive.refine();
+                    // generating partway through the levels finishes the world all at once, then generates again
+                    c.apply(world, 0);
+                    if(!progressive.refine())
+                        throw new IllegalStateException("refine() should be done after the world was generated");
+                    final WorldMapView view = new WorldMapView(world);
+                    view.getBiomeMapper().makeBiomes(world);
+                    return capture(world, view.getBiomeMapper(), view.show(pixels(world)));
+                }
+            },
+            new Variant("SphereMap.PointSampler batch", 0.0, 0.0) {
+                @Override
+                boolean appliesTo(Case c) {
+                    return c.projection == 0;
+                }
+
+                @Override
+                Layers run(Case c) {
+                    final WorldMapGenerator.SphereMap world = (WorldMapGenerator.SphereMap) c.make();
+                    c.apply(world, 0);
+                    final int width = world.width, height = world.height, n = width * height;
+                    final WorldMapGenerator.PointBatch batch = new WorldMapGenerator.PointBatch(n);
+                    for (int x = 0, i = 0; x < width; x++) {
+                        for (int y = 0; y < height; y++, i++) {
+                            batch.x[i] = world.xPositions[x][y];
+                            batch.y[i] = world.yPositions[x][y];
+                            batch.z[i] = world.zPositions[x][y];
+                        }
+                    }
+                    world.sampler().query(batch.x, batch.y, batch.z, 0, n, batch);
+                    final Layers layers = reference(c);
+                    layers.height = new double[width][height];
+                    layers.heat = new double[width][height];
+                    layers.moisture = new double[width][height];
+                    layers.heightCode = new int[width][height];
+                    layers.heatCode = new int[width][height];
+                    layers.moistureCode = new int[width][height];
+                    layers.biomeCode = new int[width][height];
+                    for (int x = 0, i = 0; x < width; x++) {
+                        for (int y = 0; y < height; y++, i++) {
+                            layers.height[x][y] = batch.height[i];
+                            layers.heat[x][y] = batch.heat[i];
+                            layers.moisture[x][y] = batch.moisture[i];
+                            layers.heightCode[x][y] = batch.heightCode[i];
+                            layers.heatCode[x][y] = batch.heatCode[i];
+                            layers.moistureCode[x][y] = batch.moistureCode[i];
+                            layers.biomeCode[x][y] = batch.biomeCode[i];
+                        }
+                    }
+                    return layers;
+                }
+            },
+    };
+
+    static long hash(long h, long bits) {
+        return (h ^ bits) * 0x9E3779B97F4A7C15L ^ (h >>> 29);
+    }
+
+    static long digest(double[][] data) {
+        long h = data.length;
+        for (int x = 0; x < data.length; x++) {
+            for (int y = 0; y < data[x].length; y++) {
+                h = hash(h, Double.doubleToLongBits(data[x][y]));
+            }
+        }
+        return h;
+    }
+
+    static long digest(int[][] data) {
+        long h = data.length;
+        for (int x = 0; x < data.length; x++) {
+            for (int y = 0; y < data[x].length; y++) {
+                h = hash(h, data[x][y]);
+            }
+        }
+        return h;
+    }
+
+    static long digest(byte[] data) {
+        long h = data.length;
+        for (int i = 0; i < data.length; i++) {
+            h = hash(h, data[i]);
+        }
+        return h;
+    }
+
+    static long digest(double[] data) {
+        return digest(new double[][]{data});
+    }
+
+    static Map<String, Long> digests(Layers layers) {
+        final Map<String, Long> map = new LinkedHashMap<String, Long>();
+        map.put("height", digest(layers.height));
+        map.put("heat", digest(layers.heat));
+        map.put("moisture", digest(layers.moisture));
+        map.put("heightCode", digest(layers.heightCode));
+        map.put("heatCode", digest(layers.heatCode));
+        map.put("moistureCode", digest(layers.moistureCode));
+        map.put("biomeCode", digest(layers.biomeCode));
+        map.put("colors", digest(layers.colors));
+        map.put("ranges", digest(layers.ranges));
+        return map;
+    }
+
+    static double maxDifference(double[][] a, double[][] b) {
+        double max = 0.0;
+        for (int x = 0; x < a.length; x++) {
+            for (int y = 0; y < a[x].length; y++) {
+                if(Double.doubleToLongBits(a[x][y]) != Double.doubleToLongBits(b[x][y]))
+                    max = Math.max(max, Double.isNaN(a[x][y] - b[x][y])
+                            ? Double.POSITIVE_INFINITY : Math.abs(a[x][y] - b[x][y]));
+            }
+        }
+        return max;
+    }
+
+    static double mismatch(int[][] a, int[][] b) {
+        int count = 0, total = 0;
+        for (int x = 0; x < a.length; x++) {
+            for (int y = 0; y < a[x].length; y++, total++) {
+                if(a[x][y] != b[x][y])
+                    count++;
+            }
+        }
+        return count / (double) Math.max(total, 1);
+    }
+
+    static double mismatch(byte[] a, byte[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i += 4) {
+            if(a[i] != b[i] || a[i + 1] != b[i + 1] || a[i + 2] != b[i + 2] || a[i + 3] != b[i + 3])
+                count++;
+        }
+        return count / (double) Math.max(a.length >> 2, 1);
+    }
+
+    /**
+     * Compares got to expected within the variant's tolerance, adding a line to problems for each layer that is off.
+     */
+    static void compare(String name, Variant variant, Layers expected, Layers got, List<String> problems) {
+        final double[] differences = {
+                maxDifference(expected.height, got.height),
+                maxDifference(expected.heat, got.heat),
+                maxDifference(expected.moisture, got.moisture)};
+        final String[] doubleNames = {"height", "heat", "moisture"};
+        for (int i = 0; i < 3; i++) {
+            if(differences[i] > variant.maxDifference)
+                problems.add(name + " " + variant.name + ": " + doubleNames[i] + " differs by up to " + differences[i]);
+        }
+        final double[] mismatches = {
+                mismatch(expected.heightCode, got.heightCode),
+                mismatch(expected.heatCode, got.heatCode),
+                mismatch(expected.moistureCode, got.moistureCode),
+                mismatch(expected.biomeCode, got.biomeCode),
+                mismatch(expected.colors, got.colors)};
+        final String[] codeNames = {"heightCode", "heatCode", "moistureCode", "biomeCode", "colors"};
+        for (int i = 0; i < 5; i++) {
+            if(mismatches[i] > variant.maxMismatch)
+                problems.add(name + " " + variant.name + ": " + codeNames[i] + " differs in "
+                        + (float) (mismatches[i] * 100.0) + "% of cells");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final boolean record = args.length > 0 && args[0].equals("record"),
+                verify = args.length > 0 && args[0].equals("verify");
+        final File file = new File(args.length > 1 ? args[1] : DEFAULT_FILE);
+        final Map<String, String> golden = new LinkedHashMap<String, String>();
+        if(verify && file.isFile()) {
+            final BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if(line.isEmpty() || line.startsWith("#"))
+                        continue;
+                    final int space = line.lastIndexOf(' ');
+                    golden.put(line.substring(0, space), line.substring(space + 1));
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        final List<String> problems = new ArrayList<String>();
+        final List<String> lines = new ArrayList<String>();
+        int cases = 0, comparisons = 0;
+        for (int p = 0; p < 7; p++) {
+            for (int s = 0; s < SEEDS.length; s++) {
+                for (int q = 0; q < SEQUENCES.length; q++) {
+                    final Case c = new Case(p, SEEDS[s], SEQUENCES[q]);
+                    final String name = c.name();
+                    final Layers expected = reference(c);
+                    cases++;
+                    for (Map.Entry<String, Long> e : digests(expected).entrySet()) {
+                        final String key = name + " " + e.getKey(), value = Long.toHexString(e.getValue());
+                        lines.add(key + " " + value);
+                        final String old = golden.get(key);
+                        if(old != null && !old.equals(value))
+                            problems.add(key + " was " + old + " but is now " + value);
+                    }
+                    for (int v = 0; v < VARIANTS.length; v++) {
+                        if(VARIANTS[v].appliesTo(c)) {
+                            final Layers own = VARIANTS[v].expected(c);
+                            compare(name, VARIANTS[v], own == null ? expected : own, VARIANTS[v].run(c), problems);
+                            comparisons++;
+                        }
+                    }
+                }
+            }
+        }
+
+        if(record) {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            if(parent != null && !parent.isDirectory() && !parent.mkdirs())
+                throw new IOException("Could not create " + parent);
+            final PrintWriter writer = new PrintWriter(new FileWriter(file));
+            try {
+                writer.println("# Digests written by DeterminismCheck record; projection/seed/steps layer digest");
+                for (int i = 0; i < lines.size(); i++) {
+                    writer.println(lines.get(i));
+                }
+            } finally {
+                writer.close();
+            }
+            System.out.println("Recorded " + lines.size() + " digests for " + cases + " cases in " + file);
+        }
+        System.out.println("Checked " + comparisons + " variant runs against " + cases + " reference runs.");
+        for (int i = 0; i < problems.size(); i++) {
+            System.out.println("FAILED: " + problems.get(i));
+        }
+        if(!problems.isEmpty())
+            System.exit(1);
+        if(verify && golden.isEmpty()) {
+            System.out.println("No digests found in " + file + "; run with record on the build to compare against.");
+            System.exit(2);
+        }
+        System.out.println("OK: " + (verify ? "all digests and variants match." : "all variants match."));
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.tommyettinger.worldly;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ProjectionTools#hyperellipse(double, double)}, which calls {@link Math#pow(double, double)} twice,
+ * with a table of the same function sampled once per kappa and linearly interpolated. The "row" benchmarks go over
+ * y-values the way {@link WorldMapGenerator.HyperellipticalMap} does when it fills one row of a map.
+ * <br>
+ * Run with {@code gradlew jmh}, or {@code gradlew jmh -PjmhArgs="Projection"} to only run this class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+    private static final int SIZE = 1024, MASK = SIZE - 1, TABLE_SIZE = 4096;
+    @Param({"2.5", "4.0"})
+    public double kappa;
+    private final double[] inputs = new double[SIZE], outputs = new double[SIZE], table = new double[TABLE_SIZE + 1];
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SilkRNG random = new SilkRNG(0x1337BEEFL);
+        for (int i = 0; i < SIZE; i++) {
+            inputs[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = ProjectionTools.hyperellipse(i / (double) TABLE_SIZE, kappa);
+        }
+    }
+
+    private double tabulated(double y) {
+        final double t = Math.abs(y) * TABLE_SIZE;
+        final int i = Math.min((int) t, TABLE_SIZE - 1);
+        return table[i] + (table[i + 1] - table[i]) * (t - i);
+    }
+
+    @Benchmark
+    public double hyperellipsePow() {
+        return ProjectionTools.hyperellipse(inputs[index++ & MASK], kappa);
+    }
+
+    @Benchmark
+    public double hyperellipseTable() {
+        return tabulated(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public void rowPow(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            outputs[i] = ProjectionTools.hyperellipse(inputs[i], kappa);
+        }
+        bh.consume(outputs);
+    }
+
+    @Benchmark
+    public void rowTable(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            outputs[i] = tabulated(inputs[i]);
+        }
+        bh.consume(outputs);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ProjectionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
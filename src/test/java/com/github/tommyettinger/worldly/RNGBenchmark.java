@@ -0,0 +1,143 @@
+package com.github.tommyettinger.worldly;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SilkRNG} (and the bounded methods it inherits from {@link AbstractRNG}) with the JDK's
+ * {@link SplittableRandom} and {@link ThreadLocalRandom}. The "seeding" benchmarks imitate what every
+ * {@code regenerate()} in {@link WorldMapGenerator} does with its RNG: set the state, then pull three longs and a few
+ * doubles. The "fill" benchmarks write a whole array, which shows throughput once the call is inlined.
+ * <br>
+ * SplittableRandom needs Java 8 or newer, so this benchmark does too, even though the library targets Java 7.
+ * Run with {@code gradlew jmh}, or {@code gradlew jmh -PjmhArgs="RNG"} to only run this class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RNGBenchmark {
+    private static final int SIZE = 1024;
+    private final long[] longs = new long[SIZE];
+    private final SilkRNG silk = new SilkRNG(0x1337BEEFL);
+    private final SplittableRandom splittable = new SplittableRandom(0x1337BEEFL);
+    private int state = 0;
+
+    @Benchmark
+    public long nextLongSilk() {
+        return silk.nextLong();
+    }
+
+    @Benchmark
+    public long nextLongSplittable() {
+        return splittable.nextLong();
+    }
+
+    @Benchmark
+    public long nextLongThreadLocal() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Benchmark
+    public int nextIntSilk() {
+        return silk.nextInt();
+    }
+
+    @Benchmark
+    public int nextIntSplittable() {
+        return splittable.nextInt();
+    }
+
+    @Benchmark
+    public int nextIntThreadLocal() {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    @Benchmark
+    public long nextLongBoundedSilk() {
+        return silk.nextLong(1000000007L);
+    }
+
+    @Benchmark
+    public long nextLongBoundedSplittable() {
+        return splittable.nextLong(1000000007L);
+    }
+
+    @Benchmark
+    public long nextLongBoundedThreadLocal() {
+        return ThreadLocalRandom.current().nextLong(1000000007L);
+    }
+
+    @Benchmark
+    public double nextDoubleSilk() {
+        return silk.nextDouble();
+    }
+
+    @Benchmark
+    public double nextDoubleSplittable() {
+        return splittable.nextDouble();
+    }
+
+    @Benchmark
+    public double nextDoubleThreadLocal() {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    @Benchmark
+    public double seedingSilk() {
+        final int s = ++state;
+        silk.setState(s, ~s);
+        final long seedA = silk.nextLong(), seedB = silk.nextLong(), seedC = silk.nextLong();
+        return (seedA ^ seedB ^ seedC) + silk.nextDouble(0.29) + silk.nextDouble(0.45) * (silk.nextDouble() - 0.5);
+    }
+
+    @Benchmark
+    public double seedingSplittable() {
+        final int s = ++state;
+        final SplittableRandom random = new SplittableRandom((long) ~s << 32 | (s & 0xFFFFFFFFL));
+        final long seedA = random.nextLong(), seedB = random.nextLong(), seedC = random.nextLong();
+        return (seedA ^ seedB ^ seedC) + random.nextDouble(0.29) + random.nextDouble(0.45) * (random.nextDouble() - 0.5);
+    }
+
+    @Benchmark
+    public void fillSilk(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = silk.nextLong();
+        }
+        bh.consume(longs);
+    }
+
+    @Benchmark
+    public void fillSplittable(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = splittable.nextLong();
+        }
+        bh.consume(longs);
+    }
+
+    @Benchmark
+    public void fillThreadLocal(Blackhole bh) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < SIZE; i++) {
+            longs[i] = random.nextLong();
+        }
+        bh.consume(longs);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(RNGBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.tommyettinger.worldly;
+
+import com.badlogic.gdx.math.MathUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the approximations in {@link TrigTools} with {@link Math}, {@link StrictMath}, and libGDX's
+ * {@link MathUtils}. The "scalar" benchmarks measure one call at a time, using inputs that change between calls so the
+ * JIT can't fold them away; the "row" benchmarks fill a whole array the way {@link WorldMapGenerator.SphereMap} fills
+ * its trig table, which is closer to how these methods are used during generation.
+ * <br>
+ * Run with {@code gradlew jmh}, or {@code gradlew jmh -PjmhArgs="Trig"} to only run this class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigBenchmark {
+    private static final int SIZE = 1024, MASK = SIZE - 1;
+    private final double[] inputs = new double[SIZE], ratios = new double[SIZE], outputs = new double[SIZE];
+    private final float[] floatInputs = new float[SIZE], floatOutputs = new float[SIZE];
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SilkRNG random = new SilkRNG(0x1337BEEFL);
+        for (int i = 0; i < SIZE; i++) {
+            inputs[i] = (random.nextDouble() - 0.5) * 4.0 * Math.PI;
+            floatInputs[i] = (float) inputs[i];
+            ratios[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+    }
+
+    @Benchmark
+    public double sinTrigTools() {
+        return TrigTools.sin(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double sinMath() {
+        return Math.sin(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double sinStrictMath() {
+        return StrictMath.sin(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public float sinTrigToolsFloat() {
+        return TrigTools.sin(floatInputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public float sinMathUtils() {
+        return MathUtils.sin(floatInputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double cosTrigTools() {
+        return TrigTools.cos(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double cosMath() {
+        return Math.cos(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double cosStrictMath() {
+        return StrictMath.cos(inputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public float cosMathUtils() {
+        return MathUtils.cos(floatInputs[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double asinTrigTools() {
+        return TrigTools.asin(ratios[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double asinMath() {
+        return Math.asin(ratios[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double atan2TrigTools() {
+        final int i = index++;
+        return TrigTools.atan2(ratios[i & MASK], ratios[i + 1 & MASK]);
+    }
+
+    @Benchmark
+    public double atan2Math() {
+        final int i = index++;
+        return Math.atan2(ratios[i & MASK], ratios[i + 1 & MASK]);
+    }
+
+    @Benchmark
+    public float atan2MathUtils() {
+        final int i = index++;
+        return MathUtils.atan2((float) ratios[i & MASK], (float) ratios[i + 1 & MASK]);
+    }
+
+    @Benchmark
+    public void rowTrigTools(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            outputs[i] = TrigTools.sin(inputs[i]) * TrigTools.cos(inputs[i]);
+        }
+        bh.consume(outputs);
+    }
+
+    @Benchmark
+    public void rowMath(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            outputs[i] = Math.sin(inputs[i]) * Math.cos(inputs[i]);
+        }
+        bh.consume(outputs);
+    }
+
+    @Benchmark
+    public void rowStrictMath(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            outputs[i] = StrictMath.sin(inputs[i]) * StrictMath.cos(inputs[i]);
+        }
+        bh.consume(outputs);
+    }
+
+    @Benchmark
+    public void rowTrigToolsFloat(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            floatOutputs[i] = TrigTools.sin(floatInputs[i]) * TrigTools.cos(floatInputs[i]);
+        }
+        bh.consume(floatOutputs);
+    }
+
+    @Benchmark
+    public void rowMathUtils(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            floatOutputs[i] = MathUtils.sin(floatInputs[i]) * MathUtils.cos(floatInputs[i]);
+        }
+        bh.consume(floatOutputs);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TrigBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
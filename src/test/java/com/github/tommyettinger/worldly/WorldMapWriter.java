@@ -8,7 +8,6 @@ import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.badlogic.gdx.utils.NumberUtils;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
@@ -123,17 +122,8 @@ public class WorldMapWriter extends ApplicationAdapter {
 
         //// this is the main part you would want to copy if you want to generate Pixmaps
         generate(name.hashCode());
-        float[][] cm = wmv.show();
-//        pm.setColor(0x222034FF); // could also be black
-        pm.setColor(0); // transparent
-        pm.fill();
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                // this just converts the SpriteBatch-usable ABGR floats to Pixmap-usable RGBA ints
-                pm.drawPixel(x, y, Integer.reverseBytes(NumberUtils.floatToIntBits(cm[x][y])));
-            }
-        }
+        // writes RGBA8888 colors straight into the Pixmap's memory; space is transparent
+        wmv.show(pm);
 
         batch.begin();
         pt.draw(pm, 0, 0);